@@ -0,0 +1,70 @@
+package com.example.banking.security;
+
+import com.example.banking.metrics.BankingMetrics;
+import com.example.banking.model.Client;
+import com.example.banking.service.JwtUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный проход запроса с токеном через {@link JwtRequestFilter}: разбор и проверка токена,
+ * загрузка пользователя (без базы данных) и заполнение контекста безопасности.
+ *
+ * @author nimatullah
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtRequestFilterBenchmark {
+
+    private JwtRequestFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtTokenService jwtTokenService = JwtTokenServiceBenchmark.jwtTokenService();
+        JwtUserDetailsService userDetailsService = new JwtUserDetailsService(null, null, Set.of()) {
+            @Override
+            public UserDetails loadUserByUsername(String username) {
+                return new Client(username, "password");
+            }
+        };
+        filter = new JwtRequestFilter(userDetailsService, jwtTokenService, (request, response, handler, exception) -> null,
+                new BankingMetrics(new SimpleMeterRegistry()));
+        authorization = "Bearer " + jwtTokenService.generateToken(new Client("benchmark-user", "password"));
+    }
+
+    @Benchmark
+    public int filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/transactions");
+        request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.banking.security;
+
+import com.example.banking.model.Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация и проверка JWT.
+ *
+ * @author nimatullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenServiceBenchmark {
+
+    static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private JwtTokenService jwtTokenService;
+    private Client user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenService = jwtTokenService();
+        user = new Client("benchmark-user", "password");
+        token = jwtTokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtTokenService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return jwtTokenService.validateToken(token, user);
+    }
+
+    static JwtTokenService jwtTokenService() {
+        JwtTokenService service = new JwtTokenService();
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        return service;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientResponseDTO;
+import com.example.banking.model.Client;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование сущности клиента в ответ API через {@code ClientService.clientMapper}.
+ *
+ * @author nimatullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientMapperBenchmark {
+
+    private ClientService clientService;
+    private Client client;
+
+    @Setup
+    public void setUp() {
+        clientService = new ClientService(null, new ModelMapper(), null, null, null, null, null, null, null);
+        client = new Client(1L, "benchmark-user", "password", "+70000000000", "user@example.com", "1990-01-01", "Benchmark User");
+    }
+
+    @Benchmark
+    public ClientResponseDTO toResponse() {
+        return clientService.clientMapper(client);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.banking.service;
+
+import com.example.banking.model.BankAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вычисления с {@link BigDecimal} при начислении процентов в {@code BankAccountService.updateBalance}.
+ *
+ * @author nimatullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterestAccrualBenchmark {
+
+    private BankAccount account;
+
+    @Setup
+    public void setUp() {
+        account = new BankAccount(1L, new BigDecimal("1000.00"), new BigDecimal("1234.56"), null, null);
+    }
+
+    @Benchmark
+    public BigDecimal accrue() {
+        return BankAccountService.accruedBalance(account);
+    }
+}
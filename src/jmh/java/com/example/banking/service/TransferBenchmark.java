@@ -0,0 +1,102 @@
+package com.example.banking.service;
+
+import com.example.banking.BankingServiceApplication;
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransactionService#transfer} на встроенной базе H2 (профиль {@code h2}): блокировка счетов,
+ * запись транзакции и фиксация.
+ *
+ * @author nimatullah
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private TransactionDTO transfer;
+    private Authentication authentication;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankingServiceApplication.class)
+                .profiles("h2")
+                .properties("server.port=0", "logging.level.root=WARN", "banking.audit.directory=target/audit",
+                        // Проверки скорости и суточного лимита выполняются, но не ограничивают повторные переводы между двумя счетами
+                        "banking.velocity.max-transfers=" + Long.MAX_VALUE, "banking.velocity.max-amount=1000000000000",
+                        "banking.daily-limit.default=1000000000000")
+                .run();
+        ClientService clientService = context.getBean(ClientService.class);
+        ClientRepository clientRepository = context.getBean(ClientRepository.class);
+        BankAccountRepository bankAccountRepository = context.getBean(BankAccountRepository.class);
+        transactionService = context.getBean(TransactionService.class);
+
+        Long fromAccountId = null;
+        Long toAccountId = null;
+        for (String username : List.of("benchmark-from", "benchmark-to")) {
+            ClientDTO clientDTO = new ClientDTO();
+            clientDTO.setUsername(username);
+            clientDTO.setPassword("password");
+            clientDTO.setInitialBalance(new BigDecimal("1000000000"));
+            clientDTO.setPhoneNumber("+7" + username);
+            clientDTO.setEmail(username + "@example.com");
+            clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+            clientDTO.setFullName(username);
+            clientService.createClient(clientDTO);
+            Long clientId = clientRepository.findByUsername(username).orElseThrow().getId();
+            Long accountId = bankAccountRepository.findByClientId(clientId).orElseThrow().getId();
+            if (fromAccountId == null) {
+                fromAccountId = accountId;
+            } else {
+                toAccountId = accountId;
+            }
+        }
+
+        transfer = new TransactionDTO();
+        transfer.setFromClientId(fromAccountId);
+        transfer.setToClientId(toAccountId);
+        transfer.setAmount(new BigDecimal("0.01"));
+        authentication = new UsernamePasswordAuthenticationToken("benchmark-from", null, List.of());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> transfer() {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return transactionService.transfer(transfer);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.banking.audit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Событие аудита. Сериализуется в одну компактную JSON-строку.
+ *
+ * @param ts         время события.
+ * @param type       тип события.
+ * @param actor      имя аутентифицированного пользователя, если он известен.
+ * @param attributes параметры события.
+ * @author nimatullah
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record AuditEvent(Instant ts, AuditEventType type, String actor, Map<String, Object> attributes) {
+}
@@ -0,0 +1,14 @@
+package com.example.banking.audit;
+
+/**
+ * Типы событий аудита.
+ *
+ * @author nimatullah
+ */
+public enum AuditEventType {
+    TRANSFER,
+    LOGIN_SUCCESS,
+    LOGIN_FAILURE,
+    CONTACT_UPDATED,
+    CONTACT_DELETED
+}
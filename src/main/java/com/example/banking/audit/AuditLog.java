@@ -0,0 +1,228 @@
+package com.example.banking.audit;
+
+import com.example.banking.metrics.LogSampler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный журнал аудита, отделенный от диагностического логирования.
+ * <p>
+ * Потоки запросов только кладут событие в неблокирующий кольцевой буфер. Отдельный поток пачками
+ * записывает события в файл {@code audit-yyyy-MM-dd.jsonl} (по одной JSON-строке на событие) и сбрасывает
+ * буфер файла один раз на пачку. При переполнении буфера событие отбрасывается и учитывается в метрике.
+ * Буфер и поток записи создаются только при включенном аудите ({@code banking.audit.enabled}), в том числе
+ * при включении во время работы.
+ *
+ * @author nimatullah
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final Path directory;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final LogSampler dropLogSampler = new LogSampler(1000);
+
+    private volatile AuditRingBuffer<AuditEvent> buffer;
+    private Thread writerThread;
+    private volatile boolean enabled;
+    private volatile boolean running = true;
+    private BufferedWriter writer;
+    private LocalDate writerDate;
+
+    @Autowired
+    public AuditLog(ObjectMapper objectMapper,
+                    MeterRegistry meterRegistry,
+                    @Value("${banking.audit.enabled:true}") boolean enabled,
+                    @Value("${banking.audit.directory:logs/audit}") Path directory,
+                    @Value("${banking.audit.buffer-size:8192}") int bufferSize,
+                    @Value("${banking.audit.batch-size:512}") int batchSize,
+                    @Value("${banking.audit.flush-interval:200ms}") Duration flushInterval) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.directory = directory;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.written = auditCounter(meterRegistry, "written");
+        this.dropped = auditCounter(meterRegistry, "dropped");
+        this.failed = auditCounter(meterRegistry, "failed");
+        setEnabled(enabled);
+    }
+
+    /**
+     * Записывает событие от имени текущего пользователя.
+     *
+     * @param type       тип события.
+     * @param attributes параметры события.
+     */
+    public void record(AuditEventType type, Map<String, Object> attributes) {
+        record(type, currentActor(), attributes);
+    }
+
+    /**
+     * Записывает событие от имени указанного пользователя.
+     */
+    public void record(AuditEventType type, String actor, Map<String, Object> attributes) {
+        if (!enabled) {
+            return;
+        }
+        if (!buffer.offer(new AuditEvent(Instant.now(), type, actor, attributes))) {
+            dropped.increment();
+            if (dropLogSampler.sample()) {
+                logger.warn("Audit buffer is full, events are being dropped");
+            }
+        }
+    }
+
+    /**
+     * Записывает событие после успешной фиксации текущей транзакции; без транзакции — сразу.
+     */
+    public void recordAfterCommit(AuditEventType type, Map<String, Object> attributes) {
+        if (!enabled) {
+            return;
+        }
+        String actor = currentActor();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(type, actor, attributes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(type, actor, attributes);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && writerThread == null) {
+            // Буфер публикуется до флага enabled, поэтому record видит его, как только видит включенный аудит
+            buffer = new AuditRingBuffer<>(bufferSize);
+            writerThread = new Thread(this::runWriter, "audit-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        this.enabled = enabled;
+    }
+
+    synchronized boolean isWriterStarted() {
+        return writerThread != null;
+    }
+
+    /**
+     * Дожидается записи накопленных событий и закрывает файл.
+     */
+    @PreDestroy
+    public synchronized void close() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            writerThread.join(Duration.ofSeconds(10).toMillis());
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+        while (drainBatch() > 0) {
+            // Дописываем события, поступившие до остановки
+        }
+        closeWriter();
+    }
+
+    private int drainBatch() {
+        int drained = buffer.drain(this::write, batchSize);
+        if (drained > 0 && writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                logger.error("Failed to flush audit log", e);
+            }
+        }
+        return drained;
+    }
+
+    private void write(AuditEvent event) {
+        try {
+            BufferedWriter out = writerFor(LocalDate.ofInstant(event.ts(), ZoneOffset.UTC));
+            out.write(objectMapper.writeValueAsString(event));
+            out.newLine();
+            written.increment();
+        } catch (IOException e) {
+            failed.increment();
+            logger.error("Failed to write audit event {}", event.type(), e);
+        }
+    }
+
+    private BufferedWriter writerFor(LocalDate date) throws IOException {
+        if (writer == null || !date.equals(writerDate)) {
+            closeWriter();
+            Files.createDirectories(directory);
+            writer = Files.newBufferedWriter(directory.resolve("audit-" + date + ".jsonl"), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            writerDate = date;
+        }
+        return writer;
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.error("Failed to close audit log", e);
+            }
+            writer = null;
+        }
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+
+    private static Counter auditCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("banking.audit.events")
+                .description("События аудита по результату записи")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
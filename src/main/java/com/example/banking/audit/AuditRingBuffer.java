@@ -0,0 +1,84 @@
+package com.example.banking.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный неблокирующий кольцевой буфер для многих писателей и одного читателя.
+ * <p>
+ * Каждая ячейка хранит номер последовательности: писатель занимает позицию через CAS по хвосту,
+ * записывает элемент и публикует его, увеличивая номер ячейки. Читатель забирает только опубликованные ячейки.
+ * При заполнении буфера {@link #offer} сразу возвращает false и не блокирует вызывающий поток.
+ *
+ * @param <E> тип элементов.
+ * @author nimatullah
+ */
+final class AuditRingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Добавляет элемент, если в буфере есть место. Может вызываться из любого потока.
+     *
+     * @return false, если буфер заполнен.
+     */
+    boolean offer(E element) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+        }
+        elements[index] = element;
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Передает потребителю до {@code limit} опубликованных элементов. Вызывается только потоком-читателем.
+     *
+     * @return количество переданных элементов.
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<E> consumer, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            E element = (E) elements[index];
+            elements[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+            consumer.accept(element);
+        }
+        return drained;
+    }
+}
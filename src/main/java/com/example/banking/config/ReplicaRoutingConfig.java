@@ -0,0 +1,89 @@
+package com.example.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Конфигурация DataSource с маршрутизацией read-only транзакций на реплики.
+ * <p>
+ * Включается свойством {@code banking.datasource.routing.enabled=true}. Основной пул настраивается
+ * стандартными свойствами {@code spring.datasource.*}, реплики — списком {@code banking.datasource.routing.replicas}.
+ *
+ * @author nimatullah
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnProperty(prefix = "banking.datasource.routing", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingConfig.class);
+
+    /**
+     * Основной пул соединений, принимающий запись и чтение при недоступности реплик.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("banking-" + ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, ReplicaRoutingProperties properties,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicaRoutingProperties.Replica replica = properties.getReplicas().get(i);
+            String name = replica.getName() != null ? replica.getName() : "replica-" + i;
+
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("banking-" + name);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            // Пулы реплик не являются бинами, поэтому метрики Hikari подключаются явно
+            meterRegistry.ifAvailable(dataSource::setMetricRegistry);
+            replicas.put(name, dataSource);
+        }
+
+        logger.info("Routing read-only transactions to {} replica(s): {}", replicas.size(), replicas.keySet());
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.getMaxLag(), properties.getLagQuery());
+        routingDataSource.startLagMonitor(properties.getLagCheckInterval());
+        meterRegistry.ifAvailable(registry -> routingDataSource.getPoolStatistics().keySet().forEach(statistic ->
+                Gauge.builder("banking.datasource.routing", routingDataSource, routing -> routing.getPoolStatistics().get(statistic))
+                        .tag("statistic", statistic)
+                        .register(registry)));
+        return routingDataSource;
+    }
+
+    /**
+     * DataSource приложения. Ленивый прокси откладывает выбор пула до первого запроса,
+     * когда признак read-only транзакции уже установлен.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.banking.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataSource, направляющий read-only транзакции на реплики, а все остальные запросы на основную базу.
+ * <p>
+ * Реплика, отставание которой превышает допустимое или которая недоступна, исключается из ротации
+ * до следующей успешной проверки. Если здоровых реплик нет, чтение выполняется на основной базе.
+ * Должен использоваться через {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * иначе соединение будет получено до того, как станет известен признак read-only транзакции.
+ *
+ * @author nimatullah
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong primaryConnections = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private ScheduledExecutorService lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, String lagQuery) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new ReplicaPool(entry.getKey(), entry.getValue()))
+                .toList();
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+            primaryConnections.incrementAndGet();
+            return PRIMARY;
+        }
+
+        // Round-robin по здоровым репликам
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            ReplicaPool replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                replica.connections.incrementAndGet();
+                return replica.name;
+            }
+        }
+
+        fallbacks.incrementAndGet();
+        primaryConnections.incrementAndGet();
+        return PRIMARY;
+    }
+
+    /**
+     * Проверяет отставание всех реплик и обновляет их доступность для чтения.
+     */
+    public void checkReplicaLag() {
+        for (ReplicaPool replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                double lagSeconds = resultSet.next() ? resultSet.getDouble(1) : Double.MAX_VALUE;
+                replica.lagMillis = (long) (lagSeconds * 1000);
+                healthy = replica.lagMillis <= maxLag.toMillis();
+            } catch (Exception e) {
+                logger.warn("Replica {} is unavailable: {}", replica.name, e.getMessage());
+                replica.lagMillis = -1;
+                healthy = false;
+            }
+
+            if (healthy != replica.healthy) {
+                logger.warn("Replica {} is now {} (lag {} ms)", replica.name, healthy ? "in rotation" : "out of rotation", replica.lagMillis);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * Запускает периодическую проверку отставания реплик в отдельном фоновом потоке.
+     *
+     * @param interval интервал между проверками.
+     */
+    public synchronized void startLagMonitor(Duration interval) {
+        if (lagMonitor != null || replicas.isEmpty()) {
+            return;
+        }
+        lagMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagMonitor.scheduleWithFixedDelay(this::checkReplicaLag, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает проверку отставания и закрывает пулы реплик.
+     */
+    @Override
+    public synchronized void close() throws Exception {
+        if (lagMonitor != null) {
+            lagMonitor.shutdownNow();
+            lagMonitor = null;
+        }
+        for (ReplicaPool replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /**
+     * @return DataSource реплик по имени пула.
+     */
+    public Map<String, DataSource> getReplicas() {
+        Map<String, DataSource> result = new LinkedHashMap<>();
+        replicas.forEach(replica -> result.put(replica.name, replica.dataSource));
+        return result;
+    }
+
+    /**
+     * @return количество соединений, выданных каждым пулом, и количество переключений чтения на основную базу.
+     */
+    public Map<String, Long> getPoolStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put(PRIMARY + ".connections", primaryConnections.get());
+        statistics.put(PRIMARY + ".fallbacks", fallbacks.get());
+        for (ReplicaPool replica : replicas) {
+            statistics.put(replica.name + ".connections", replica.connections.get());
+            statistics.put(replica.name + ".lagMillis", replica.lagMillis);
+            statistics.put(replica.name + ".healthy", replica.healthy ? 1L : 0L);
+        }
+        return statistics;
+    }
+
+    private static final class ReplicaPool {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicLong connections = new AtomicLong();
+        private volatile boolean healthy = true;
+        private volatile long lagMillis;
+
+        private ReplicaPool(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.banking.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки маршрутизации read-only транзакций на реплики базы данных.
+ *
+ * @author nimatullah
+ */
+@Data
+@ConfigurationProperties(prefix = "banking.datasource.routing")
+public class ReplicaRoutingProperties {
+
+    /**
+     * Включает маршрутизацию. При выключенной маршрутизации используется только основной DataSource.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Максимально допустимое отставание реплики, после которого чтение переключается на основную базу.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /**
+     * Интервал проверки отставания реплик.
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * Запрос, возвращающий отставание реплики в секундах.
+     */
+    private String lagQuery = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.banking.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включение фоновых задач (@Scheduled). Отключается свойством {@code banking.scheduling.enabled=false}.
+ * Начисление процентов дополнительно включается отдельно ({@code banking.interest.enabled}).
+ *
+ * @author nimatullah
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "banking.scheduling", name = "enabled", havingValue = "true")
+public class SchedulingConfig {
+}
@@ -0,0 +1,140 @@
+package com.example.banking.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Конфигурация DataSource с маршрутизацией запросов по шардам.
+ * <p>
+ * Включается свойством {@code banking.datasource.sharding.enabled=true}; не совмещается с маршрутизацией на реплики
+ * ({@link ReplicaRoutingConfig}). Шарды перечисляются списком {@code banking.datasource.sharding.shards}; шард без URL
+ * использует основной пул {@code spring.datasource.*}. Миграции Flyway применяются к каждому шарду, после чего
+ * последовательности ID шарда выравниваются по его первому слоту. Кэш запросов Hibernate при шардировании отключен.
+ *
+ * @author nimatullah
+ */
+@Configuration
+@EnableConfigurationProperties(ShardRoutingProperties.class)
+@ConditionalOnProperty(prefix = "banking.datasource.sharding", name = "enabled", havingValue = "true")
+public class ShardRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRoutingConfig.class);
+
+    /**
+     * Основной пул соединений для шарда без собственного URL. Соединения открываются при первом запросе.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("banking-primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource primaryDataSource, ShardRoutingProperties properties,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        Map<String, List<Integer>> slots = new LinkedHashMap<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardRoutingProperties.Shard shard = properties.getShards().get(i);
+            String name = shard.getName() != null ? shard.getName() : "shard-" + i;
+
+            DataSource dataSource = primaryDataSource;
+            if (shard.getUrl() != null) {
+                HikariDataSource pool = new HikariDataSource();
+                pool.setPoolName("banking-" + name);
+                pool.setJdbcUrl(shard.getUrl());
+                pool.setUsername(shard.getUsername());
+                pool.setPassword(shard.getPassword());
+                pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+                // Пулы шардов не являются бинами, поэтому метрики Hikari подключаются явно
+                meterRegistry.ifAvailable(pool::setMetricRegistry);
+                dataSource = pool;
+            }
+            shards.put(name, dataSource);
+            slots.put(name, parseSlots(shard.getSlots()));
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(shards, properties.getSlots(), slots);
+        logger.info("Routing clients over {} slot(s) to {} shard(s): {}", properties.getSlots(), shards.size(), slots);
+        meterRegistry.ifAvailable(registry -> routingDataSource.getPoolStatistics().keySet().forEach(statistic ->
+                Gauge.builder("banking.datasource.sharding", routingDataSource, routing -> routing.getPoolStatistics().get(statistic))
+                        .tag("statistic", statistic)
+                        .register(registry)));
+        return routingDataSource;
+    }
+
+    /**
+     * DataSource приложения. Шард выбирается при получении соединения, поэтому он задается до начала транзакции.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return shardRoutingDataSource;
+    }
+
+    /**
+     * Отключает кэш запросов Hibernate: он общий для всех шардов, и результат запроса на одном шарде (например, пустой
+     * поиск клиента по логину) возвращался бы для того же запроса на другом. Кэш сущностей по ID остается: ID уникальны
+     * на всех шардах.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardQueryCacheCustomizer() {
+        return properties -> properties.put("hibernate.cache.use_query_cache", "false");
+    }
+
+    /**
+     * Применяет миграции к каждому шарду с настройками автоконфигурации Flyway и выравнивает последовательности ID.
+     */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> shardRoutingDataSource.getShards().forEach((name, dataSource) -> {
+            Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(dataSource)
+                    .load()
+                    .migrate();
+            int homeSlot = shardRoutingDataSource.homeSlot(name);
+            new JdbcTemplate(dataSource).queryForList("SELECT align_shard_sequences(?, ?)", shardRoutingDataSource.getSlots(), homeSlot);
+            logger.info("Shard {} is migrated, new IDs use slot {}", name, homeSlot);
+        });
+    }
+
+    // Слоты шарда: номера и диапазоны "from-to" включительно
+    private static List<Integer> parseSlots(List<String> values) {
+        List<Integer> slots = new ArrayList<>();
+        for (String value : values) {
+            String[] bounds = value.trim().split("-");
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+            for (int slot = from; slot <= to; slot++) {
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+}
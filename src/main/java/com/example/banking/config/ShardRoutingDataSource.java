@@ -0,0 +1,135 @@
+package com.example.banking.config;
+
+import com.example.banking.sharding.ShardContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataSource, направляющий запросы в базу шарда, заданного {@link ShardContext} для текущего потока.
+ * Запросы без шарда выполняются на первом шарде.
+ * <p>
+ * Слот ID равен {@code id mod slots}; каждый слот принадлежит ровно одному шарду. Последовательности ID клиентов,
+ * счетов и транзакций шарда выдают значения первого слота шарда (функция {@code align_shard_sequences}),
+ * поэтому шард клиента определяется по ID без справочной таблицы.
+ *
+ * @author nimatullah
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<String, DataSource> shards;
+    private final Map<String, Integer> homeSlots = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> connections = new LinkedHashMap<>();
+    private final String defaultShard;
+    private final String[] slotOwners;
+
+    /**
+     * @param shards     DataSource шардов по имени; первый шард используется по умолчанию.
+     * @param slots      количество слотов.
+     * @param shardSlots слоты каждого шарда; первый слот шарда — слот ID новых клиентов.
+     * @throws IllegalArgumentException если слот не назначен ни одному шарду или назначен нескольким.
+     */
+    public ShardRoutingDataSource(Map<String, DataSource> shards, int slots, Map<String, List<Integer>> shardSlots) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = new LinkedHashMap<>(shards);
+        this.defaultShard = shards.keySet().iterator().next();
+        this.slotOwners = new String[slots];
+        for (String shard : shards.keySet()) {
+            List<Integer> owned = shardSlots.getOrDefault(shard, List.of());
+            if (owned.isEmpty()) {
+                throw new IllegalArgumentException("Shard " + shard + " has no slots");
+            }
+            for (Integer slot : owned) {
+                if (slot < 0 || slot >= slots) {
+                    throw new IllegalArgumentException("Slot " + slot + " of shard " + shard + " is out of range [0, " + slots + ")");
+                }
+                if (slotOwners[slot] != null) {
+                    throw new IllegalArgumentException("Slot " + slot + " is assigned to shards " + slotOwners[slot] + " and " + shard);
+                }
+                slotOwners[slot] = shard;
+            }
+            homeSlots.put(shard, owned.get(0));
+            connections.put(shard, new AtomicLong());
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            if (slotOwners[slot] == null) {
+                throw new IllegalArgumentException("Slot " + slot + " is not assigned to any shard");
+            }
+        }
+
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(defaultShard));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.current();
+        if (shard == null) {
+            shard = defaultShard;
+        }
+        AtomicLong counter = connections.get(shard);
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+        return shard;
+    }
+
+    /**
+     * @return шард, которому принадлежит слот ID клиента (счета, транзакции).
+     */
+    public String shardOf(long id) {
+        return slotOwners[Math.floorMod(id, slotOwners.length)];
+    }
+
+    /**
+     * @return слот, значения которого выдают последовательности ID шарда.
+     */
+    public int homeSlot(String shard) {
+        return homeSlots.get(shard);
+    }
+
+    public int getSlots() {
+        return slotOwners.length;
+    }
+
+    public String getDefaultShard() {
+        return defaultShard;
+    }
+
+    /**
+     * @return DataSource шардов по имени в порядке конфигурации.
+     */
+    public Map<String, DataSource> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return количество соединений, выданных каждым шардом.
+     */
+    public Map<String, Long> getPoolStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        connections.forEach((shard, counter) -> statistics.put(shard + ".connections", counter.get()));
+        return statistics;
+    }
+
+    /**
+     * Закрывает пулы шардов. Основной пул, если он используется шардом, закрывается повторно без последствий.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : shards.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
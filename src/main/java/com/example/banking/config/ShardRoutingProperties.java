@@ -0,0 +1,51 @@
+package com.example.banking.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки шардирования клиентов и счетов по нескольким базам данных.
+ * <p>
+ * Шард клиента определяется слотом {@code id mod slots}; карта шардов назначает каждому шарду список слотов.
+ * Число слотов задается один раз: при добавлении шарда ему передаются слоты существующих шардов вместе с данными.
+ *
+ * @author nimatullah
+ */
+@Data
+@ConfigurationProperties(prefix = "banking.datasource.sharding")
+public class ShardRoutingProperties {
+
+    /**
+     * Включает шардирование. При выключенном шардировании используется только основной DataSource.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Количество слотов, по которым распределяются ID клиентов.
+     */
+    private int slots = 64;
+
+    /**
+     * Шарды. Первый шард используется для запросов вне контекста клиента (фоновые задачи, поиск).
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String name;
+        /**
+         * URL базы шарда. Шард без URL использует основной DataSource ({@code spring.datasource.*}).
+         */
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+        /**
+         * Слоты шарда: номера и диапазоны, например {@code 0-31,40}. Первый слот используется для ID новых клиентов.
+         */
+        private List<String> slots = new ArrayList<>();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.banking.controller;
+
+import com.example.banking.dto.AccountBalanceDTO;
+import com.example.banking.dto.AccountBalanceRequestDTO;
+import com.example.banking.service.BankAccountService;
+import com.example.banking.service.StatementService;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * @author nimatullah
+ */
+
+@RestController
+@RequestMapping("/api/accounts")
+public class AccountController {
+    private final StatementService statementService;
+    private final BankAccountService bankAccountService;
+
+    public AccountController(StatementService statementService, BankAccountService bankAccountService) {
+        this.statementService = statementService;
+        this.bankAccountService = bankAccountService;
+    }
+
+    // Остатки нескольких счетов по ID счетов и (или) ID клиентов: одна проекция ID и остатков вместо запроса на счет
+    @PostMapping("/balances")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<List<AccountBalanceDTO>> getBalances(@Valid @RequestBody AccountBalanceRequestDTO accountBalanceRequestDTO) {
+        return ResponseEntity.ok(bankAccountService.getBalances(accountBalanceRequestDTO.getAccountIds(), accountBalanceRequestDTO.getClientIds()));
+    }
+
+    // Выписка по счету за месяц (формат месяца: 2024-05)
+    @GetMapping("/{accountId}/statements/{month}")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<StreamingResponseBody> getStatement(
+            @PathVariable Long accountId,
+            @PathVariable YearMonth month
+    ) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(statementService.getStatement(accountId, month));
+    }
+}
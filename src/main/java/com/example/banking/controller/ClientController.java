@@ -2,11 +2,14 @@ package com.example.banking.controller;
 
 import com.example.banking.dto.ClientDTO;
 import com.example.banking.dto.ClientResponseDTO;
+import com.example.banking.dto.ClientViewDTO;
 import com.example.banking.dto.ContactInfoDTO;
 import com.example.banking.dto.DeleteContactDTO;
 import com.example.banking.model.ClientAuthenticationRequest;
 import com.example.banking.service.AuthenticationService;
 import com.example.banking.service.ClientService;
+import com.example.banking.service.ClientViewService;
+import com.example.banking.sharding.ShardRouter;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,11 +33,16 @@ public class ClientController {
     private static final Logger logger = LoggerFactory.getLogger(ClientController.class);
     private final ClientService clientService;
     private final AuthenticationService authenticationService;
+    private final ClientViewService clientViewService;
+    private final ShardRouter shardRouter;
 
     @Autowired
-    public ClientController(ClientService clientService, AuthenticationService authenticationService) {
+    public ClientController(ClientService clientService, AuthenticationService authenticationService, ClientViewService clientViewService,
+                            ShardRouter shardRouter) {
         this.clientService = clientService;
         this.authenticationService = authenticationService;
+        this.clientViewService = clientViewService;
+        this.shardRouter = shardRouter;
     }
 
     // Создание клиента
@@ -56,6 +64,13 @@ public class ClientController {
     }
 
 
+    // Профиль клиента с балансом и последними переводами из модели чтения
+    @GetMapping("/{clientId}/view")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<ClientViewDTO> getClientView(@PathVariable Long clientId) {
+        return ResponseEntity.ok(shardRouter.onClientShard(clientId, () -> clientViewService.getView(clientId)));
+    }
+
     // Обновление контактной информации клиента
     @PutMapping("/{clientId}/contact")
     @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
@@ -68,11 +83,12 @@ public class ClientController {
     @DeleteMapping("/{clientId}/contact")
     @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
     public ResponseEntity<?> deleteClientContactInfo(@PathVariable("clientId") Long clientId, @RequestBody DeleteContactDTO deleteContactDTO) {
-        ClientResponseDTO client = clientService.deleteClientContactInfo(clientId, deleteContactDTO.isDeletePhoneNumber(), deleteContactDTO.isDeleteEmail());
+        ClientResponseDTO client = shardRouter.onClientShard(clientId,
+                () -> clientService.deleteClientContactInfo(clientId, deleteContactDTO.isDeletePhoneNumber(), deleteContactDTO.isDeleteEmail()));
         return ResponseEntity.ok(client);
     }
 
-    // Поиск клиентов
+    // Поиск клиентов (при шардировании опрашиваются все шарды)
     @GetMapping
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> searchClients(
@@ -1,17 +1,25 @@
 package com.example.banking.controller;
 
+import com.example.banking.dto.ScheduledTransferDTO;
+import com.example.banking.dto.ScheduledTransferResponseDTO;
 import com.example.banking.dto.TransactionDTO;
+import com.example.banking.dto.TransactionResponseDTO;
+import com.example.banking.service.ScheduledTransferService;
+import com.example.banking.service.ShardedTransferService;
 import com.example.banking.service.TransactionService;
+import com.example.banking.sharding.ShardRouter;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
 
 /**
  * @author nimatullah
@@ -22,20 +30,65 @@ import org.springframework.web.bind.annotation.RestController;
 public class TransactionController {
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
     private final TransactionService transactionService;
+    private final ScheduledTransferService scheduledTransferService;
+    private final ShardedTransferService shardedTransferService;
+    private final ShardRouter shardRouter;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, ScheduledTransferService scheduledTransferService,
+                                 ShardedTransferService shardedTransferService, ShardRouter shardRouter) {
         this.transactionService = transactionService;
+        this.scheduledTransferService = scheduledTransferService;
+        this.shardedTransferService = shardedTransferService;
+        this.shardRouter = shardRouter;
     }
 
-    // Создание транзакции
+    // Создание транзакции: на шарде счетов или сагой, если счета на разных шардах
     @PostMapping
     @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
     public ResponseEntity<String> createTransaction(@Valid @RequestBody TransactionDTO transactionDTO) {
         try {
-            return transactionService.transfer(transactionDTO);
+            return shardedTransferService.transfer(transactionDTO);
         } catch (Exception e) {
             logger.error("Error creating transaction", e);
             return new ResponseEntity<>("Error creating transaction", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    // История операций счета клиента за период (по умолчанию за последний месяц)
+    @GetMapping("/history/{clientId}")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<?> getHistory(
+            @PathVariable Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        LocalDate periodEnd = to != null ? to : LocalDate.now();
+        LocalDate periodStart = from != null ? from : periodEnd.minusMonths(1);
+        Page<TransactionResponseDTO> history = shardRouter.onClientShard(clientId,
+                () -> transactionService.getHistory(clientId, periodStart, periodEnd, page, size));
+        return ResponseEntity.ok(history.getContent());
+    }
+
+    // Создание отложенного или периодического перевода со счета текущего пользователя
+    @PostMapping("/scheduled")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<ScheduledTransferResponseDTO> createScheduledTransfer(@Valid @RequestBody ScheduledTransferDTO scheduledTransferDTO) {
+        return new ResponseEntity<>(scheduledTransferService.create(scheduledTransferDTO), HttpStatus.CREATED);
+    }
+
+    // Отложенные переводы текущего пользователя
+    @GetMapping("/scheduled")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<List<ScheduledTransferResponseDTO>> getScheduledTransfers() {
+        return ResponseEntity.ok(scheduledTransferService.list());
+    }
+
+    // Отмена отложенного перевода
+    @DeleteMapping("/scheduled/{id}")
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<ScheduledTransferResponseDTO> cancelScheduledTransfer(@PathVariable Long id) {
+        return ResponseEntity.ok(scheduledTransferService.cancel(id));
+    }
 }
@@ -0,0 +1,23 @@
+package com.example.banking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * @author nimatullah
+ */
+
+/**
+ * Data Transfer Object (DTO) остатка счета. Заполняется запросом напрямую, без загрузки счета и клиента.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceDTO {
+    private Long accountId;
+    private Long clientId;
+    private BigDecimal balance;
+}
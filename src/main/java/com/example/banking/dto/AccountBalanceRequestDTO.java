@@ -0,0 +1,26 @@
+package com.example.banking.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author nimatullah
+ */
+
+/**
+ * Data Transfer Object (DTO) запроса остатков нескольких счетов по ID счетов и (или) ID клиентов.
+ */
+@Data
+public class AccountBalanceRequestDTO {
+    @NotNull
+    @Size(max = 1000)
+    private List<@NotNull Long> accountIds = new ArrayList<>();
+
+    @NotNull
+    @Size(max = 1000)
+    private List<@NotNull Long> clientIds = new ArrayList<>();
+}
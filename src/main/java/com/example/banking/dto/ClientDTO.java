@@ -1,6 +1,7 @@
 package com.example.banking.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -24,6 +25,7 @@ public class ClientDTO {
 
     @NotNull
     @Positive
+    @Digits(integer = 36, fraction = 2)
     private BigDecimal initialBalance;
 
     @NotBlank
@@ -0,0 +1,31 @@
+package com.example.banking.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @author nimatullah
+ */
+
+/**
+ * Data Transfer Object (DTO) профиля клиента из модели чтения: профиль, баланс и последние переводы.
+ * {@code version} — номер события outbox, до которого включительно учтены изменения клиента.
+ */
+@Data
+public class ClientViewDTO {
+    private Long id;
+    private String fullName;
+    private String phoneNumber;
+    private String email;
+    private String birthDate;
+    private Long accountId;
+    private BigDecimal balance;
+    // Хранится в модели чтения готовым JSON и отдается без разбора
+    @JsonRawValue
+    private String recentTransactions;
+    private Long version;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.example.banking.dto;
+
+import com.example.banking.model.ScheduledTransferRecurrence;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @author nimatullah
+ */
+
+@Data
+public class ScheduledTransferDTO {
+    @NotNull
+    private Long fromAccountId;
+
+    @NotNull
+    private Long toAccountId;
+
+    @NotNull
+    @Positive
+    @Digits(integer = 36, fraction = 2)
+    private BigDecimal amount;
+
+    // Первый срок перевода
+    @NotNull
+    @Future
+    private LocalDateTime runAt;
+
+    private ScheduledTransferRecurrence recurrence = ScheduledTransferRecurrence.ONCE;
+
+    // Для периодического перевода: сроки после этого момента не выполняются
+    private LocalDateTime endsAt;
+}
@@ -0,0 +1,31 @@
+package com.example.banking.dto;
+
+import com.example.banking.model.ScheduledTransferRecurrence;
+import com.example.banking.model.ScheduledTransferStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @author nimatullah
+ */
+
+/**
+ * Data Transfer Object (DTO) для представления отложенного перевода.
+ */
+@Data
+public class ScheduledTransferResponseDTO {
+    private Long id;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private ScheduledTransferRecurrence recurrence;
+    private LocalDateTime nextRunAt;
+    private LocalDateTime endsAt;
+    private ScheduledTransferStatus status;
+    private int runs;
+    private int failures;
+    private LocalDateTime lastRunAt;
+    private String lastError;
+}
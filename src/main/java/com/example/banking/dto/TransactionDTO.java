@@ -1,5 +1,6 @@
 package com.example.banking.dto;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
@@ -20,5 +21,6 @@ public class TransactionDTO {
 
     @NotNull
     @Positive
+    @Digits(integer = 36, fraction = 2)
     private BigDecimal amount;
 }
@@ -0,0 +1,26 @@
+package com.example.banking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @author nimatullah
+ */
+
+/**
+ * Data Transfer Object (DTO) для представления транзакции в истории операций счета.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionResponseDTO {
+    private Long id;
+    private Long fromAccountId;
+    private Long toAccountId;
+    private BigDecimal amount;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,16 @@
+package com.example.banking.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * @author nimatullah
+ */
+
+// Исключение при превышении суточного лимита списаний со счета
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class DailyLimitException extends BalanceException {
+    public DailyLimitException(String message) {
+        super(message);
+    }
+}
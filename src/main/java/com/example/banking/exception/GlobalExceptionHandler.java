@@ -1,6 +1,7 @@
 package com.example.banking.exception;
 
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ProblemDetail;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.security.SignatureException;
+import java.time.Duration;
 
 /**
  * @author nimatullah
@@ -39,6 +41,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<String> handleTooManyRequestsException(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(e.getMessage());
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<String> handleServiceOverloadedException(ServiceOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()))
+                .body(e.getMessage());
+    }
+
     /**
      * Обработчик исключений, обрабатывающий общие исключения и преобразующий их в детализированные HTTP ответы.
      */
@@ -83,4 +99,9 @@ public class GlobalExceptionHandler {
 
         return errorDetail;
     }
+
+    // Заголовок Retry-After задается в целых секундах, округление вверх
+    private static String retryAfterSeconds(Duration retryAfter) {
+        return String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
 }
@@ -0,0 +1,18 @@
+package com.example.banking.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+/**
+ * @author nimatullah
+ */
+
+// Исключение при превышении лимитов количества или суммы переводов счета за окно
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class VelocityLimitException extends TooManyRequestsException {
+    public VelocityLimitException(String message, Duration retryAfter) {
+        super(message, retryAfter);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.banking.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики горячих путей приложения: перевод средств, начисление процентов, JWT-фильтр.
+ * <p>
+ * Таймеры публикуют гистограмму с ограниченным набором бакетов, по которой p99 вычисляется на стороне Prometheus.
+ * Все метрики регистрируются один раз при создании компонента, чтобы не обращаться к реестру на каждом запросе.
+ *
+ * @author nimatullah
+ */
+@Component
+public class BankingMetrics {
+
+    public static final String LOCK_WAIT = "lock_wait";
+    public static final String DB_WRITE = "db_write";
+    public static final String COMMIT = "commit";
+
+    /**
+     * Признак синтетических вызовов (прогрев JIT), которые не должны попадать в метрики переводов.
+     */
+    private static final ThreadLocal<Boolean> SUPPRESSED = ThreadLocal.withInitial(() -> false);
+
+    private final MeterRegistry registry;
+    private final Timer transferCommitted;
+    private final Timer transferRolledBack;
+    private final Map<String, Timer> transferPhases = new ConcurrentHashMap<>();
+    private final Map<String, Counter> transferRejections = new ConcurrentHashMap<>();
+    private final Timer interestUpdate;
+    private final Counter interestAccounts;
+    private final Timer jwtFilter;
+
+    public BankingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.transferCommitted = histogram("banking.transfer", "Полное время перевода, включая фиксацию транзакции")
+                .tag("outcome", "committed").register(registry);
+        this.transferRolledBack = histogram("banking.transfer", "Полное время перевода, включая фиксацию транзакции")
+                .tag("outcome", "rolled_back").register(registry);
+        for (String phase : new String[]{LOCK_WAIT, DB_WRITE, COMMIT}) {
+            transferPhases.put(phase, histogram("banking.transfer.phase", "Время этапа перевода")
+                    .tag("phase", phase).register(registry));
+        }
+        this.interestUpdate = histogram("banking.interest.update", "Длительность начисления процентов по всем счетам")
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(registry);
+        this.interestAccounts = Counter.builder("banking.interest.accounts")
+                .description("Количество счетов, обработанных при начислении процентов")
+                .register(registry);
+        this.jwtFilter = histogram("banking.jwt.filter", "Время проверки JWT и загрузки пользователя в фильтре")
+                .register(registry);
+    }
+
+    /**
+     * @return начало измерения в наносекундах.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Выполняет действие в текущем потоке, не записывая метрики переводов.
+     */
+    public void withoutRecording(Runnable action) {
+        SUPPRESSED.set(true);
+        try {
+            action.run();
+        } finally {
+            SUPPRESSED.remove();
+        }
+    }
+
+    public void recordTransferPhase(String phase, long startNanos) {
+        if (SUPPRESSED.get()) {
+            return;
+        }
+        transferPhases.get(phase).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Записывает время фиксации и полное время перевода по завершении текущей транзакции.
+     *
+     * @param transferStartNanos начало перевода.
+     */
+    public void recordTransferCompletion(long transferStartNanos) {
+        if (SUPPRESSED.get()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStart;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                long now = System.nanoTime();
+                if (status == STATUS_COMMITTED) {
+                    transferPhases.get(COMMIT).record(now - commitStart, TimeUnit.NANOSECONDS);
+                    RequestTiming.record(RequestTiming.COMMIT, commitStart);
+                    transferCommitted.record(now - transferStartNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    transferRolledBack.record(now - transferStartNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Учитывает отклоненный перевод.
+     *
+     * @param reason причина отказа, например {@code insufficient_balance} или {@code unknown_account}.
+     */
+    public void transferRejected(String reason) {
+        if (SUPPRESSED.get()) {
+            return;
+        }
+        transferRejections.computeIfAbsent(reason, key -> Counter.builder("banking.transfer.rejected")
+                        .description("Количество отклоненных переводов по причинам")
+                        .tag("reason", key)
+                        .register(registry))
+                .increment();
+    }
+
+    public void recordInterestUpdate(long startNanos, int accounts) {
+        interestUpdate.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        interestAccounts.increment(accounts);
+    }
+
+    public void recordJwtFilter(long startNanos) {
+        jwtFilter.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer.Builder histogram(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10));
+    }
+}
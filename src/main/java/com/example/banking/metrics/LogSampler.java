@@ -0,0 +1,25 @@
+package com.example.banking.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выборка для журналирования на горячих путях: пропускает одно сообщение из {@code rate}.
+ *
+ * @author nimatullah
+ */
+public final class LogSampler {
+
+    private final long rate;
+    private final AtomicLong counter = new AtomicLong();
+
+    public LogSampler(long rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return true для каждого {@code rate}-го вызова, начиная с первого.
+     */
+    public boolean sample() {
+        return counter.getAndIncrement() % rate == 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.banking.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбивка времени обработки текущего HTTP-запроса по этапам.
+ * <p>
+ * Экземпляр создается {@link RequestTimingFilter} и привязывается к потоку запроса. Вне запроса
+ * (или при выключенном профилировании) все статические методы ничего не делают, поэтому их можно
+ * вызывать из сервисов и репозиториев без проверок.
+ *
+ * @author nimatullah
+ */
+public final class RequestTiming {
+
+    public static final String FILTER = "filter";
+    public static final String AUTH = "auth";
+    public static final String SERVICE = "service";
+    public static final String REPOSITORY = "repo";
+    public static final String COMMIT = "commit";
+    public static final String SERIALIZATION = "serialization";
+
+    /**
+     * Ограничение на количество этапов одного запроса, чтобы массовые операции не раздували запись.
+     */
+    private static final int MAX_PHASES = 64;
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private int droppedPhases;
+    private long handlerStartNanos;
+    private long serializationStartNanos;
+
+    /**
+     * Этап обработки запроса.
+     *
+     * @param name        имя этапа ({@code filter}, {@code auth}, {@code repo} и т.д.).
+     * @param description уточнение, например метод репозитория; может быть null.
+     * @param millis      длительность в миллисекундах.
+     */
+    public record Phase(String name, String description, double millis) {
+    }
+
+    private RequestTiming() {
+    }
+
+    /**
+     * @return начало измерения в наносекундах.
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public static void record(String name, long startNanos) {
+        record(name, null, startNanos);
+    }
+
+    /**
+     * Добавляет этап, начавшийся в {@code startNanos} и закончившийся сейчас.
+     */
+    public static void record(String name, String description, long startNanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(name, description, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @return разбивка текущего запроса или null вне запроса.
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    static RequestTiming begin() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Отмечает вход в обработчик контроллера.
+     */
+    void handlerStarted() {
+        handlerStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Отмечает конец работы обработчика и начало записи тела ответа.
+     */
+    void serializationStarted() {
+        long now = System.nanoTime();
+        if (handlerStartNanos != 0) {
+            add(SERVICE, null, now - handlerStartNanos);
+            handlerStartNanos = 0;
+        }
+        serializationStartNanos = now;
+    }
+
+    /**
+     * Завершает измерение: закрывает незавершенные этапы обработчика и сериализации.
+     *
+     * @return полное время обработки запроса в наносекундах.
+     */
+    long finish() {
+        long now = System.nanoTime();
+        if (handlerStartNanos != 0) {
+            add(SERVICE, null, now - handlerStartNanos);
+            handlerStartNanos = 0;
+        }
+        if (serializationStartNanos != 0) {
+            add(SERIALIZATION, null, now - serializationStartNanos);
+            serializationStartNanos = 0;
+        }
+        return now - startNanos;
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public int getDroppedPhases() {
+        return droppedPhases;
+    }
+
+    /**
+     * Формирует значение заголовка {@code Server-Timing}.
+     *
+     * @param totalNanos полное время обработки запроса.
+     */
+    String toServerTimingHeader(long totalNanos) {
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : phases) {
+            header.append(phase.name()).append(";dur=").append(format(phase.millis()));
+            if (phase.description() != null) {
+                header.append(";desc=\"").append(phase.description().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(format(totalNanos / 1_000_000.0)).toString();
+    }
+
+    private void add(String name, String description, long nanos) {
+        if (phases.size() < MAX_PHASES) {
+            phases.add(new Phase(name, description, nanos / 1_000_000.0));
+        } else {
+            droppedPhases++;
+        }
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.banking.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Подключение разбивки запросов по этапам: перехватчик обработчиков и замер каждого вызова репозитория.
+ *
+ * @author nimatullah
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "banking.request-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestTimingConfig implements WebMvcConfigurer {
+
+    private final HandlerTimingAdvice handlerTimingAdvice;
+
+    public RequestTimingConfig(HandlerTimingAdvice handlerTimingAdvice) {
+        this.handlerTimingAdvice = handlerTimingAdvice;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(handlerTimingAdvice);
+    }
+
+    /**
+     * Добавляет в прокси каждого репозитория Spring Data перехватчик, записывающий этап {@code repo}
+     * с именем вызванного метода.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                                    repositoryTiming(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor repositoryTiming(String repositoryName) {
+        return invocation -> {
+            if (RequestTiming.current() == null) {
+                return invocation.proceed();
+            }
+            long start = RequestTiming.start();
+            try {
+                return invocation.proceed();
+            } finally {
+                RequestTiming.record(RequestTiming.REPOSITORY, repositoryName + "." + invocation.getMethod().getName(), start);
+            }
+        };
+    }
+}
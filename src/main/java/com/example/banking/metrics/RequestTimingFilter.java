@@ -0,0 +1,66 @@
+package com.example.banking.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Фильтр, измеряющий этапы обработки каждого запроса.
+ * <p>
+ * Стоит перед цепочкой Spring Security, поэтому учитывает и JWT-фильтр. При
+ * {@code banking.request-timing.server-timing-header=true} добавляет заголовок {@code Server-Timing}; для этого тело
+ * ответа буферизуется, чтобы заголовок можно было выставить после сериализации. Запросы дольше
+ * {@code banking.request-timing.slow-threshold} сохраняются в {@link SlowRequestLog}.
+ *
+ * @author nimatullah
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "banking.request-timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final SlowRequestLog slowRequestLog;
+    private final boolean serverTimingHeader;
+    private final long slowThresholdNanos;
+
+    public RequestTimingFilter(SlowRequestLog slowRequestLog,
+                               @Value("${banking.request-timing.server-timing-header:false}") boolean serverTimingHeader,
+                               @Value("${banking.request-timing.slow-threshold:500ms}") Duration slowThreshold) {
+        this.slowRequestLog = slowRequestLog;
+        this.serverTimingHeader = serverTimingHeader;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.begin();
+        ContentCachingResponseWrapper bufferedResponse = serverTimingHeader ? new ContentCachingResponseWrapper(response) : null;
+        try {
+            filterChain.doFilter(request, bufferedResponse != null ? bufferedResponse : response);
+        } finally {
+            long totalNanos = timing.finish();
+            RequestTiming.clear();
+            if (bufferedResponse != null) {
+                bufferedResponse.setHeader("Server-Timing", timing.toServerTimingHeader(totalNanos));
+                bufferedResponse.copyBodyToResponse();
+            }
+            if (totalNanos >= slowThresholdNanos) {
+                slowRequestLog.capture(new SlowRequestLog.SlowRequest(Instant.now(), request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), totalNanos / 1_000_000.0, timing.getPhases(), timing.getDroppedPhases()));
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.banking.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Служебный эндпоинт {@code /actuator/slowrequests} с разбивкой последних медленных запросов по этапам.
+ * Доступ только с ролью {@code ADMIN}, которую получают пользователи из {@code banking.security.admin-usernames}.
+ *
+ * @author nimatullah
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestEndpoint {
+
+    private final SlowRequestLog slowRequestLog;
+
+    public SlowRequestEndpoint(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @ReadOperation
+    public List<SlowRequestLog.SlowRequest> slowRequests() {
+        return slowRequestLog.snapshot();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        slowRequestLog.clear();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.banking.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный кольцевой буфер с разбивкой медленных запросов по этапам.
+ * <p>
+ * Новые записи перезаписывают самые старые; запись не блокирует потоки запросов.
+ *
+ * @author nimatullah
+ */
+@Component
+public class SlowRequestLog {
+
+    private final AtomicReferenceArray<SlowRequest> entries;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Медленный запрос.
+     *
+     * @param timestamp     время завершения запроса.
+     * @param method        HTTP-метод.
+     * @param uri           путь запроса без параметров.
+     * @param status        код ответа.
+     * @param totalMillis   полное время обработки.
+     * @param phases        этапы обработки.
+     * @param droppedPhases количество этапов сверх лимита, не попавших в запись.
+     */
+    public record SlowRequest(Instant timestamp, String method, String uri, int status, double totalMillis,
+                              List<RequestTiming.Phase> phases, int droppedPhases) {
+    }
+
+    public SlowRequestLog(@Value("${banking.request-timing.slow-capacity:100}") int capacity) {
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void capture(SlowRequest request) {
+        long position = sequence.getAndIncrement();
+        entries.set((int) (position % entries.length()), request);
+    }
+
+    /**
+     * @return сохраненные запросы, начиная с самого нового.
+     */
+    public List<SlowRequest> snapshot() {
+        long end = sequence.get();
+        long begin = Math.max(0, end - entries.length());
+        List<SlowRequest> result = new ArrayList<>();
+        for (long position = end - 1; position >= begin; position--) {
+            SlowRequest request = entries.get((int) (position % entries.length()));
+            if (request != null) {
+                result.add(request);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+}
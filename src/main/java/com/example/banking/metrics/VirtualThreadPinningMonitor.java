@@ -0,0 +1,111 @@
+package com.example.banking.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Обнаружение закрепления виртуальных потоков за потоком-носителем (pinning).
+ * <p>
+ * Подписывается на событие JFR {@code jdk.VirtualThreadPinned} и публикует таймер
+ * {@code banking.virtualthreads.pinned} с тегом {@code source}: {@code jdbc} (драйвер PostgreSQL),
+ * {@code pool} (HikariCP), {@code hibernate}, {@code application} или {@code other}. Стек закрепления
+ * выборочно пишется в лог.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "spring.threads.virtual", name = "enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+    private static final Map<String, String> SOURCES = Map.of(
+            "org.postgresql.", "jdbc",
+            "com.zaxxer.hikari.", "pool",
+            "org.hibernate.", "hibernate",
+            "com.example.banking.", "application");
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final LogSampler logSampler = new LogSampler(100);
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${banking.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        logger.info("Virtual thread pinning monitor started, threshold {}", threshold);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = frames(event.getStackTrace());
+        String source = source(frames);
+        timers.computeIfAbsent(source, key -> Timer.builder("banking.virtualthreads.pinned")
+                        .description("Время закрепления виртуальных потоков за потоком-носителем")
+                        .tag("source", key)
+                        .register(meterRegistry))
+                .record(event.getDuration());
+        if (logSampler.sample()) {
+            logger.warn("Virtual thread pinned for {} ms ({}):\n\t{}", event.getDuration().toMillis(), source,
+                    frames.stream().limit(LOGGED_FRAMES).map(VirtualThreadPinningMonitor::format).collect(Collectors.joining("\n\t")));
+        }
+    }
+
+    /**
+     * Определяет источник закрепления по первому кадру стека из известных библиотек.
+     */
+    static String source(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String className = frame.getMethod().getType().getName();
+            for (Map.Entry<String, String> entry : SOURCES.entrySet()) {
+                if (className.startsWith(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return "other";
+    }
+
+    private static List<RecordedFrame> frames(RecordedStackTrace stackTrace) {
+        return stackTrace == null ? List.of() : stackTrace.getFrames();
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.banking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Итоги счета за месяц: остаток на начало, поступления и списания.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "account_monthly_rollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountMonthlyRollup {
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+
+        // Первое число месяца
+        @Column(name = "month_start")
+        private LocalDate month;
+    }
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private BigDecimal openingBalance;
+
+    @Column(nullable = false)
+    private BigDecimal totalIn;
+
+    @Column(nullable = false)
+    private BigDecimal totalOut;
+
+    @Column(nullable = false)
+    private int postings;
+
+    // Последняя учтенная проводка счета
+    @Column(nullable = false)
+    private Long lastPostingId;
+
+    public BigDecimal getClosingBalance() {
+        return openingBalance.add(totalIn).subtract(totalOut);
+    }
+}
@@ -3,7 +3,11 @@ package com.example.banking.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 
@@ -12,10 +16,18 @@ import java.math.BigDecimal;
  */
 
 @Entity
+@NamedEntityGraph(name = BankAccount.WITH_CLIENT, attributeNodes = @NamedAttributeNode("client"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bankAccount")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class BankAccount {
+    /**
+     * Счет вместе с клиентом одним запросом — для проверки владельца счета.
+     */
+    public static final String WITH_CLIENT = "BankAccount.client";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,7 +38,13 @@ public class BankAccount {
     @Column(nullable = false)
     private BigDecimal balance;
 
-    @OneToOne
+    // Клиент (с хешем пароля) загружается только при обращении или по графу WITH_CLIENT
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "clientId", nullable = false, unique = true)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Client client;
+
+    // Лимит списаний за сутки; null — banking.daily-limit.default
+    private BigDecimal dailyDebitLimit;
 }
@@ -0,0 +1,54 @@
+package com.example.banking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Строка модели чтения профиля клиента: профиль, баланс счета и последние переводы. Изменяется только
+ * получателем outbox, приложение ее только читает.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "client_view")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClientView {
+    @Id
+    private Long clientId;
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    private String fullName;
+
+    private String phoneNumber;
+
+    private String email;
+
+    private String birthDate;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    // Последние переводы счета в JSON, от новых к старым
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String recentTransactions;
+
+    // Номер последнего события outbox, примененного к строке
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,44 @@
+package com.example.banking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Часть суточного лимита списаний счета, выданная экземплярам приложения за день.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "daily_debit_usage")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyDebitUsage {
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+
+        private LocalDate usageDate;
+    }
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private BigDecimal reserved;
+}
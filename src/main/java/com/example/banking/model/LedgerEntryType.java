@@ -0,0 +1,17 @@
+package com.example.banking.model;
+
+/**
+ * Вид проводки журнала.
+ *
+ * @author nimatullah
+ */
+public enum LedgerEntryType {
+    // Начальный взнос при открытии счета
+    OPENING,
+    // Списание со счета отправителя перевода (сумма отрицательная)
+    DEBIT,
+    // Зачисление на счет получателя перевода
+    CREDIT,
+    // Начисление процентов
+    INTEREST
+}
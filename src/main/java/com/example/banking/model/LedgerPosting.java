@@ -0,0 +1,44 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Проводка журнала двойной записи. Проводки только добавляются и никогда не изменяются.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "ledger_posting")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerPosting {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "accountId", nullable = false, updatable = false)
+    private BankAccount account;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 32)
+    private LedgerEntryType type;
+
+    // Положительная сумма увеличивает остаток, отрицательная уменьшает
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Column(updatable = false)
+    private Long transactionId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,37 @@
+package com.example.banking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Снимок остатка счета: сумма всех проводок счета с id не больше {@code lastPostingId}.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "ledger_snapshot")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerSnapshot {
+    @Id
+    private Long accountId;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private Long lastPostingId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
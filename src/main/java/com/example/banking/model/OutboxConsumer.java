@@ -0,0 +1,40 @@
+package com.example.banking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Позиция получателя событий outbox: все события с id не больше {@code lastEventId} ему доставлены.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "outbox_consumer")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxConsumer {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private long lastEventId;
+
+    @Column(nullable = false)
+    private long delivered;
+
+    // Ошибка последней неудачной доставки; сбрасывается после успешной
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие транзакционного outbox. Записывается в транзакции, изменяющей данные, и только добавляется.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "outbox_event")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 32)
+    private OutboxEventType type;
+
+    // null — событие относится ко всем счетам
+    @Column(updatable = false)
+    private Long aggregateId;
+
+    // Параметры события в JSON
+    @Column(nullable = false, updatable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
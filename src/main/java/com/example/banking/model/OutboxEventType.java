@@ -0,0 +1,19 @@
+package com.example.banking.model;
+
+/**
+ * Тип события outbox.
+ *
+ * @author nimatullah
+ */
+public enum OutboxEventType {
+    // Перевод зафиксирован (агрегат — ID транзакции)
+    TRANSFER_COMPLETED,
+    // Межшардовый перевод зачислен на шарде получателя (агрегат — ID перевода)
+    TRANSFER_CREDITED,
+    // Зарегистрирован клиент и открыт его счет (агрегат — ID клиента)
+    CLIENT_REGISTERED,
+    // Изменены или удалены контакты клиента (агрегат — ID клиента)
+    CONTACT_CHANGED,
+    // Начислены проценты по всем счетам (без агрегата)
+    INTEREST_ACCRUED
+}
@@ -0,0 +1,55 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Расхождение остатка счета с журналом, найденное сверкой. Суммы проводок по видам сохраняются для разбора.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "reconciliation_discrepancy")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationDiscrepancy {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long runId;
+
+    @Column(nullable = false, updatable = false)
+    private Long accountId;
+
+    // Остаток счета (bank_account.balance)
+    @Column(nullable = false, updatable = false)
+    private BigDecimal balance;
+
+    // Остаток по журналу: opening + credits - debits + interest
+    @Column(nullable = false, updatable = false)
+    private BigDecimal expected;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal initialBalance;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal opening;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal credits;
+
+    // Сумма списаний, положительная
+    @Column(nullable = false, updatable = false)
+    private BigDecimal debits;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal interest;
+}
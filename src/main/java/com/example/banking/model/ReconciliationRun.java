@@ -0,0 +1,41 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запуск сверки остатков счетов с журналом проводок.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "reconciliation_run")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ReconciliationStatus status;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    // Сверенные счета
+    @Column(nullable = false)
+    private long accounts;
+
+    @Column(nullable = false)
+    private long discrepancies;
+}
@@ -0,0 +1,15 @@
+package com.example.banking.model;
+
+/**
+ * Состояние запуска сверки остатков с журналом.
+ *
+ * @author nimatullah
+ */
+public enum ReconciliationStatus {
+    // Выполняется
+    RUNNING,
+    // Все счета сверены
+    COMPLETED,
+    // Прервана ошибкой или не завершилась за banking.reconciliation.max-duration
+    FAILED
+}
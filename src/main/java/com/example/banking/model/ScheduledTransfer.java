@@ -0,0 +1,71 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Отложенный или периодический перевод.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "scheduled_transfer")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledTransfer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Имя пользователя, от имени которого выполняется перевод
+    @Column(nullable = false, updatable = false)
+    private String owner;
+
+    @Column(nullable = false, updatable = false)
+    private Long fromAccountId;
+
+    @Column(nullable = false, updatable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 16)
+    private ScheduledTransferRecurrence recurrence;
+
+    @Column(nullable = false)
+    private LocalDateTime nextRunAt;
+
+    private LocalDateTime endsAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ScheduledTransferStatus status;
+
+    @Column(nullable = false)
+    private int runs;
+
+    @Column(nullable = false)
+    private int failures;
+
+    private LocalDateTime lastRunAt;
+
+    private String lastError;
+
+    // Экземпляр приложения, загрузивший перевод в колесо таймеров, и срок действия захвата
+    @Column(length = 64)
+    private String claimedBy;
+
+    private LocalDateTime claimedUntil;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,27 @@
+package com.example.banking.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Периодичность отложенного перевода.
+ *
+ * @author nimatullah
+ */
+public enum ScheduledTransferRecurrence {
+    ONCE,
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    /**
+     * Следующий срок после {@code runAt} или null для разового перевода.
+     */
+    public LocalDateTime next(LocalDateTime runAt) {
+        return switch (this) {
+            case ONCE -> null;
+            case DAILY -> runAt.plusDays(1);
+            case WEEKLY -> runAt.plusWeeks(1);
+            case MONTHLY -> runAt.plusMonths(1);
+        };
+    }
+}
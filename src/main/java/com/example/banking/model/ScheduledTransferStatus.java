@@ -0,0 +1,17 @@
+package com.example.banking.model;
+
+/**
+ * Состояние отложенного перевода.
+ *
+ * @author nimatullah
+ */
+public enum ScheduledTransferStatus {
+    // Ожидает следующего срока
+    ACTIVE,
+    // Все сроки выполнены
+    COMPLETED,
+    // Отменен клиентом
+    CANCELLED,
+    // Разовый перевод не выполнен (недостаточно средств, счет не найден)
+    FAILED
+}
@@ -3,7 +3,9 @@ package com.example.banking.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -21,12 +23,17 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    // Счета загружаются только при обращении; история читает их ID из внешних ключей проекцией
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fromAccountId", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private BankAccount fromAccount;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "toAccountId", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private BankAccount toAccount;
 
     @Column(nullable = false)
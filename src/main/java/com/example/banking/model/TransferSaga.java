@@ -0,0 +1,46 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Межшардовый перевод на шарде отправителя. ID выдается последовательностью транзакций шарда
+ * и записывается в проводки перевода на обоих шардах.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "transfer_saga")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferSaga {
+    @Id
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long fromAccountId;
+
+    // Счет на другом шарде
+    @Column(nullable = false, updatable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TransferSagaStatus status;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
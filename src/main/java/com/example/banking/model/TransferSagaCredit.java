@@ -0,0 +1,42 @@
+package com.example.banking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Итог зачисления межшардового перевода на шарде получателя. Строка вставляется в транзакции зачисления,
+ * поэтому повторный шаг саги видит результат первого и не зачисляет сумму второй раз.
+ *
+ * @author nimatullah
+ */
+
+@Entity
+@Table(name = "transfer_saga_credit")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferSagaCredit {
+    @Id
+    private Long sagaId;
+
+    @Column(nullable = false, updatable = false)
+    private Long fromAccountId;
+
+    @Column(nullable = false, updatable = false)
+    private Long toAccountId;
+
+    @Column(nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    // false — счета получателя нет, отправителю нужна компенсация
+    @Column(nullable = false, updatable = false)
+    private boolean credited;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,15 @@
+package com.example.banking.model;
+
+/**
+ * Состояние межшардового перевода.
+ *
+ * @author nimatullah
+ */
+public enum TransferSagaStatus {
+    // Сумма списана на шарде отправителя, зачисление на шарде получателя не подтверждено
+    DEBITED,
+    // Сумма зачислена получателю
+    COMPLETED,
+    // Получатель отклонил зачисление, сумма возвращена отправителю компенсирующей проводкой
+    COMPENSATED
+}
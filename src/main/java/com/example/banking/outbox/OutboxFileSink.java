@@ -0,0 +1,59 @@
+package com.example.banking.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Получатель, записывающий события outbox в файл {@code outbox-yyyy-MM-dd.jsonl} (по одной JSON-строке на событие)
+ * для внешних потребителей. Файл открывается и сбрасывается один раз на пачку; при ошибке записи пачка
+ * доставляется повторно, поэтому строки могут повторяться и читатель отбрасывает их по {@code id}.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.outbox.file-sink", name = "enabled", havingValue = "true")
+public class OutboxFileSink implements OutboxListener {
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    public OutboxFileSink(ObjectMapper objectMapper,
+                          @Value("${banking.outbox.file-sink.directory:logs/outbox}") Path directory) {
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+    }
+
+    @Override
+    public String consumer() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void onEvents(List<OutboxMessage> events) {
+        Path file = directory.resolve("outbox-" + LocalDate.now() + ".jsonl");
+        try {
+            Files.createDirectories(directory);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (OutboxMessage event : events) {
+                    writer.write(objectMapper.writeValueAsString(event));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write outbox events to " + file, e);
+        }
+    }
+}
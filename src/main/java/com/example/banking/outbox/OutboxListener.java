@@ -0,0 +1,22 @@
+package com.example.banking.outbox;
+
+import java.util.List;
+
+/**
+ * Получатель событий outbox внутри приложения. Каждый компонент, реализующий интерфейс, регистрируется
+ * в {@link OutboxRelay} под именем {@link #consumer()} и получает события пачками в порядке номеров.
+ * <p>
+ * Доставка «хотя бы один раз»: если метод бросил исключение или позиция получателя не зафиксирована,
+ * пачка доставляется повторно, поэтому обработка должна быть идемпотентной по {@link OutboxMessage#id()}.
+ *
+ * @author nimatullah
+ */
+public interface OutboxListener {
+
+    /**
+     * Имя получателя, под которым хранится его позиция (не длиннее 64 символов).
+     */
+    String consumer();
+
+    void onEvents(List<OutboxMessage> events);
+}
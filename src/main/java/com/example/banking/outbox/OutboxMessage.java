@@ -0,0 +1,20 @@
+package com.example.banking.outbox;
+
+import com.example.banking.model.OutboxEventType;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие outbox, доставляемое получателю.
+ *
+ * @param id          номер события; возрастает в порядке записи и служит ключом идемпотентности.
+ * @param type        тип события.
+ * @param aggregateId ID транзакции или клиента; null, если событие относится ко всем счетам.
+ * @param payload     параметры события в JSON.
+ * @param createdAt   время записи события.
+ * @author nimatullah
+ */
+public record OutboxMessage(long id, OutboxEventType type, Long aggregateId, @JsonRawValue String payload,
+                            LocalDateTime createdAt) {
+}
@@ -0,0 +1,60 @@
+package com.example.banking.outbox;
+
+import com.example.banking.model.OutboxEvent;
+import com.example.banking.model.OutboxEventType;
+import com.example.banking.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Запись событий в outbox. Событие сохраняется в текущей транзакции и видно получателям только после ее
+ * фиксации; при откате оно исчезает вместе с изменениями. Доставкой занимается {@link OutboxRelay}.
+ *
+ * @author nimatullah
+ */
+@Component
+public class OutboxPublisher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OutboxPublisher(OutboxEventRepository outboxEventRepository,
+                           ObjectMapper objectMapper,
+                           @Value("${banking.outbox.enabled:true}") boolean enabled) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Записывает событие в текущей транзакции.
+     *
+     * @param type        тип события.
+     * @param aggregateId ID транзакции или клиента; null, если событие относится ко всем счетам.
+     * @param payload     параметры события.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEventType type, Long aggregateId, Map<String, Object> payload) {
+        if (!enabled) {
+            return;
+        }
+        OutboxEvent event = new OutboxEvent();
+        event.setType(type);
+        event.setAggregateId(aggregateId);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize outbox event " + type, e);
+        }
+        event.setCreatedAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.banking.outbox;
+
+import com.example.banking.model.OutboxConsumer;
+import com.example.banking.model.OutboxEvent;
+import com.example.banking.repository.OutboxConsumerRepository;
+import com.example.banking.repository.OutboxEventRepository;
+import com.example.banking.sharding.ShardContext;
+import com.example.banking.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая пересылка событий outbox получателям ({@link OutboxListener}).
+ * <p>
+ * Каждые {@code banking.outbox.relay.fixed-delay} мс события после позиции получателя читаются пачками по
+ * {@code banking.outbox.batch-size} по первичному ключу. Пачка доставляется и позиция сдвигается в одной транзакции,
+ * удерживающей строку получателя ({@code FOR UPDATE SKIP LOCKED}): несколько экземпляров не доставляют одну пачку
+ * дважды и не ждут друг друга. Ошибка получателя откатывает его позицию и не задерживает остальных.
+ * <p>
+ * Номера событий выделяются при вставке, а видны после фиксации, поэтому меньший номер может стать видимым позже
+ * большего. Пересылка останавливается перед пропуском в номерах и запоминает время базы и наибольший прочитанный номер.
+ * Транзакция, выделившая номер пропуска, началась раньше этого времени; когда в {@code pg_stat_activity} не остается
+ * транзакций, начатых раньше него, пропуски до запомненного номера считаются откатами и пропускаются. Событие долгой
+ * транзакции поэтому не теряется, сколько бы она ни длилась, а открытая транзакция (в том числе простаивающая
+ * {@code idle in transaction}) задерживает пересылку до своего завершения. Транзакции, пишущие в outbox, должны
+ * выполняться под той же ролью, что и пересылка (или роль пересылки должна иметь {@code pg_read_all_stats}):
+ * время начала транзакций других ролей в {@code pg_stat_activity} не видно.
+ * <p>
+ * При шардировании у каждого шарда свои события и позиции получателей; пересылка и очистка выполняются на каждом шарде,
+ * отставание получателя — наибольшее по шардам.
+ * <p>
+ * Метрики: {@code banking.outbox.lag{consumer}} — возраст самого старого недоставленного события в секундах,
+ * {@code banking.outbox.lag.events{consumer}}, {@code banking.outbox.delivered{consumer}},
+ * {@code banking.outbox.failures{consumer}}.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxConsumerRepository outboxConsumerRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+    private final Map<String, Consumer> consumers = new LinkedHashMap<>();
+    // Строки позиций получателей созданы в outbox_consumer каждого шарда
+    private volatile boolean registered;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxConsumerRepository outboxConsumerRepository,
+                       ShardRouter shardRouter,
+                       List<OutboxListener> listeners,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${banking.outbox.batch-size:500}") int batchSize,
+                       @Value("${banking.outbox.retention:7d}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxConsumerRepository = outboxConsumerRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retention = retention;
+        for (OutboxListener listener : listeners) {
+            Consumer consumer = new Consumer(listener, meterRegistry);
+            if (consumers.putIfAbsent(listener.consumer(), consumer) != null) {
+                throw new IllegalStateException("Duplicate outbox consumer name: " + listener.consumer());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.outbox.relay.fixed-delay:500}")
+    public void relay() {
+        relay(LocalDateTime.now());
+    }
+
+    /**
+     * Доставляет всем получателям зафиксированные события до первого неподтвержденного пропуска в номерах.
+     * {@code now} — время, от которого отсчитывается отставание получателей.
+     *
+     * @return количество доставленных событий по всем получателям.
+     */
+    public int relay(LocalDateTime now) {
+        if (!registered) {
+            shardRouter.forEachShard(() -> transactionTemplate.executeWithoutResult(status ->
+                    consumers.keySet().forEach(outboxConsumerRepository::register)));
+            registered = true;
+        }
+        int[] delivered = new int[1];
+        Map<Consumer, Lag> lags = new HashMap<>();
+        shardRouter.forEachShard(() -> {
+            for (Consumer consumer : consumers.values()) {
+                delivered[0] += drain(consumer, now);
+            }
+            Long headId = outboxEventRepository.findMaxId();
+            for (Consumer consumer : consumers.values()) {
+                lags.merge(consumer, measureLag(consumer, headId == null ? 0 : headId, now), Lag::combine);
+            }
+        });
+        lags.forEach(Consumer::updateLag);
+        return delivered[0];
+    }
+
+    /**
+     * Верхняя граница отставания получателя: возраст самого старого недоставленного события при последнем измерении
+     * этим экземпляром плюс время, прошедшее с измерения.
+     *
+     * @param consumer имя получателя.
+     * @return отставание или {@code null}, если получатель не зарегистрирован или экземпляр еще не измерял его.
+     */
+    public Duration lag(String consumer) {
+        Consumer registered = consumers.get(consumer);
+        if (registered == null || !registered.lagMeasured) {
+            return null;
+        }
+        return Duration.ofMillis(registered.lagMillis.get()).plusNanos(System.nanoTime() - registered.lagMeasuredNanos);
+    }
+
+    /**
+     * Удаляет события старше {@code banking.outbox.retention}, доставленные всем получателям.
+     *
+     * @return количество удаленных событий.
+     */
+    @Scheduled(cron = "${banking.outbox.purge.cron:0 30 * * * *}")
+    public int purge() {
+        int[] deleted = new int[1];
+        shardRouter.forEachShard(() -> deleted[0] += purgeShard());
+        if (deleted[0] > 0) {
+            logger.info("Purged {} delivered outbox event(s)", deleted[0]);
+        }
+        return deleted[0];
+    }
+
+    private int purgeShard() {
+        Integer deleted = transactionTemplate.execute(status -> {
+            Long deliveredId = consumers.isEmpty()
+                    ? outboxEventRepository.findMaxId()
+                    : outboxConsumerRepository.findMinLastEventId(consumers.keySet());
+            if (deliveredId == null) {
+                return 0;
+            }
+            return outboxEventRepository.deleteDelivered(deliveredId, LocalDateTime.now().minus(retention));
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private int drain(Consumer consumer, LocalDateTime now) {
+        int total = 0;
+        int delivered;
+        do {
+            try {
+                Integer batch = transactionTemplate.execute(status -> deliverBatch(consumer, now));
+                delivered = batch == null ? 0 : batch;
+            } catch (RuntimeException e) {
+                consumer.failures.increment();
+                logger.warn("Outbox delivery to {} failed, the batch will be retried: {}", consumer.name, e.toString());
+                recordError(consumer, e);
+                return total;
+            }
+            total += delivered;
+        } while (delivered == batchSize);
+        return total;
+    }
+
+    private int deliverBatch(Consumer consumer, LocalDateTime now) {
+        OutboxConsumer position = outboxConsumerRepository.findForRelay(consumer.name).orElse(null);
+        if (position == null) {
+            // Получателя обслуживает другой экземпляр
+            return 0;
+        }
+        // Проверка выполняется до чтения: зафиксированные к этому моменту события пропусков видны чтению ниже
+        String shard = Objects.requireNonNullElse(ShardContext.current(), "");
+        Gap gap = consumer.gaps.get(shard);
+        long settledId = gap != null && outboxEventRepository.countTransactionsStartedBefore(gap.observedAtMicros()) == 0
+                ? gap.maxEventId()
+                : 0;
+        List<OutboxEvent> events = outboxEventRepository.findByIdGreaterThanOrderById(
+                position.getLastEventId(), PageRequest.of(0, batchSize));
+        List<OutboxMessage> messages = visiblePrefix(position.getLastEventId(), events, settledId);
+        if (messages.size() < events.size()) {
+            long stalledAt = events.get(messages.size()).getId();
+            if (gap == null || stalledAt > gap.maxEventId()) {
+                consumer.gaps.put(shard, new Gap(events.get(events.size() - 1).getId(), outboxEventRepository.currentTimeMicros()));
+            }
+        } else if (gap != null) {
+            consumer.gaps.remove(shard);
+        }
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        consumer.listener.onEvents(messages);
+
+        position.setLastEventId(messages.get(messages.size() - 1).id());
+        position.setDelivered(position.getDelivered() + messages.size());
+        position.setLastError(null);
+        position.setUpdatedAt(now);
+        consumer.delivered.increment(messages.size());
+        return messages.size();
+    }
+
+    // События до первого пропуска в номерах, который еще может заполниться незафиксированной транзакцией.
+    // Пропуски перед событиями с номером не больше settledId — откаты.
+    private static List<OutboxMessage> visiblePrefix(long lastEventId, List<OutboxEvent> events, long settledId) {
+        List<OutboxMessage> messages = new ArrayList<>(events.size());
+        long expectedId = lastEventId + 1;
+        for (OutboxEvent event : events) {
+            if (event.getId() != expectedId && event.getId() > settledId) {
+                break;
+            }
+            messages.add(new OutboxMessage(event.getId(), event.getType(), event.getAggregateId(), event.getPayload(),
+                    event.getCreatedAt()));
+            expectedId = event.getId() + 1;
+        }
+        return messages;
+    }
+
+    private void recordError(Consumer consumer, RuntimeException error) {
+        String message = String.valueOf(error.getMessage());
+        String lastError = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxConsumerRepository.findForRelay(consumer.name)
+                    .ifPresent(position -> {
+                        position.setLastError(lastError);
+                        position.setUpdatedAt(LocalDateTime.now());
+                    }));
+        } catch (RuntimeException e) {
+            logger.warn("Cannot record outbox delivery error for {}: {}", consumer.name, e.toString());
+        }
+    }
+
+    // Отставание получателя на шарде текущего потока
+    private Lag measureLag(Consumer consumer, long headId, LocalDateTime now) {
+        long lastEventId = outboxConsumerRepository.findById(consumer.name)
+                .map(OutboxConsumer::getLastEventId)
+                .orElse(0L);
+        long lagMillis = lastEventId >= headId ? 0 : outboxEventRepository.findFirstByIdGreaterThanOrderById(lastEventId)
+                .map(event -> Math.max(0, Duration.between(event.getCreatedAt(), now).toMillis()))
+                .orElse(0L);
+        return new Lag(Math.max(0, headId - lastEventId), lagMillis);
+    }
+
+    /**
+     * Отставание получателя: недоставленные события и возраст самого старого из них. По шардам события складываются,
+     * а возраст берется наибольший.
+     */
+    private record Lag(long events, long millis) {
+        private Lag combine(Lag other) {
+            return new Lag(events + other.events, Math.max(millis, other.millis));
+        }
+    }
+
+    /**
+     * Пропуск в номерах событий: наибольший номер, прочитанный при его обнаружении, и время базы после чтения.
+     */
+    private record Gap(long maxEventId, long observedAtMicros) {
+    }
+
+    private static final class Consumer {
+        private final OutboxListener listener;
+        private final String name;
+        // Необработанный пропуск по шардам; без шардирования ключ — пустая строка
+        private final Map<String, Gap> gaps = new ConcurrentHashMap<>();
+        private final Counter delivered;
+        private final Counter failures;
+        private final AtomicLong lagEvents = new AtomicLong();
+        private final AtomicLong lagMillis = new AtomicLong();
+        private volatile long lagMeasuredNanos;
+        private volatile boolean lagMeasured;
+
+        private Consumer(OutboxListener listener, MeterRegistry meterRegistry) {
+            this.listener = listener;
+            this.name = listener.consumer();
+            this.delivered = Counter.builder("banking.outbox.delivered")
+                    .description("События outbox, доставленные получателю")
+                    .tag("consumer", name)
+                    .register(meterRegistry);
+            this.failures = Counter.builder("banking.outbox.failures")
+                    .description("Неудачные доставки пачек событий outbox")
+                    .tag("consumer", name)
+                    .register(meterRegistry);
+            Gauge.builder("banking.outbox.lag", lagMillis, millis -> millis.get() / 1000.0)
+                    .description("Возраст самого старого недоставленного получателю события outbox")
+                    .baseUnit("seconds")
+                    .tag("consumer", name)
+                    .register(meterRegistry);
+            Gauge.builder("banking.outbox.lag.events", lagEvents, AtomicLong::get)
+                    .description("Разница номеров последнего события outbox и позиции получателя")
+                    .tag("consumer", name)
+                    .register(meterRegistry);
+        }
+
+        private void updateLag(Lag lag) {
+            lagEvents.set(lag.events());
+            lagMillis.set(lag.millis());
+            lagMeasuredNanos = System.nanoTime();
+            lagMeasured = true;
+        }
+    }
+}
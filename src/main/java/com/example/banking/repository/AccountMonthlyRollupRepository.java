@@ -0,0 +1,21 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.AccountMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * @author nimatullah
+ */
+public interface AccountMonthlyRollupRepository extends JpaRepository<AccountMonthlyRollup, AccountMonthlyRollup.Key> {
+
+    // Последние итоги до указанного месяца: их остаток на конец — остаток на начало месяца (первичный ключ (account_id, month_start))
+    Optional<AccountMonthlyRollup> findFirstByIdAccountIdAndIdMonthLessThanOrderByIdMonthDesc(Long accountId, LocalDate month);
+
+    @Query("SELECT COALESCE(MAX(r.lastPostingId), 0) FROM AccountMonthlyRollup r WHERE r.id.accountId = :accountId")
+    Long findLastPostingId(@Param("accountId") Long accountId);
+}
@@ -1,13 +1,51 @@
 package com.example.banking.repository;
 
+import com.example.banking.dto.AccountBalanceDTO;
 import com.example.banking.model.BankAccount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * @author nimatullah
  */
 public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<BankAccount> findByClientId(Long clientId);
+
+    // Счет и клиент одним запросом с соединением вместо отдельной загрузки клиента
+    @EntityGraph(BankAccount.WITH_CLIENT)
+    Optional<BankAccount> findWithClientById(Long id);
+
+    // SELECT ... FOR UPDATE: счет остается заблокированным до конца транзакции перевода
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM BankAccount a WHERE a.id = :id")
+    Optional<BankAccount> findByIdForUpdate(@Param("id") Long id);
+
+    // Блокировка очередной пачки счетов после afterId в порядке возрастания ID, как при переводе,
+    // чтобы не возникало взаимоблокировок
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM BankAccount a WHERE a.id > :afterId ORDER BY a.id")
+    List<BankAccount> findBatchForUpdate(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT a.client.id FROM BankAccount a WHERE a.id IN :ids")
+    List<Long> findClientIds(@Param("ids") Collection<Long> ids);
+
+    // Остатки без загрузки сущностей: client.id читается из внешнего ключа счета без соединения с client
+    @Query("SELECT new com.example.banking.dto.AccountBalanceDTO(a.id, a.client.id, a.balance) FROM BankAccount a WHERE a.id IN :ids")
+    List<AccountBalanceDTO> findBalances(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.example.banking.dto.AccountBalanceDTO(a.id, a.client.id, a.balance) FROM BankAccount a WHERE a.client.id IN :clientIds")
+    List<AccountBalanceDTO> findBalancesByClientIds(@Param("clientIds") Collection<Long> clientIds);
 }
@@ -1,9 +1,12 @@
 package com.example.banking.repository;
 
 import com.example.banking.model.Client;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
@@ -12,6 +15,8 @@ import java.util.Optional;
  */
 
 public interface ClientRepository extends JpaRepository<Client, Long> {
+    // Результат кэшируется в кэше запросов и инвалидируется при любом изменении таблицы клиентов
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Client> findByUsername(String login);
 
     Optional<Client> findOneByPhoneNumber(String phoneNumber);
@@ -19,12 +24,30 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     // Примечание: Использование "One" в методе findOneByPhoneNumber для предотвращения конфликта с Swagger во время выполнения.
     Optional<Client> findOneByEmail(String email);
 
-    Page<Client> findByFullNameLike(String fullName, Pageable pageable);
+    /**
+     * Данные клиента для результатов поиска: только отображаемые поля, без логина и хеша пароля.
+     */
+    interface ClientSummary {
+        Long getId();
 
-    Page<Client> findByPhoneNumber(String phoneNumber, Pageable pageable);
+        String getFullName();
 
-    Page<Client> findByEmail(String email, Pageable pageable);
+        String getPhoneNumber();
 
-    Page<Client> findByBirthDateAfter(String birthDate, Pageable pageable);
+        String getEmail();
+
+        String getBirthDate();
+    }
+
+    // Поиск возвращает проекции: выбираются только столбцы ClientSummary, сущности не загружаются и не кэшируются
+    Page<ClientSummary> findByFullNameLike(String fullName, Pageable pageable);
+
+    Page<ClientSummary> findByPhoneNumber(String phoneNumber, Pageable pageable);
+
+    Page<ClientSummary> findByEmail(String email, Pageable pageable);
+
+    Page<ClientSummary> findByBirthDateAfter(String birthDate, Pageable pageable);
+
+    Page<ClientSummary> findAllBy(Pageable pageable);
 
 }
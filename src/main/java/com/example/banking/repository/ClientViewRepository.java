@@ -0,0 +1,59 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.ClientView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * @author nimatullah
+ */
+public interface ClientViewRepository extends JpaRepository<ClientView, Long> {
+
+    // Строка модели чтения, собранная из таблиц записи; последние переводы берутся из индексов
+    // (from_account_id, timestamp) и (to_account_id, timestamp) не более :recent с каждой стороны.
+    // Межшардовые переводы счета хранятся в transfer_saga (исходящие, без компенсированных) и transfer_saga_credit
+    // (зачисленные входящие); без шардирования эти таблицы пусты
+    String LIVE_VIEW = "SELECT c.id AS client_id, a.id AS account_id, c.full_name, c.phone_number, c.email, c.birth_date, a.balance, "
+            + "COALESCE(CAST((SELECT json_agg(json_build_object('id', r.id, 'fromAccountId', r.from_account_id, "
+            + "'toAccountId', r.to_account_id, 'amount', r.amount, 'timestamp', r.timestamp) ORDER BY r.timestamp DESC, r.id DESC) "
+            + "FROM ((SELECT t.id, t.from_account_id, t.to_account_id, t.amount, t.timestamp FROM transaction t "
+            + "WHERE t.from_account_id = a.id ORDER BY t.timestamp DESC, t.id DESC LIMIT :recent) "
+            + "UNION ALL (SELECT t.id, t.from_account_id, t.to_account_id, t.amount, t.timestamp FROM transaction t "
+            + "WHERE t.to_account_id = a.id ORDER BY t.timestamp DESC, t.id DESC LIMIT :recent) "
+            + "UNION ALL (SELECT s.id, s.from_account_id, s.to_account_id, s.amount, s.created_at FROM transfer_saga s "
+            + "WHERE s.from_account_id = a.id AND s.status <> 'COMPENSATED' ORDER BY s.created_at DESC, s.id DESC LIMIT :recent) "
+            + "UNION ALL (SELECT sc.saga_id, sc.from_account_id, sc.to_account_id, sc.amount, sc.created_at FROM transfer_saga_credit sc "
+            + "WHERE sc.to_account_id = a.id AND sc.credited ORDER BY sc.created_at DESC, sc.saga_id DESC LIMIT :recent) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT :recent) r) AS TEXT), '[]') AS recent_transactions, "
+            + "CAST(:version AS BIGINT) AS version, CAST(:now AS TIMESTAMP) AS updated_at "
+            + "FROM client c JOIN bank_account a ON a.client_id = c.id ";
+
+    @Query(value = LIVE_VIEW + "WHERE c.id = :clientId", nativeQuery = true)
+    Optional<ClientView> findLive(@Param("clientId") Long clientId, @Param("recent") int recent,
+                                  @Param("version") long version, @Param("now") LocalDateTime now);
+
+    // Пересборка строк клиентов одним запросом
+    @Modifying
+    @Query(value = "INSERT INTO client_view (client_id, account_id, full_name, phone_number, email, birth_date, balance, "
+            + "recent_transactions, version, updated_at) " + LIVE_VIEW + "WHERE c.id IN (:clientIds) "
+            + "ON CONFLICT (client_id) DO UPDATE SET account_id = EXCLUDED.account_id, full_name = EXCLUDED.full_name, "
+            + "phone_number = EXCLUDED.phone_number, email = EXCLUDED.email, birth_date = EXCLUDED.birth_date, "
+            + "balance = EXCLUDED.balance, recent_transactions = EXCLUDED.recent_transactions, "
+            + "version = EXCLUDED.version, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int refresh(@Param("clientIds") Collection<Long> clientIds, @Param("recent") int recent,
+                @Param("version") long version, @Param("now") LocalDateTime now);
+
+    // Перенос балансов счетов пачки начисления процентов без пересборки переводов
+    @Modifying
+    @Query(value = "UPDATE client_view v SET balance = a.balance, version = :version, updated_at = :now "
+            + "FROM bank_account a WHERE a.id = v.account_id AND v.account_id BETWEEN :fromAccountId AND :toAccountId "
+            + "AND a.balance <> v.balance", nativeQuery = true)
+    int refreshBalances(@Param("fromAccountId") long fromAccountId, @Param("toAccountId") long toAccountId,
+                        @Param("version") long version, @Param("now") LocalDateTime now);
+}
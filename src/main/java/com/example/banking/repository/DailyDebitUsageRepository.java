@@ -0,0 +1,32 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.DailyDebitUsage;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * @author nimatullah
+ */
+public interface DailyDebitUsageRepository extends JpaRepository<DailyDebitUsage, DailyDebitUsage.Key> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM DailyDebitUsage u WHERE u.id = :id")
+    Optional<DailyDebitUsage> findByIdForUpdate(@Param("id") DailyDebitUsage.Key id);
+
+    // Возврат неизрасходованной части атомарным UPDATE, без чтения строки
+    @Modifying
+    @Query("UPDATE DailyDebitUsage u SET u.reserved = u.reserved - :amount WHERE u.id = :id AND u.reserved >= :amount")
+    int release(@Param("id") DailyDebitUsage.Key id, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("DELETE FROM DailyDebitUsage u WHERE u.id.usageDate < :day")
+    int deleteBefore(@Param("day") LocalDate day);
+}
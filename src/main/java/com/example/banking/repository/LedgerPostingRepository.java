@@ -0,0 +1,71 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.LedgerEntryType;
+import com.example.banking.model.LedgerPosting;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author nimatullah
+ */
+public interface LedgerPostingRepository extends JpaRepository<LedgerPosting, Long> {
+
+    /**
+     * Сумма, количество и последний id проводок счета после снимка.
+     */
+    interface Delta {
+        BigDecimal getAmount();
+
+        Long getLastPostingId();
+
+        long getPostings();
+    }
+
+    /**
+     * Строка выписки.
+     */
+    interface StatementLine {
+        Long getId();
+
+        LocalDateTime getTimestamp();
+
+        LedgerEntryType getType();
+
+        BigDecimal getAmount();
+
+        Long getTransactionId();
+    }
+
+    // Индекс (account_id, id) ограничивает чтение проводками после снимка, независимо от длины истории
+    @Query("SELECT COALESCE(SUM(p.amount), 0) AS amount, MAX(p.id) AS lastPostingId, COUNT(p) AS postings "
+            + "FROM LedgerPosting p WHERE p.account.id = :accountId AND p.id > :afterId")
+    Delta findDelta(@Param("accountId") Long accountId, @Param("afterId") Long afterId);
+
+    @Query("SELECT DISTINCT p.account.id FROM LedgerPosting p WHERE p.id > :afterId")
+    List<Long> findAccountIdsPostedAfter(@Param("afterId") Long afterId);
+
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM LedgerPosting p")
+    Long findLastPostingId();
+
+    @Query("SELECT p FROM LedgerPosting p WHERE p.account.id = :accountId AND p.id > :afterId ORDER BY p.id")
+    List<LedgerPosting> findByAccountIdAfter(@Param("accountId") Long accountId, @Param("afterId") Long afterId);
+
+    // Строки выписки читаются потоком проекций, без загрузки месяца в память и в контекст персистентности
+    // (индекс (account_id, timestamp))
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id AS id, p.timestamp AS timestamp, p.type AS type, p.amount AS amount, p.transactionId AS transactionId "
+            + "FROM LedgerPosting p WHERE p.account.id = :accountId "
+            + "AND p.timestamp >= :from AND p.timestamp < :to ORDER BY p.timestamp, p.id")
+    Stream<StatementLine> streamForPeriod(@Param("accountId") Long accountId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+}
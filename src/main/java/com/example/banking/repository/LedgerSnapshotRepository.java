@@ -0,0 +1,10 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.LedgerSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * @author nimatullah
+ */
+public interface LedgerSnapshotRepository extends JpaRepository<LedgerSnapshot, Long> {
+}
@@ -0,0 +1,36 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.OutboxConsumer;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * @author nimatullah
+ */
+public interface OutboxConsumerRepository extends JpaRepository<OutboxConsumer, String> {
+
+    // FOR UPDATE SKIP LOCKED (тайм-аут блокировки -2): получателя обслуживает один экземпляр, остальные его пропускают,
+    // а не ждут
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT c FROM OutboxConsumer c WHERE c.name = :name")
+    Optional<OutboxConsumer> findForRelay(@Param("name") String name);
+
+    // Новый получатель начинает с самого раннего хранимого события
+    @Modifying
+    @Query(value = "INSERT INTO outbox_consumer (name, last_event_id, delivered, updated_at) VALUES (:name, 0, 0, now()) "
+            + "ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int register(@Param("name") String name);
+
+    @Query("SELECT min(c.lastEventId) FROM OutboxConsumer c WHERE c.name IN :names")
+    Long findMinLastEventId(@Param("names") Collection<String> names);
+}
@@ -0,0 +1,40 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author nimatullah
+ */
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Следующая пачка получателя по первичному ключу
+    List<OutboxEvent> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    Optional<OutboxEvent> findFirstByIdGreaterThanOrderById(Long id);
+
+    @Query("SELECT max(e.id) FROM OutboxEvent e")
+    Long findMaxId();
+
+    // Время базы в микросекундах от начала эпохи, не зависящее от часовых поясов приложения и сеанса
+    @Query(value = "SELECT CAST(extract(epoch FROM clock_timestamp()) * 1000000 AS BIGINT)", nativeQuery = true)
+    long currentTimeMicros();
+
+    // Открытые транзакции других сеансов этой базы, начатые раньше момента sinceMicros
+    @Query(value = "SELECT count(*) FROM pg_stat_activity WHERE datname = current_database() AND pid <> pg_backend_pid() "
+            + "AND CAST(extract(epoch FROM xact_start) * 1000000 AS BIGINT) < :sinceMicros", nativeQuery = true)
+    long countTransactionsStartedBefore(@Param("sinceMicros") long sinceMicros);
+
+    // Удаляются только события, доставленные всем получателям (ix_outbox_event_created_at)
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.id <= :deliveredId AND e.createdAt < :before")
+    int deleteDelivered(@Param("deliveredId") Long deliveredId, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,14 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.ReconciliationDiscrepancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * @author nimatullah
+ */
+public interface ReconciliationDiscrepancyRepository extends JpaRepository<ReconciliationDiscrepancy, Long> {
+
+    List<ReconciliationDiscrepancy> findByRunIdOrderByAccountId(Long runId);
+}
@@ -0,0 +1,21 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author nimatullah
+ */
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    // Сверка упавшего экземпляра не должна навсегда блокировать следующие (уникальный индекс ux_reconciliation_run_running)
+    @Modifying
+    @Query("UPDATE ReconciliationRun r SET r.status = com.example.banking.model.ReconciliationStatus.FAILED, r.finishedAt = :now "
+            + "WHERE r.status = com.example.banking.model.ReconciliationStatus.RUNNING AND r.startedAt < :startedBefore")
+    int failStale(@Param("startedBefore") LocalDateTime startedBefore, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,41 @@
+package com.example.banking.repository;
+
+import com.example.banking.model.ScheduledTransfer;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author nimatullah
+ */
+public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer, Long> {
+
+    // FOR UPDATE SKIP LOCKED (тайм-аут блокировки -2): экземпляры, загружающие одно окно одновременно, получают
+    // разные переводы (частичный индекс ix_scheduled_transfer_due)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM ScheduledTransfer s WHERE s.status = com.example.banking.model.ScheduledTransferStatus.ACTIVE "
+            + "AND s.nextRunAt < :until AND (s.claimedUntil IS NULL OR s.claimedUntil < :now) ORDER BY s.nextRunAt")
+    List<ScheduledTransfer> findDueForClaim(@Param("until") LocalDateTime until, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ScheduledTransfer s WHERE s.id = :id")
+    Optional<ScheduledTransfer> findByIdForUpdate(@Param("id") Long id);
+
+    List<ScheduledTransfer> findByOwnerOrderById(String owner);
+
+    // После перезапуска колесо таймеров пусто: захваты этого экземпляра снимаются, чтобы не ждать их истечения
+    @Modifying
+    @Query("UPDATE ScheduledTransfer s SET s.claimedBy = NULL, s.claimedUntil = NULL WHERE s.claimedBy = :instanceId")
+    int releaseClaims(@Param("instanceId") String instanceId);
+}
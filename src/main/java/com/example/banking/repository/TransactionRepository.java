@@ -1,11 +1,54 @@
 package com.example.banking.repository;
 
+import com.example.banking.dto.TransactionResponseDTO;
 import com.example.banking.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
 
 /**
  * @author nimatullah
  */
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    // Диапазон по timestamp обязателен: он позволяет PostgreSQL читать только секции нужных месяцев
+    // Проекция без загрузки транзакций и счетов: ID счетов читаются из внешних ключей без соединения с bank_account
+    @Query(value = "SELECT new com.example.banking.dto.TransactionResponseDTO(t.id, t.fromAccount.id, t.toAccount.id, t.amount, t.timestamp) "
+            + "FROM Transaction t "
+            + "WHERE (t.fromAccount.id = :accountId OR t.toAccount.id = :accountId) "
+            + "AND t.timestamp >= :from AND t.timestamp < :to",
+            countQuery = "SELECT count(t) FROM Transaction t "
+                    + "WHERE (t.fromAccount.id = :accountId OR t.toAccount.id = :accountId) "
+                    + "AND t.timestamp >= :from AND t.timestamp < :to")
+    Page<TransactionResponseDTO> findHistory(@Param("accountId") Long accountId,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to,
+                                  Pageable pageable);
+
+    /**
+     * Исходящий перевод для восстановления счетчиков скорости.
+     */
+    interface OutgoingTransfer {
+        Long getAccountId();
+
+        LocalDateTime getTimestamp();
+
+        BigDecimal getAmount();
+    }
+
+    // Читаются только секции последнего окна, строки идут потоком проекций
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT t.fromAccount.id AS accountId, t.timestamp AS timestamp, t.amount AS amount "
+            + "FROM Transaction t WHERE t.timestamp >= :since")
+    Stream<OutgoingTransfer> streamOutgoingSince(@Param("since") LocalDateTime since);
 }
@@ -0,0 +1,28 @@
+package com.example.banking.repository;
+
+import com.example.banking.dto.TransactionResponseDTO;
+import com.example.banking.model.TransferSagaCredit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author nimatullah
+ */
+public interface TransferSagaCreditRepository extends JpaRepository<TransferSagaCredit, Long> {
+
+    // Зачисленные межшардовые переводы на счет, от новых к старым; индекс ix_transfer_saga_credit_to_account_id_created_at
+    @Query(value = "SELECT new com.example.banking.dto.TransactionResponseDTO(c.sagaId, c.fromAccountId, c.toAccountId, c.amount, c.createdAt) "
+            + "FROM TransferSagaCredit c WHERE c.toAccountId = :accountId AND c.credited = true "
+            + "AND c.createdAt >= :from AND c.createdAt < :to ORDER BY c.createdAt DESC, c.sagaId DESC",
+            countQuery = "SELECT count(c) FROM TransferSagaCredit c WHERE c.toAccountId = :accountId AND c.credited = true "
+                    + "AND c.createdAt >= :from AND c.createdAt < :to")
+    Page<TransactionResponseDTO> findHistory(@Param("accountId") Long accountId,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             Pageable pageable);
+}
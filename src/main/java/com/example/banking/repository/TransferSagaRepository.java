@@ -0,0 +1,58 @@
+package com.example.banking.repository;
+
+import com.example.banking.dto.TransactionResponseDTO;
+import com.example.banking.model.TransferSaga;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * @author nimatullah
+ */
+public interface TransferSagaRepository extends JpaRepository<TransferSaga, Long> {
+
+    // ID перевода из последовательности транзакций: выровнен по слоту шарда и уникален на всех шардах
+    @Query(value = "SELECT nextval(pg_get_serial_sequence('transaction', 'id'))", nativeQuery = true)
+    Long nextTransactionId();
+
+    // Завершение и компенсация выполняются под блокировкой строки, чтобы шаг не выполнился дважды
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TransferSaga s WHERE s.id = :id")
+    Optional<TransferSaga> findByIdForUpdate(@Param("id") Long id);
+
+    // Статус задан литералом, чтобы условие совпадало с частичным индексом ix_transfer_saga_debited
+    @Query("SELECT s FROM TransferSaga s WHERE s.status = com.example.banking.model.TransferSagaStatus.DEBITED "
+            + "AND s.updatedAt < :updatedBefore ORDER BY s.updatedAt")
+    List<TransferSaga> findPending(@Param("updatedBefore") LocalDateTime updatedBefore, Pageable pageable);
+
+    // Исходящие межшардовые переводы счета без компенсированных, от новых к старым
+    @Query(value = "SELECT new com.example.banking.dto.TransactionResponseDTO(s.id, s.fromAccountId, s.toAccountId, s.amount, s.createdAt) "
+            + "FROM TransferSaga s WHERE s.fromAccountId = :accountId "
+            + "AND s.status <> com.example.banking.model.TransferSagaStatus.COMPENSATED "
+            + "AND s.createdAt >= :from AND s.createdAt < :to ORDER BY s.createdAt DESC, s.id DESC",
+            countQuery = "SELECT count(s) FROM TransferSaga s WHERE s.fromAccountId = :accountId "
+                    + "AND s.status <> com.example.banking.model.TransferSagaStatus.COMPENSATED "
+                    + "AND s.createdAt >= :from AND s.createdAt < :to")
+    Page<TransactionResponseDTO> findHistory(@Param("accountId") Long accountId,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             Pageable pageable);
+
+    // Списания последнего окна, включая компенсированные: при проверке скорости они учитывались так же
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.fromAccountId AS accountId, s.createdAt AS timestamp, s.amount AS amount "
+            + "FROM TransferSaga s WHERE s.createdAt >= :since")
+    Stream<TransactionRepository.OutgoingTransfer> streamOutgoingSince(@Param("since") LocalDateTime since);
+}
@@ -0,0 +1,122 @@
+package com.example.banking.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Иерархическое колесо таймеров: добавление и извлечение наступивших элементов за O(1) независимо от их числа.
+ * <p>
+ * Уровень 0 делится на {@code wheelSize} ячеек по {@code tickMillis}, каждый следующий уровень — на столько же ячеек
+ * в {@code wheelSize} раз крупнее. Элемент кладется на нижний уровень, диапазон которого его покрывает; когда время
+ * доходит до ячейки верхнего уровня, ее элементы перекладываются ниже. Элемент возвращается из {@link #advance(long)}
+ * после окончания такта, в который попадает его срок, то есть не раньше срока и не позже чем через один такт.
+ * <p>
+ * Класс не потокобезопасен.
+ *
+ * @author nimatullah
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private record Entry<T>(long dueMillis, T item) {
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] levelTicks;
+    private final List<List<List<Entry<T>>>> levels;
+    // Начало текущего такта
+    private long currentTime;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelTicks = new long[levelCount];
+        this.levels = new ArrayList<>(levelCount);
+        long levelTick = tickMillis;
+        for (int level = 0; level < levelCount; level++) {
+            levelTicks[level] = levelTick;
+            List<List<Entry<T>>> buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            levels.add(buckets);
+            levelTick = Math.multiplyExact(levelTick, wheelSize);
+        }
+        this.currentTime = startMillis - Math.floorMod(startMillis, tickMillis);
+    }
+
+    /**
+     * Добавляет элемент со сроком {@code dueMillis}.
+     *
+     * @return false, если срок уже наступил (до начала текущего такта) — элемент не добавлен и выполняется сразу.
+     * @throws IllegalArgumentException если срок дальше горизонта колеса ({@link #horizonMillis()}).
+     */
+    public boolean add(long dueMillis, T item) {
+        if (dueMillis < currentTime) {
+            return false;
+        }
+        place(new Entry<>(dueMillis, item));
+        size++;
+        return true;
+    }
+
+    /**
+     * Продвигает колесо до момента {@code nowMillis}.
+     *
+     * @return элементы, срок которых наступил, в порядке тактов.
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            // Ячейка только что закончившегося такта: все ее элементы уже наступили
+            List<Entry<T>> expired = bucket(0, currentTime / tickMillis - 1);
+            for (Entry<T> entry : expired) {
+                due.add(entry.item());
+            }
+            size -= expired.size();
+            expired.clear();
+
+            for (int level = levelTicks.length - 1; level > 0; level--) {
+                if (currentTime % levelTicks[level] == 0) {
+                    List<Entry<T>> bucket = bucket(level, currentTime / levelTicks[level]);
+                    List<Entry<T>> cascaded = new ArrayList<>(bucket);
+                    bucket.clear();
+                    cascaded.forEach(this::place);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Срок относительно текущего момента, в пределах которого элемент гарантированно можно добавить.
+     */
+    public long horizonMillis() {
+        return levelTicks[levelTicks.length - 1] * (wheelSize - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        for (int level = 0; level < levelTicks.length; level++) {
+            long levelTick = levelTicks[level];
+            long levelStart = currentTime - currentTime % levelTick;
+            if (entry.dueMillis() < levelStart + levelTick * wheelSize) {
+                bucket(level, entry.dueMillis() / levelTick).add(entry);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Due time is beyond the timing wheel horizon");
+    }
+
+    private List<Entry<T>> bucket(int level, long virtualId) {
+        return levels.get(level).get((int) Math.floorMod(virtualId, (long) wheelSize));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.banking.security;
 
+import com.example.banking.metrics.BankingMetrics;
+import com.example.banking.metrics.RequestTiming;
 import com.example.banking.service.JwtUserDetailsService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -33,12 +35,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     private final JwtUserDetailsService jwtUserDetailsService;
     private final JwtTokenService jwtTokenService;
     private final HandlerExceptionResolver handlerExceptionResolver;
+    private final BankingMetrics bankingMetrics;
 
     @Autowired
-    public JwtRequestFilter(JwtUserDetailsService jwtUserDetailsService, JwtTokenService jwtTokenService, HandlerExceptionResolver handlerExceptionResolver) {
+    public JwtRequestFilter(JwtUserDetailsService jwtUserDetailsService, JwtTokenService jwtTokenService, HandlerExceptionResolver handlerExceptionResolver, BankingMetrics bankingMetrics) {
         this.jwtUserDetailsService = jwtUserDetailsService;
         this.jwtTokenService = jwtTokenService;
         this.handlerExceptionResolver = handlerExceptionResolver;
+        this.bankingMetrics = bankingMetrics;
     }
 
     /**
@@ -58,7 +62,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         logger.debug("Authorization header: {}", header);
 
         if (header == null || !header.startsWith("Bearer ")) {
-            logger.warn("JWT Token does not begin with Bearer String");
+            logger.debug("JWT Token does not begin with Bearer String");
 
             // Пропускаем запросы без токена
             filterChain.doFilter(request, response);
@@ -66,26 +70,35 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
 
         try {
-            final String token = header.substring(7);
-            logger.debug("JWT Token: {}", token);
-
-            String username = jwtTokenService.extractUsername(token);
-            logger.debug("Extracted Username: {}", username);
-
-            // Проверяем токен и аутентифицируем пользователя
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = jwtUserDetailsService.loadUserByUsername(username);
-                if (jwtTokenService.validateToken(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities());
-
-                    // Устанавливаем аутентификацию в контекст безопасности
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    logger.debug("User authenticated: {}", username);
+            long start = bankingMetrics.start();
+            try {
+                final String token = header.substring(7);
+                logger.debug("JWT Token: {}", token);
+
+                String username = jwtTokenService.extractUsername(token);
+                logger.debug("Extracted Username: {}", username);
+
+                // Проверяем токен и аутентифицируем пользователя
+                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                    long authStart = RequestTiming.start();
+                    UserDetails userDetails = jwtUserDetailsService.loadUserByUsername(username);
+                    RequestTiming.record(RequestTiming.AUTH, authStart);
+                    if (jwtTokenService.validateToken(token, userDetails)) {
+                        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                userDetails.getAuthorities());
+
+                        // Устанавливаем аутентификацию в контекст безопасности
+                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                        logger.debug("User authenticated: {}", username);
+                    }
                 }
+            } finally {
+                // Неуспешные проверки (просроченный или поддельный токен) тоже попадают в гистограмму
+                bankingMetrics.recordJwtFilter(start);
+                RequestTiming.record(RequestTiming.FILTER, start);
             }
 
             // Пропускаем запрос к следующему фильтру
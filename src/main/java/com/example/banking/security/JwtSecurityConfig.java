@@ -1,7 +1,12 @@
 package com.example.banking.security;
 
+import com.example.banking.metrics.TimedPasswordEncoder;
+import com.example.banking.throttling.RateLimitFilter;
+import com.example.banking.throttling.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +22,7 @@ import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
@@ -32,10 +38,15 @@ public class JwtSecurityConfig {
     private static final Logger logger = LoggerFactory.getLogger(JwtSecurityConfig.class);
 
     private final JwtRequestFilter jwtRequestFilter;
+    private final ObjectProvider<TokenBucketRateLimiter> rateLimiter;
+    private final HandlerExceptionResolver handlerExceptionResolver;
 
     @Autowired
-    public JwtSecurityConfig(JwtRequestFilter jwtRequestFilter) {
+    public JwtSecurityConfig(JwtRequestFilter jwtRequestFilter, ObjectProvider<TokenBucketRateLimiter> rateLimiter,
+                             HandlerExceptionResolver handlerExceptionResolver) {
         this.jwtRequestFilter = jwtRequestFilter;
+        this.rateLimiter = rateLimiter;
+        this.handlerExceptionResolver = handlerExceptionResolver;
     }
 
     /**
@@ -49,15 +60,21 @@ public class JwtSecurityConfig {
     public SecurityFilterChain configure(final HttpSecurity http) throws Exception {
         logger.info("Configuring HTTP security");
 
-        return http.cors(withDefaults())  // Разрешение CORS с настройками по умолчанию
+        http.cors(withDefaults())  // Разрешение CORS с настройками по умолчанию
                 .csrf(AbstractHttpConfigurer::disable)  // Отключение защиты CSRF
                 .authorizeHttpRequests((authorize) -> authorize
                         .requestMatchers("/api/clients/register", "/api/clients/authenticate").permitAll()  // Разрешение доступа к указанным URL без аутентификации
+                        .requestMatchers("/actuator/health/**").permitAll()  // Проверки состояния; метрики, в том числе Prometheus, требуют аутентификации
+                        .requestMatchers("/actuator/slowrequests/**").hasRole("ADMIN")  // Медленные запросы пользователей и их очистка только для администраторов
                         .anyRequest().authenticated()  // Требование аутентификации для всех остальных URL
                 )
                 .sessionManagement((session) -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))  // Настройка политики управления сессиями как stateless
-                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)  // Добавление фильтра JWT перед фильтром аутентификации по логину и паролю
-                .build();
+                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);  // Добавление фильтра JWT перед фильтром аутентификации по логину и паролю
+
+        // Ограничение частоты запросов клиента после проверки JWT, когда имя пользователя уже известно
+        rateLimiter.ifAvailable(limiter ->
+                http.addFilterAfter(new RateLimitFilter(limiter, handlerExceptionResolver), JwtRequestFilter.class));
+        return http.build();
     }
 
     /**
@@ -75,13 +92,15 @@ public class JwtSecurityConfig {
 
     /**
      * Создание PasswordEncoder для кодирования паролей.
+     * Время хеширования и проверки паролей публикуется метрикой {@code banking.password}.
      *
+     * @param meterRegistry реестр метрик.
      * @return объект PasswordEncoder.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
         logger.info("Creating PasswordEncoder");
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        return new TimedPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder(), meterRegistry);
     }
 
     /**
@@ -34,7 +34,7 @@ public class JwtTokenService {
      * @return сгенерированный JWT токен.
      */
     public String generateToken(UserDetails userDetails) {
-        logger.info("Generating JWT token for user: {}", userDetails.getUsername());
+        logger.debug("Generating JWT token for user: {}", userDetails.getUsername());
         String token = JWT.create()
                 .withSubject(userDetails.getUsername())
                 .withIssuer("Unnamed Banking Service")
@@ -52,7 +52,7 @@ public class JwtTokenService {
      * @return имя пользователя.
      */
     public String extractUsername(String token) {
-        logger.info("Extracting username from JWT token");
+        logger.debug("Extracting username from JWT token");
         String username = JWT.require(Algorithm.HMAC512(secret.getBytes()))
                 .build()
                 .verify(token)
@@ -69,7 +69,7 @@ public class JwtTokenService {
      * @return true, если токен валиден, иначе false.
      */
     public boolean validateToken(String token, UserDetails userDetails) {
-        logger.info("Validating JWT token for user: {}", userDetails.getUsername());
+        logger.debug("Validating JWT token for user: {}", userDetails.getUsername());
         final String username = extractUsername(token);
         boolean isValid = username.equals(userDetails.getUsername()) && !isTokenExpired(token);
         logger.debug("Token is valid: {}", isValid);
@@ -83,7 +83,7 @@ public class JwtTokenService {
      * @return true, если срок действия токена истек, иначе false.
      */
     private boolean isTokenExpired(String token) {
-        logger.info("Checking if JWT token is expired");
+        logger.debug("Checking if JWT token is expired");
         final Date expiration = getExpirationDateFromToken(token);
         boolean isExpired = expiration.before(new Date());
         logger.debug("Token is expired: {}", isExpired);
@@ -97,7 +97,7 @@ public class JwtTokenService {
      * @return дата истечения срока действия токена.
      */
     private Date getExpirationDateFromToken(String token) {
-        logger.info("Getting expiration date from JWT token");
+        logger.debug("Getting expiration date from JWT token");
         Date expirationDate = JWT.require(Algorithm.HMAC512(secret.getBytes()))
                 .build()
                 .verify(token)
@@ -1,5 +1,7 @@
 package com.example.banking.service;
 
+import com.example.banking.audit.AuditEventType;
+import com.example.banking.audit.AuditLog;
 import com.example.banking.model.ClientAuthenticationRequest;
 import com.example.banking.security.JwtTokenService;
 import org.slf4j.Logger;
@@ -12,6 +14,8 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 /**
  * Сервис для аутентификации пользователей.
  *
@@ -25,11 +29,13 @@ public class AuthenticationService {
     private final JwtUserDetailsService jwtUserDetailsService;
     private final JwtTokenService jwtTokenService;
     private final AuthenticationManager authenticationManager;
+    private final AuditLog auditLog;
 
-    public AuthenticationService(JwtUserDetailsService jwtUserDetailsService, JwtTokenService jwtTokenService, AuthenticationManager authenticationManager) {
+    public AuthenticationService(JwtUserDetailsService jwtUserDetailsService, JwtTokenService jwtTokenService, AuthenticationManager authenticationManager, AuditLog auditLog) {
         this.jwtUserDetailsService = jwtUserDetailsService;
         this.jwtTokenService = jwtTokenService;
         this.authenticationManager = authenticationManager;
+        this.auditLog = auditLog;
     }
 
     /**
@@ -41,11 +47,12 @@ public class AuthenticationService {
      */
     public ResponseEntity<String> authenticate(ClientAuthenticationRequest clientAuthenticationRequest) throws AuthenticationException {
         try {
-            logger.info("Authenticating user: {}", clientAuthenticationRequest.getUsername());
+            logger.debug("Authenticating user: {}", clientAuthenticationRequest.getUsername());
             authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
                     clientAuthenticationRequest.getUsername(), clientAuthenticationRequest.getPassword()));
         } catch (AuthenticationException e) {
-            logger.error("Authentication failed for user: {}", clientAuthenticationRequest.getUsername(), e);
+            logger.warn("Authentication failed for user: {}: {}", clientAuthenticationRequest.getUsername(), e.getMessage());
+            auditLog.record(AuditEventType.LOGIN_FAILURE, clientAuthenticationRequest.getUsername(), Map.of("reason", e.getClass().getSimpleName()));
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
         }
 
@@ -53,7 +60,8 @@ public class AuthenticationService {
         logger.debug("Loaded user details for user: {}", clientAuthenticationRequest.getUsername());
 
         final String accessToken = jwtTokenService.generateToken(userDetails);
-        logger.info("Generated access token for user: {}", clientAuthenticationRequest.getUsername());
+        logger.debug("Generated access token for user: {}", clientAuthenticationRequest.getUsername());
+        auditLog.record(AuditEventType.LOGIN_SUCCESS, clientAuthenticationRequest.getUsername(), Map.of());
 
         return ResponseEntity.ok("Authentication successful! Access token: " + accessToken);
     }
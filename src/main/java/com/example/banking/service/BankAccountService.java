@@ -1,18 +1,32 @@
 package com.example.banking.service;
 
+import com.example.banking.dto.AccountBalanceDTO;
 import com.example.banking.exception.BalanceException;
+import com.example.banking.exception.ClientInputException;
+import com.example.banking.metrics.BankingMetrics;
 import com.example.banking.model.BankAccount;
 import com.example.banking.model.Client;
+import com.example.banking.model.OutboxEventType;
+import com.example.banking.outbox.OutboxPublisher;
 import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.sharding.ShardRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Сервис для управления банковскими счетами.
@@ -23,11 +37,34 @@ import java.util.List;
 public class BankAccountService {
 
     private static final Logger logger = LoggerFactory.getLogger(BankAccountService.class);
+    private static final BigDecimal INTEREST_FACTOR = BigDecimal.valueOf(1.05);
+    private static final BigDecimal MAX_BALANCE_FACTOR = BigDecimal.valueOf(2.07);
+
     private final BankAccountRepository bankAccountRepository;
+    private final BankingMetrics bankingMetrics;
+    private final LedgerService ledgerService;
+    private final OutboxPublisher outboxPublisher;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int balancesChunkSize;
+    private final int interestBatchSize;
 
     @Autowired
-    public BankAccountService(BankAccountRepository bankAccountRepository) {
+    public BankAccountService(BankAccountRepository bankAccountRepository, BankingMetrics bankingMetrics, LedgerService ledgerService,
+                              OutboxPublisher outboxPublisher, ShardRouter shardRouter, PlatformTransactionManager transactionManager,
+                              @Value("${banking.accounts.balances.chunk-size:500}") int balancesChunkSize,
+                              @Value("${banking.interest.batch-size:500}") int interestBatchSize) {
         this.bankAccountRepository = bankAccountRepository;
+        this.bankingMetrics = bankingMetrics;
+        this.ledgerService = ledgerService;
+        this.outboxPublisher = outboxPublisher;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.balancesChunkSize = balancesChunkSize;
+        this.interestBatchSize = interestBatchSize;
     }
 
     /**
@@ -37,38 +74,117 @@ public class BankAccountService {
      * @param initialBalance начальный баланс счета.
      */
     public void createBankAccount(Client client, BigDecimal initialBalance) {
-        logger.info("Creating bank account for client: {}", client.getUsername());
+        logger.debug("Creating bank account for client: {}", client.getUsername());
         BankAccount bankAccount = new BankAccount();
         bankAccount.setClient(client);
         bankAccount.setBalance(initialBalance);
         bankAccount.setInitialBalance(initialBalance);
         bankAccountRepository.save(bankAccount);
-        logger.info("Bank account created for client: {}", client.getUsername());
+        ledgerService.recordOpening(bankAccount);
+        logger.debug("Bank account created for client: {}", client.getUsername());
+    }
+
+    /**
+     * Остатки счетов по ID счетов и ID клиентов.
+     * <p>
+     * ID группируются по шардам и делятся на части по {@code banking.accounts.balances.chunk-size}; каждая часть
+     * читается одним запросом {@code IN} с проекцией на ID и остаток, без загрузки счетов и клиентов.
+     * Неизвестные ID пропускаются.
+     *
+     * @param accountIds ID счетов.
+     * @param clientIds  ID клиентов.
+     * @return остатки найденных счетов, по одному на счет.
+     * @throws ClientInputException если не передано ни одного ID.
+     */
+    public List<AccountBalanceDTO> getBalances(Collection<Long> accountIds, Collection<Long> clientIds) {
+        if (accountIds.isEmpty() && clientIds.isEmpty()) {
+            throw new ClientInputException("Account or client IDs are required");
+        }
+        Map<Long, AccountBalanceDTO> balances = new LinkedHashMap<>();
+        collectBalances(accountIds, bankAccountRepository::findBalances, balances);
+        collectBalances(clientIds, bankAccountRepository::findBalancesByClientIds, balances);
+        return new ArrayList<>(balances.values());
+    }
+
+    // ID счета совпадает с ID клиента, поэтому оба вида ID группируются по шардам одинаково
+    private void collectBalances(Collection<Long> ids, Function<Collection<Long>, List<AccountBalanceDTO>> query,
+                                 Map<Long, AccountBalanceDTO> balances) {
+        Map<String, List<Long>> idsByShard = new LinkedHashMap<>();
+        ids.stream().distinct().forEach(id -> idsByShard.computeIfAbsent(shardRouter.shardOf(id), shard -> new ArrayList<>()).add(id));
+        idsByShard.forEach((shard, shardIds) -> shardRouter.onShard(shard, () -> readOnlyTransaction.execute(status -> {
+            for (int from = 0; from < shardIds.size(); from += balancesChunkSize) {
+                List<Long> chunk = shardIds.subList(from, Math.min(from + balancesChunkSize, shardIds.size()));
+                query.apply(chunk).forEach(balance -> balances.putIfAbsent(balance.getAccountId(), balance));
+            }
+            return null;
+        })));
     }
 
     /**
-     * Обновляет баланс всех банковских счетов с фиксированным интервалом.
+     * Обновляет баланс всех банковских счетов.
      * <p>
-     * Запускается каждые 60 секунд.
+     * Запускается каждые 60 секунд из {@link InterestAccrualScheduler}, если {@code banking.interest.enabled=true}.
+     * Счета блокируются, так как начисление записывается
+     * проводкой в журнал, но не все сразу: они обходятся пачками по {@code banking.interest.batch-size} в порядке ID,
+     * каждая пачка — отдельной транзакцией, поэтому переводы ждут блокировку не дольше начисления одной пачки.
+     * Начисление публикуется в outbox одним событием на пачку, а не событием на счет.
+     * При шардировании счета каждого шарда обновляются на этом шарде.
      */
-    @Scheduled(fixedRate = 60000)
-    @Transactional
     public void updateBalance() {
-        logger.info("Starting scheduled balance update.");
-        List<BankAccount> accounts = bankAccountRepository.findAll();
-        for (BankAccount account : accounts) {
-            BigDecimal maxBalance = account.getInitialBalance().multiply(BigDecimal.valueOf(2.07));
-            BigDecimal newBalance = account.getBalance().multiply(BigDecimal.valueOf(1.05));
+        shardRouter.forEachShard(this::accrueInterest);
+    }
 
-            if (newBalance.compareTo(maxBalance) > 0) {
-                logger.error("Max balance exceeded for account ID: {}", account.getId());
-                throw new BalanceException("The maximum balance limit has been exceeded for account ID: " + account.getId());
+    private void accrueInterest() {
+        long start = bankingMetrics.start();
+        logger.info("Starting scheduled balance update.");
+        int accounts = 0;
+        long afterId = Long.MIN_VALUE;
+        List<BankAccount> batch;
+        do {
+            long lastId = afterId;
+            batch = transactionTemplate.execute(status -> accrueInterestBatch(lastId));
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+                accounts += batch.size();
             }
+        } while (batch.size() == interestBatchSize);
+        bankingMetrics.recordInterestUpdate(start, accounts);
+        logger.info("Scheduled balance update completed.");
+    }
 
+    private List<BankAccount> accrueInterestBatch(long afterId) {
+        List<BankAccount> accounts = bankAccountRepository.findBatchForUpdate(afterId, PageRequest.of(0, interestBatchSize));
+        if (accounts.isEmpty()) {
+            return accounts;
+        }
+        for (BankAccount account : accounts) {
+            BigDecimal newBalance = accruedBalance(account);
+            ledgerService.recordInterest(account, newBalance.subtract(account.getBalance()));
             account.setBalance(newBalance);
-            logger.info("Updated balance for account ID: {}", account.getId());
+            logger.debug("Updated balance for account ID: {}", account.getId());
         }
         bankAccountRepository.saveAll(accounts);
-        logger.info("Scheduled balance update completed.");
+        // Пачка выбрана по возрастанию ID, поэтому диапазон от первого до последнего счета покрывает ее целиком
+        outboxPublisher.publish(OutboxEventType.INTEREST_ACCRUED, null, Map.of("accounts", accounts.size(),
+                "fromAccountId", accounts.get(0).getId(), "toAccountId", accounts.get(accounts.size() - 1).getId()));
+        return accounts;
+    }
+
+    /**
+     * Вычисляет баланс счета после начисления 5%, округленный до копеек так же, как он хранится в базе.
+     *
+     * @param account банковский счет.
+     * @return новый баланс.
+     * @throws BalanceException если новый баланс превышает 207% от начального депозита.
+     */
+    static BigDecimal accruedBalance(BankAccount account) {
+        BigDecimal maxBalance = account.getInitialBalance().multiply(MAX_BALANCE_FACTOR);
+        BigDecimal newBalance = account.getBalance().multiply(INTEREST_FACTOR).setScale(2, RoundingMode.HALF_UP);
+
+        if (newBalance.compareTo(maxBalance) > 0) {
+            logger.error("Max balance exceeded for account ID: {}", account.getId());
+            throw new BalanceException("The maximum balance limit has been exceeded for account ID: " + account.getId());
+        }
+        return newBalance;
     }
 }
@@ -0,0 +1,180 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных запросов поиска клиентов (single-flight) и кэш результатов с коротким TTL.
+ * <p>
+ * Первый запрос с данным ключом выполняет поиск, одновременные запросы с тем же ключом ждут его результат не дольше
+ * {@code banking.search-cache.wait-timeout}, после чего выполняют поиск сами. Результат
+ * хранится {@code banking.search-cache.ttl} (0 — только объединение запросов). Создание клиента и изменение контактов
+ * сбрасывают кэш после фиксации транзакции; результаты поисков, начатых до сброса, не кэшируются.
+ * Метрика {@code banking.search.requests} с тегом {@code result}: {@code hit}, {@code coalesced} или {@code miss}.
+ *
+ * @author nimatullah
+ */
+@Component
+public class ClientSearchCache {
+
+    /**
+     * Нормализованные критерии поиска: учитывается только критерий, который фактически применяется.
+     */
+    record Key(String criterion, String value, int page, int size, String sortBy) {
+    }
+
+    private record Entry(Page<ClientResponseDTO> result, long expiresAtNanos) {
+    }
+
+    private final long ttlNanos;
+    private final long waitTimeoutNanos;
+    private final int maxEntries;
+    private final Map<Key, Entry> results = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<Page<ClientResponseDTO>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter coalesced;
+    private final Counter misses;
+
+    public ClientSearchCache(MeterRegistry meterRegistry,
+                             @Value("${banking.search-cache.ttl:2s}") Duration ttl,
+                             @Value("${banking.search-cache.wait-timeout:5s}") Duration waitTimeout,
+                             @Value("${banking.search-cache.max-entries:1000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.maxEntries = maxEntries;
+        this.hits = counter(meterRegistry, "hit");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        this.misses = counter(meterRegistry, "miss");
+        Gauge.builder("banking.search.cache.size", results, Map::size)
+                .description("Количество закэшированных результатов поиска клиентов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает результат из кэша, результат уже выполняемого поиска с тем же ключом или выполняет поиск.
+     */
+    public Page<ClientResponseDTO> get(Key key, Supplier<Page<ClientResponseDTO>> search) {
+        Entry entry = results.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos() < 0) {
+            hits.increment();
+            return entry.result();
+        }
+
+        CompletableFuture<Page<ClientResponseDTO>> flight = new CompletableFuture<>();
+        CompletableFuture<Page<ClientResponseDTO>> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            Page<ClientResponseDTO> result = await(existing);
+            if (result != null) {
+                return result;
+            }
+            // Поиск не завершился за время ожидания: выполняется без объединения и без кэширования
+            misses.increment();
+            return search.get();
+        }
+
+        misses.increment();
+        long startGeneration = generation.get();
+        try {
+            Page<ClientResponseDTO> result = search.get();
+            if (ttlNanos > 0) {
+                store(key, result, startGeneration);
+            }
+            flight.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Ожидающие получают и ошибки (Error), иначе ждали бы результат, который не будет записан
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Сбрасывает кэш после фиксации текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate();
+            }
+        });
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        // Запросы после сброса не присоединяются к поискам, начатым до него
+        inFlight.clear();
+        results.clear();
+    }
+
+    private void store(Key key, Page<ClientResponseDTO> result, long startGeneration) {
+        if (generation.get() != startGeneration) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (results.size() >= maxEntries) {
+            results.values().removeIf(entry -> now - entry.expiresAtNanos() >= 0);
+            if (results.size() >= maxEntries) {
+                results.clear();
+            }
+        }
+        Entry entry = new Entry(result, now + ttlNanos);
+        results.put(key, entry);
+        // Сброс мог произойти между проверкой поколения и записью
+        if (generation.get() != startGeneration) {
+            results.remove(key, entry);
+        }
+    }
+
+    // Результат выполняемого поиска или null, если он не получен за время ожидания
+    private Page<ClientResponseDTO> await(CompletableFuture<Page<ClientResponseDTO>> flight) {
+        try {
+            return flight.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a client search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("banking.search.requests")
+                .description("Запросы поиска клиентов по источнику результата")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
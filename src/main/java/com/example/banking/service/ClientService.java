@@ -1,24 +1,38 @@
 package com.example.banking.service;
 
+import com.example.banking.audit.AuditEventType;
+import com.example.banking.audit.AuditLog;
 import com.example.banking.dto.ClientDTO;
 import com.example.banking.dto.ClientResponseDTO;
 import com.example.banking.exception.ClientInputException;
 import com.example.banking.exception.UserNotFoundException;
 import com.example.banking.model.Client;
+import com.example.banking.model.OutboxEventType;
+import com.example.banking.outbox.OutboxPublisher;
 import com.example.banking.repository.ClientRepository;
+import com.example.banking.sharding.ShardRouter;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Сервис для управления клиентами.
@@ -35,58 +49,83 @@ public class ClientService {
     private final ModelMapper modelMapper;
     private final BankAccountService bankAccountService;
     private final PasswordEncoder passwordEncoder;
+    private final AuditLog auditLog;
+    private final ClientSearchCache clientSearchCache;
+    private final OutboxPublisher outboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
 
     @Autowired
-    public ClientService(ClientRepository clientRepository, ModelMapper modelMapper, BankAccountService bankAccountService, PasswordEncoder passwordEncoder) {
+    public ClientService(ClientRepository clientRepository, ModelMapper modelMapper, BankAccountService bankAccountService, PasswordEncoder passwordEncoder, AuditLog auditLog,
+                         ClientSearchCache clientSearchCache, OutboxPublisher outboxPublisher, PlatformTransactionManager transactionManager,
+                         ShardRouter shardRouter) {
         this.clientRepository = clientRepository;
         this.modelMapper = modelMapper;
         this.bankAccountService = bankAccountService;
         this.passwordEncoder = passwordEncoder;
+        this.auditLog = auditLog;
+        this.clientSearchCache = clientSearchCache;
+        this.outboxPublisher = outboxPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
     }
 
     /**
      * Создает нового клиента и банковский счет для него.
+     * <p>
+     * Логин, телефон и почта проверяются на всех шардах, клиент создается на следующем шарде по кругу,
+     * поэтому метод выполняется вне внешней транзакции.
      *
      * @param clientDTO данные клиента для создания.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void createClient(ClientDTO clientDTO) {
         logger.info("Creating client: {}", clientDTO.getUsername());
         Client client = clientMapper(clientDTO);
-        validateClient(client);
+        shardRouter.forEachShard(() -> readOnlyTransaction.executeWithoutResult(status -> validateClient(client)));
         client.setPassword(passwordEncoder.encode(client.getPassword()));
-        clientRepository.save(client);
-        bankAccountService.createBankAccount(client, clientDTO.getInitialBalance());
+        shardRouter.onShard(shardRouter.nextShard(), () -> transactionTemplate.execute(status -> {
+            clientRepository.save(client);
+            bankAccountService.createBankAccount(client, clientDTO.getInitialBalance());
+            outboxPublisher.publish(OutboxEventType.CLIENT_REGISTERED, client.getId(), Map.of("username", client.getUsername()));
+            clientSearchCache.invalidateAfterCommit();
+            return client;
+        }));
         logger.info("Client created: {}", clientDTO.getUsername());
     }
 
     /**
      * Обновляет контактную информацию клиента.
+     * <p>
+     * Телефон и почта проверяются на всех шардах до записи, запись выполняется на шарде клиента,
+     * поэтому метод выполняется вне внешней транзакции.
      *
      * @param clientId    ID клиента.
      * @param phoneNumber новый номер телефона.
      * @param email       новая электронная почта.
      * @return обновленные данные клиента.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ClientResponseDTO updateClientContactInfo(Long clientId, String phoneNumber, String email) {
-        logger.info("Updating contact info for client ID: {}", clientId);
-        Client client = clientRepository.findById(clientId)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
+        logger.debug("Updating contact info for client ID: {}", clientId);
+        shardRouter.forEachShard(() -> readOnlyTransaction.executeWithoutResult(status -> validateContactInfo(phoneNumber, email)));
 
-        if (phoneNumber != null && clientRepository.findOneByPhoneNumber(phoneNumber).isPresent()) {
-            logger.warn("Phone number {} already in use", phoneNumber);
-            throw new ClientInputException("Phone already in use");
-        }
+        ClientResponseDTO updatedClient = shardRouter.onClientShard(clientId, () -> transactionTemplate.execute(status -> {
+            Client client = clientRepository.findById(clientId)
+                    .orElseThrow(() -> new UserNotFoundException("User not found"));
+            client.setPhoneNumber(phoneNumber);
+            client.setEmail(email);
 
-        if (email != null && clientRepository.findOneByEmail(email).isPresent()) {
-            logger.warn("Email {} already in use", email);
-            throw new ClientInputException("Email already in use");
-        }
-
-        client.setPhoneNumber(phoneNumber);
-        client.setEmail(email);
-
-        ClientResponseDTO updatedClient = clientMapper(clientRepository.save(client));
-        logger.info("Contact info updated for client ID: {}", clientId);
+            ClientResponseDTO updated = clientMapper(clientRepository.save(client));
+            auditLog.recordAfterCommit(AuditEventType.CONTACT_UPDATED, Map.of("clientId", clientId));
+            outboxPublisher.publish(OutboxEventType.CONTACT_CHANGED, clientId, Map.of());
+            clientSearchCache.invalidateAfterCommit();
+            return updated;
+        }));
+        logger.debug("Contact info updated for client ID: {}", clientId);
         return updatedClient;
     }
 
@@ -99,7 +138,7 @@ public class ClientService {
      * @return обновленные данные клиента.
      */
     public ClientResponseDTO deleteClientContactInfo(Long clientId, boolean deletePhoneNumber, boolean deleteEmail) {
-        logger.info("Deleting contact info for client ID: {}", clientId);
+        logger.debug("Deleting contact info for client ID: {}", clientId);
         Client client = clientRepository.findById(clientId)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
@@ -125,12 +164,23 @@ public class ClientService {
         }
 
         ClientResponseDTO updatedClient = clientMapper(clientRepository.save(client));
-        logger.info("Contact info deleted for client ID: {}", clientId);
+        auditLog.recordAfterCommit(AuditEventType.CONTACT_DELETED, Map.of("clientId", clientId, "phoneNumber", deletePhoneNumber, "email", deleteEmail));
+        outboxPublisher.publish(OutboxEventType.CONTACT_CHANGED, clientId, Map.of());
+        clientSearchCache.invalidateAfterCommit();
+        logger.debug("Contact info deleted for client ID: {}", clientId);
         return updatedClient;
     }
 
     /**
      * Поиск клиентов по различным критериям.
+     * <p>
+     * Одинаковые одновременные запросы выполняются один раз, результат кратковременно кэшируется
+     * ({@link ClientSearchCache}). Поиск выполняется в отдельной read-only транзакции только у запроса,
+     * который фактически обращается к базе, поэтому ожидающие запросы не занимают соединения.
+     * <p>
+     * При шардировании поиск выполняется на каждом шарде, и страница собирается слиянием первых
+     * {@code (page + 1) * size} результатов шардов. Слияние упорядочивает по ID, имени, телефону, почте и дате
+     * рождения; при сортировке по другим полям результаты шардов объединяются по ID.
      *
      * @param fullName    полное имя клиента.
      * @param phoneNumber номер телефона клиента.
@@ -141,38 +191,97 @@ public class ClientService {
      * @param sortBy      параметр сортировки.
      * @return страница с данными клиентов.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<ClientResponseDTO> searchClients(String fullName, String phoneNumber, String email, LocalDate birthDate, int page, int size, String sortBy) {
-        logger.info("Searching clients with criteria - fullName: {}, phoneNumber: {}, email: {}, birthDate: {}", fullName, phoneNumber, email, birthDate);
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy));
-        Page<Client> clients;
+        logger.debug("Searching clients with criteria - fullName: {}, phoneNumber: {}, email: {}, birthDate: {}", fullName, phoneNumber, email, birthDate);
+        ClientSearchCache.Key key = searchKey(fullName, phoneNumber, email, birthDate, page, size, sortBy);
+        return clientSearchCache.get(key, () -> search(key));
+    }
+
+    private Page<ClientResponseDTO> search(ClientSearchCache.Key key) {
+        Pageable pageable = PageRequest.of(key.page(), key.size(), Sort.by(key.sortBy()));
+        Page<ClientRepository.ClientSummary> clients;
+        if (!shardRouter.isSharded()) {
+            clients = readOnlyTransaction.execute(status -> find(key, pageable));
+        } else {
+            Pageable head = PageRequest.of(0, (key.page() + 1) * key.size(), pageable.getSort());
+            List<ClientRepository.ClientSummary> found = new ArrayList<>();
+            long[] total = new long[1];
+            shardRouter.forEachShard(() -> {
+                Page<ClientRepository.ClientSummary> shardClients = readOnlyTransaction.execute(status -> find(key, head));
+                found.addAll(shardClients.getContent());
+                total[0] += shardClients.getTotalElements();
+            });
+            List<ClientRepository.ClientSummary> content = found.stream()
+                    .sorted(searchOrder(key.sortBy()))
+                    .skip(pageable.getOffset())
+                    .limit(key.size())
+                    .toList();
+            clients = new PageImpl<>(content, pageable, total[0]);
+        }
+
+        logger.debug("Found {} clients matching the criteria", clients.getTotalElements());
+        return clients.map(ClientService::summaryMapper);
+    }
 
+    private Page<ClientRepository.ClientSummary> find(ClientSearchCache.Key key, Pageable pageable) {
+        return switch (key.criterion()) {
+            case "fullName" -> clientRepository.findByFullNameLike(key.value(), pageable);
+            case "phoneNumber" -> clientRepository.findByPhoneNumber(key.value(), pageable);
+            case "email" -> clientRepository.findByEmail(key.value(), pageable);
+            case "birthDate" -> clientRepository.findByBirthDateAfter(key.value(), pageable);
+            default -> clientRepository.findAllBy(pageable);
+        };
+    }
+
+    // Порядок слияния результатов шардов; как и в PostgreSQL, пустые значения идут последними
+    private static Comparator<ClientRepository.ClientSummary> searchOrder(String sortBy) {
+        Function<ClientRepository.ClientSummary, String> field = switch (sortBy) {
+            case "fullName" -> ClientRepository.ClientSummary::getFullName;
+            case "phoneNumber" -> ClientRepository.ClientSummary::getPhoneNumber;
+            case "email" -> ClientRepository.ClientSummary::getEmail;
+            case "birthDate" -> ClientRepository.ClientSummary::getBirthDate;
+            default -> null;
+        };
+        Comparator<ClientRepository.ClientSummary> byId = Comparator.comparing(ClientRepository.ClientSummary::getId);
+        return field == null ? byId
+                : Comparator.comparing(field, Comparator.nullsLast(Comparator.<String>naturalOrder())).thenComparing(byId);
+    }
+
+    // Применяется первый заданный критерий, остальные на результат не влияют и в ключ не входят
+    private static ClientSearchCache.Key searchKey(String fullName, String phoneNumber, String email, LocalDate birthDate, int page, int size, String sortBy) {
         if (fullName != null) {
-            clients = clientRepository.findByFullNameLike(fullName, pageable);
+            return new ClientSearchCache.Key("fullName", fullName, page, size, sortBy);
         } else if (phoneNumber != null) {
-            clients = clientRepository.findByPhoneNumber(phoneNumber, pageable);
+            return new ClientSearchCache.Key("phoneNumber", phoneNumber, page, size, sortBy);
         } else if (email != null) {
-            clients = clientRepository.findByEmail(email, pageable);
+            return new ClientSearchCache.Key("email", email, page, size, sortBy);
         } else if (birthDate != null) {
-            clients = clientRepository.findByBirthDateAfter(String.valueOf(birthDate), pageable);
-        } else {
-            clients = clientRepository.findAll(pageable);
+            return new ClientSearchCache.Key("birthDate", String.valueOf(birthDate), page, size, sortBy);
         }
-
-        logger.info("Found {} clients matching the criteria", clients.getTotalElements());
-        return clients.map(this::clientMapper);
+        return new ClientSearchCache.Key("all", null, page, size, sortBy);
     }
 
     // Вспомогательные методы
 
-    private Client clientMapper(ClientDTO clientDTO) {
+    Client clientMapper(ClientDTO clientDTO) {
         return modelMapper.map(clientDTO, Client.class);
     }
 
-    private ClientResponseDTO clientMapper(Client client) {
+    ClientResponseDTO clientMapper(Client client) {
         return modelMapper.map(client, ClientResponseDTO.class);
     }
 
+    private static ClientResponseDTO summaryMapper(ClientRepository.ClientSummary summary) {
+        ClientResponseDTO clientResponseDTO = new ClientResponseDTO();
+        clientResponseDTO.setId(summary.getId());
+        clientResponseDTO.setFullName(summary.getFullName());
+        clientResponseDTO.setPhoneNumber(summary.getPhoneNumber());
+        clientResponseDTO.setEmail(summary.getEmail());
+        clientResponseDTO.setBirthDate(summary.getBirthDate());
+        return clientResponseDTO;
+    }
+
     private void validateClient(Client client) {
         if (clientRepository.findByUsername(client.getUsername()).isPresent()) {
             logger.warn("Username {} already in use", client.getUsername());
@@ -189,4 +298,16 @@ public class ClientService {
             throw new ClientInputException("Email already in use");
         }
     }
+
+    private void validateContactInfo(String phoneNumber, String email) {
+        if (phoneNumber != null && clientRepository.findOneByPhoneNumber(phoneNumber).isPresent()) {
+            logger.warn("Phone number {} already in use", phoneNumber);
+            throw new ClientInputException("Phone already in use");
+        }
+
+        if (email != null && clientRepository.findOneByEmail(email).isPresent()) {
+            logger.warn("Email {} already in use", email);
+            throw new ClientInputException("Email already in use");
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientViewDTO;
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.ClientView;
+import com.example.banking.outbox.OutboxListener;
+import com.example.banking.outbox.OutboxMessage;
+import com.example.banking.outbox.OutboxRelay;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientViewRepository;
+import com.example.banking.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Модель чтения профиля клиента ({@code client_view}): профиль, баланс и последние
+ * {@code banking.client-view.recent-transactions} переводов одной строкой на клиента.
+ * <p>
+ * Строки обновляет получатель outbox {@value #CONSUMER} по событиям регистрации, изменения контактов, переводов
+ * и начисления процентов. Строки затронутых пачкой клиентов пересобираются из таблиц записи одним запросом в
+ * транзакции, сдвигающей позицию получателя, поэтому повторная доставка пачки ничего не меняет. Событие начисления
+ * процентов несет диапазон ID счетов своей пачки, и переносятся балансы только этих строк.
+ * <p>
+ * Чтение обращается к одной строке по первичному ключу без соединений и маппинга. Если отставание получателя
+ * больше {@code banking.client-view.max-staleness} или строки еще нет, профиль собирается из таблиц записи тем же
+ * запросом, что и строка модели чтения.
+ *
+ * @author nimatullah
+ */
+@Service
+public class ClientViewService implements OutboxListener {
+
+    public static final String CONSUMER = "client-view";
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientViewService.class);
+
+    private final ClientViewRepository clientViewRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectProvider<OutboxRelay> outboxRelay;
+    private final ObjectMapper objectMapper;
+    private final int recentTransactions;
+    private final Duration maxStaleness;
+    private final Counter viewReads;
+    private final Counter liveReads;
+
+    public ClientViewService(ClientViewRepository clientViewRepository,
+                             BankAccountRepository bankAccountRepository,
+                             OutboxEventRepository outboxEventRepository,
+                             ObjectProvider<OutboxRelay> outboxRelay,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${banking.client-view.recent-transactions:10}") int recentTransactions,
+                             @Value("${banking.client-view.max-staleness:5s}") Duration maxStaleness) {
+        this.clientViewRepository = clientViewRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxRelay = outboxRelay;
+        this.objectMapper = objectMapper;
+        this.recentTransactions = recentTransactions;
+        this.maxStaleness = maxStaleness;
+        this.viewReads = Counter.builder("banking.clientview.reads")
+                .description("Чтения профиля клиента")
+                .tag("source", "view")
+                .register(meterRegistry);
+        this.liveReads = Counter.builder("banking.clientview.reads")
+                .description("Чтения профиля клиента")
+                .tag("source", "live")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Профиль клиента с балансом и последними переводами.
+     *
+     * @param clientId ID клиента.
+     * @return профиль клиента.
+     * @throws UserNotFoundException если клиента нет.
+     */
+    @Transactional(readOnly = true)
+    public ClientViewDTO getView(Long clientId) {
+        Optional<ClientView> view = fresh() ? clientViewRepository.findById(clientId) : Optional.empty();
+        if (view.isPresent()) {
+            viewReads.increment();
+        } else {
+            // Строка собирается не раньше последнего записанного события, поэтому его номер — нижняя граница версии
+            Long headId = outboxEventRepository.findMaxId();
+            view = clientViewRepository.findLive(clientId, recentTransactions, headId == null ? 0 : headId, LocalDateTime.now());
+            liveReads.increment();
+        }
+        return view.map(ClientViewService::toDto)
+                .orElseThrow(() -> new UserNotFoundException("User not found"));
+    }
+
+    @Override
+    public String consumer() {
+        return CONSUMER;
+    }
+
+    @Override
+    public void onEvents(List<OutboxMessage> events) {
+        Set<Long> clientIds = new HashSet<>();
+        Set<Long> accountIds = new HashSet<>();
+        List<long[]> interestRanges = new ArrayList<>();
+        for (OutboxMessage event : events) {
+            switch (event.type()) {
+                case CLIENT_REGISTERED, CONTACT_CHANGED -> {
+                    if (event.aggregateId() != null) {
+                        clientIds.add(event.aggregateId());
+                    }
+                }
+                case TRANSFER_COMPLETED, TRANSFER_CREDITED -> {
+                    JsonNode payload = payload(event);
+                    addId(accountIds, payload.get("fromAccountId"));
+                    addId(accountIds, payload.get("toAccountId"));
+                }
+                case INTEREST_ACCRUED -> {
+                    JsonNode payload = payload(event);
+                    JsonNode fromId = payload.get("fromAccountId");
+                    JsonNode toId = payload.get("toAccountId");
+                    if (fromId != null && fromId.canConvertToLong() && toId != null && toId.canConvertToLong()) {
+                        interestRanges.add(new long[]{fromId.asLong(), toId.asLong()});
+                    }
+                }
+            }
+        }
+        long version = events.get(events.size() - 1).id();
+        LocalDateTime now = LocalDateTime.now();
+        if (!accountIds.isEmpty()) {
+            clientIds.addAll(bankAccountRepository.findClientIds(accountIds));
+        }
+        for (long[] range : interestRanges) {
+            clientViewRepository.refreshBalances(range[0], range[1], version, now);
+        }
+        if (!clientIds.isEmpty()) {
+            int refreshed = clientViewRepository.refresh(clientIds, recentTransactions, version, now);
+            logger.debug("Refreshed {} client view row(s) up to outbox event {}", refreshed, version);
+        }
+    }
+
+    // Отставание получателя известно по последней пересылке; без пересылки модель чтения не обновляется
+    private boolean fresh() {
+        OutboxRelay relay = outboxRelay.getIfAvailable();
+        Duration lag = relay == null ? null : relay.lag(CONSUMER);
+        return lag != null && lag.compareTo(maxStaleness) <= 0;
+    }
+
+    private JsonNode payload(OutboxMessage event) {
+        try {
+            return objectMapper.readTree(event.payload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot parse outbox event " + event.id(), e);
+        }
+    }
+
+    private static void addId(Set<Long> ids, JsonNode id) {
+        if (id != null && id.canConvertToLong()) {
+            ids.add(id.asLong());
+        }
+    }
+
+    private static ClientViewDTO toDto(ClientView view) {
+        ClientViewDTO dto = new ClientViewDTO();
+        dto.setId(view.getClientId());
+        dto.setFullName(view.getFullName());
+        dto.setPhoneNumber(view.getPhoneNumber());
+        dto.setEmail(view.getEmail());
+        dto.setBirthDate(view.getBirthDate());
+        dto.setAccountId(view.getAccountId());
+        dto.setBalance(view.getBalance());
+        dto.setRecentTransactions(view.getRecentTransactions());
+        dto.setVersion(view.getVersion());
+        dto.setUpdatedAt(view.getUpdatedAt());
+        return dto;
+    }
+}
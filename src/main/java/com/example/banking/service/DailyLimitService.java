@@ -0,0 +1,246 @@
+package com.example.banking.service;
+
+import com.example.banking.exception.DailyLimitException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.DailyDebitUsage;
+import com.example.banking.repository.DailyDebitUsageRepository;
+import com.example.banking.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Суточные лимиты списаний со счета ({@code bank_account.daily_debit_limit}, по умолчанию
+ * {@code banking.daily-limit.default}).
+ * <p>
+ * Экземпляр берет у счета часть суточного лимита (не меньше {@code 1 / banking.daily-limit.chunks} лимита),
+ * увеличивая {@code daily_debit_usage.reserved}, и расходует ее в памяти. Пока выданной части хватает, проверка
+ * не обращается к базе. Сумма частей всех экземпляров не превышает лимит, поэтому лимит не превышается при любом
+ * числе экземпляров; платой за это служит остаток, выданный другому экземпляру: перевод может быть отклонен, хотя
+ * суммарно по всем экземплярам лимит еще не израсходован. Остатки возвращаются при остановке экземпляра,
+ * остаток упавшего экземпляра пропадает до конца дня.
+ * <p>
+ * Проверка выполняется в транзакции перевода под блокировкой счета отправителя, поэтому части лимита одного счета
+ * выдаются по очереди. При откате перевода снимается и списание, и выданная в этой транзакции часть.
+ *
+ * @author nimatullah
+ */
+@Service
+public class DailyLimitService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyLimitService.class);
+
+    private record Lease(LocalDate day, AtomicLong remaining) {
+    }
+
+    private final DailyDebitUsageRepository dailyDebitUsageRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final BigDecimal defaultLimit;
+    private final int chunks;
+    // Остаток выданной части лимита по счетам, в копейках
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+    private final Counter refills;
+    private final Counter rejected;
+
+    public DailyLimitService(DailyDebitUsageRepository dailyDebitUsageRepository,
+                             ShardRouter shardRouter,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${banking.daily-limit.enabled:true}") boolean enabled,
+                             @Value("${banking.daily-limit.default:3000000}") BigDecimal defaultLimit,
+                             @Value("${banking.daily-limit.chunks:4}") int chunks) {
+        this.dailyDebitUsageRepository = dailyDebitUsageRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.defaultLimit = defaultLimit;
+        this.chunks = chunks;
+        this.refills = Counter.builder("banking.dailylimit.refills")
+                .description("Части суточного лимита, взятые из базы")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("banking.dailylimit.rejected")
+                .description("Переводы, отклоненные суточным лимитом списаний")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Списывает сумму перевода с суточного лимита счета. Вызывается в транзакции перевода под блокировкой счета.
+     *
+     * @param account счет отправителя.
+     * @param amount  сумма перевода.
+     * @param now     время перевода.
+     * @throws DailyLimitException если лимит счета на день исчерпан.
+     */
+    public void check(BankAccount account, BigDecimal amount, LocalDateTime now) {
+        if (!enabled) {
+            return;
+        }
+        LocalDate day = now.toLocalDate();
+        long cents = cents(amount);
+        Lease lease = lease(account.getId(), day);
+        long fromLease = take(lease.remaining(), cents);
+        // Части, выданные этой же транзакцией, расходуются ее следующими переводами до фиксации
+        AtomicLong pending = pendingGrant(lease);
+        long fromPending = pending != null ? take(pending, cents - fromLease) : 0;
+        long needed = cents - fromLease - fromPending;
+        long granted = 0;
+        if (needed > 0) {
+            granted = reserve(account, day, needed);
+            if (granted < needed) {
+                lease.remaining().addAndGet(fromLease);
+                if (pending != null) {
+                    pending.addAndGet(fromPending);
+                }
+                rejected.increment();
+                logger.warn("Daily debit limit exceeded for account ID {}", account.getId());
+                throw new DailyLimitException("Daily debit limit exceeded");
+            }
+        }
+        long unused = granted - needed;
+        if (pending == null) {
+            lease.remaining().addAndGet(unused);
+            return;
+        }
+        pending.addAndGet(unused);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    lease.remaining().addAndGet(fromLease);
+                }
+            }
+        });
+    }
+
+    /**
+     * Неизрасходованный остаток частей лимита, выданных текущей транзакцией. Выданная часть видна другим экземплярам
+     * только после фиксации, поэтому в общий остаток в памяти она попадает после нее, а при откате пропадает.
+     *
+     * @return остаток транзакции или {@code null} вне транзакции.
+     */
+    @SuppressWarnings("unchecked")
+    private AtomicLong pendingGrant(Lease lease) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Lease, AtomicLong> pending = (Map<Lease, AtomicLong>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Lease, AtomicLong> grants = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, grants);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DailyLimitService.this);
+                    if (status == STATUS_COMMITTED) {
+                        grants.forEach((grantLease, remaining) -> grantLease.remaining().addAndGet(remaining.get()));
+                    }
+                }
+            });
+            pending = grants;
+        }
+        return pending.computeIfAbsent(lease, key -> new AtomicLong());
+    }
+
+    /**
+     * Возвращает неизрасходованные остатки за текущий день, чтобы их могли взять другие экземпляры.
+     */
+    @PreDestroy
+    public void releaseLeases() {
+        LocalDate today = LocalDate.now();
+        leases.forEach((accountId, lease) -> {
+            long remaining = lease.remaining().getAndSet(0);
+            if (remaining > 0 && lease.day().equals(today)) {
+                try {
+                    // Строка лимита хранится на шарде счета
+                    shardRouter.onClientShard(accountId, () -> transactionTemplate.execute(status -> dailyDebitUsageRepository.release(
+                            new DailyDebitUsage.Key(accountId, today), amount(remaining))));
+                } catch (RuntimeException e) {
+                    logger.warn("Cannot release daily limit lease of account ID {}: {}", accountId, e.toString());
+                }
+            }
+        });
+    }
+
+    /**
+     * Удаляет выданные части лимита за прошедшие дни.
+     */
+    @Scheduled(cron = "${banking.daily-limit.purge.cron:0 15 0 * * *}")
+    public void purge() {
+        LocalDate today = LocalDate.now();
+        leases.values().removeIf(lease -> lease.day().isBefore(today));
+        int[] deleted = new int[1];
+        shardRouter.forEachShard(() -> deleted[0] += transactionTemplate.execute(status ->
+                dailyDebitUsageRepository.deleteBefore(today.minusDays(1))));
+        logger.info("Purged {} daily debit usage row(s)", deleted[0]);
+    }
+
+    long remaining(Long accountId) {
+        Lease lease = leases.get(accountId);
+        return lease == null ? 0 : lease.remaining().get();
+    }
+
+    private Lease lease(Long accountId, LocalDate day) {
+        Lease lease = leases.get(accountId);
+        if (lease != null && lease.day().equals(day)) {
+            return lease;
+        }
+        return leases.compute(accountId, (id, current) -> current != null && current.day().equals(day)
+                ? current : new Lease(day, new AtomicLong()));
+    }
+
+    // Берет из остатка в памяти сколько есть, но не больше нужного
+    private static long take(AtomicLong available, long cents) {
+        while (true) {
+            long remaining = available.get();
+            long taken = Math.min(remaining, cents);
+            if (available.compareAndSet(remaining, remaining - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    // Берет из базы следующую часть лимита, не меньше needed; 0, если столько не осталось
+    private long reserve(BankAccount account, LocalDate day, long needed) {
+        long limit = cents(account.getDailyDebitLimit() != null ? account.getDailyDebitLimit() : defaultLimit);
+        DailyDebitUsage.Key key = new DailyDebitUsage.Key(account.getId(), day);
+        DailyDebitUsage usage = dailyDebitUsageRepository.findByIdForUpdate(key)
+                .orElseGet(() -> new DailyDebitUsage(key, BigDecimal.ZERO));
+        long available = limit - cents(usage.getReserved());
+        if (available < needed) {
+            return 0;
+        }
+        long granted = Math.min(available, Math.max(needed, (limit + chunks - 1) / chunks));
+        usage.setReserved(usage.getReserved().add(amount(granted)));
+        dailyDebitUsageRepository.save(usage);
+        refills.increment();
+        return granted;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.UP).longValueExact();
+    }
+
+    private static BigDecimal amount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
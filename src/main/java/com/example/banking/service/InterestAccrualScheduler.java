@@ -0,0 +1,27 @@
+package com.example.banking.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ежеминутное начисление процентов по расписанию. По умолчанию не запускается,
+ * включается свойством {@code banking.interest.enabled=true}.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.interest", name = "enabled", havingValue = "true")
+public class InterestAccrualScheduler {
+
+    private final BankAccountService bankAccountService;
+
+    public InterestAccrualScheduler(BankAccountService bankAccountService) {
+        this.bankAccountService = bankAccountService;
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void accrue() {
+        bankAccountService.updateBalance();
+    }
+}
@@ -2,20 +2,28 @@ package com.example.banking.service;
 
 import com.example.banking.model.Client;
 import com.example.banking.repository.ClientRepository;
+import com.example.banking.sharding.ShardRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Сервис для загрузки данных пользователя по имени пользователя и проверки доступа.
+ * Пользователи из {@code banking.security.admin-usernames} получают роль {@code ADMIN} (служебные эндпоинты Actuator).
  *
  * @author nimatullah
  */
@@ -23,11 +31,17 @@ import java.util.Date;
 public class JwtUserDetailsService implements UserDetailsService {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUserDetailsService.class);
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
 
     private final ClientRepository clientRepository;
+    private final ShardRouter shardRouter;
+    private final Set<String> adminUsernames;
 
-    public JwtUserDetailsService(ClientRepository clientRepository) {
+    public JwtUserDetailsService(ClientRepository clientRepository, ShardRouter shardRouter,
+                                 @Value("${banking.security.admin-usernames:}") Set<String> adminUsernames) {
         this.clientRepository = clientRepository;
+        this.shardRouter = shardRouter;
+        this.adminUsernames = adminUsernames;
     }
 
     /**
@@ -39,13 +53,17 @@ public class JwtUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(final String username) {
-        logger.info("Loading user by username: {}", username);
-        final Client client = clientRepository.findByUsername(username).orElseThrow(
+        logger.debug("Loading user by username: {}", username);
+        // Шард клиента по логину неизвестен, поэтому логин ищется на всех шардах
+        final Client client = shardRouter.findOnAnyShard(() -> clientRepository.findByUsername(username)).orElseThrow(
                 () -> {
                     logger.warn("User {} not found", username);
                     return new UsernameNotFoundException("User " + username + " not found");
                 });
-        return new Client(username, client.getPassword());
+        return User.withUsername(username)
+                .password(client.getPassword())
+                .authorities(adminUsernames.contains(username) ? ADMIN_AUTHORITIES : List.of())
+                .build();
     }
 
     /**
@@ -64,7 +82,7 @@ public class JwtUserDetailsService implements UserDetailsService {
      * @return true, если клиент аутентифицирован, иначе выбрасывается AccessDeniedException.
      */
     public boolean preAuthorizeClient() {
-        logger.info("Pre-authorizing client");
+        logger.debug("Pre-authorizing client");
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             logger.warn("Access denied: Not authenticated");
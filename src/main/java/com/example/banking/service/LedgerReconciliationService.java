@@ -0,0 +1,241 @@
+package com.example.banking.service;
+
+import com.example.banking.model.ReconciliationDiscrepancy;
+import com.example.banking.model.ReconciliationRun;
+import com.example.banking.model.ReconciliationStatus;
+import com.example.banking.repository.ReconciliationDiscrepancyRepository;
+import com.example.banking.repository.ReconciliationRunRepository;
+import com.example.banking.sharding.ShardContext;
+import com.example.banking.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Сверка остатков счетов с журналом: {@code balance = OPENING + CREDIT - DEBIT + INTEREST} по проводкам счета.
+ * Начальный взнос учитывается проводкой OPENING (для счетов, открытых до журнала, — остатком на момент миграции).
+ * <p>
+ * Диапазон ID счетов делится пополам задачами fork-join до {@code banking.reconciliation.partition-size} счетов;
+ * задачи выполняются в отдельном {@link ForkJoinPool} из {@code banking.reconciliation.parallelism} потоков.
+ * Диапазон сверяется одним запросом: суммы проводок по видам считаются в базе группировкой по индексу
+ * {@code ix_ledger_posting_account_id} и читаются курсором по {@code banking.reconciliation.fetch-size} строк.
+ * Запрос не блокирует строки, а остаток и проводки счета читает из одного снимка, поэтому сверка выполняется на
+ * работающей базе: перевод, зафиксированный во время сверки, виден запросу целиком или не виден вовсе.
+ * Запросы выполняются в read-only транзакциях и при включенных репликах читают с них.
+ * <p>
+ * Расхождения пишутся в {@code reconciliation_discrepancy}, итоги запуска — в {@code reconciliation_run}.
+ * Одновременно выполняется одна сверка на все экземпляры; запуск старше {@code banking.reconciliation.max-duration}
+ * считается прерванным.
+ *
+ * @author nimatullah
+ */
+@Service
+public class LedgerReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerReconciliationService.class);
+
+    private static final String PARTITION_QUERY = "SELECT a.id, a.balance, a.initial_balance, "
+            + "COALESCE(p.opening, 0) AS opening, COALESCE(p.credits, 0) AS credits, "
+            + "COALESCE(p.debits, 0) AS debits, COALESCE(p.interest, 0) AS interest "
+            + "FROM bank_account a LEFT JOIN ("
+            + "SELECT account_id, "
+            + "SUM(amount) FILTER (WHERE type = 'OPENING') AS opening, "
+            + "SUM(amount) FILTER (WHERE type = 'CREDIT') AS credits, "
+            + "-SUM(amount) FILTER (WHERE type = 'DEBIT') AS debits, "
+            + "SUM(amount) FILTER (WHERE type = 'INTEREST') AS interest "
+            + "FROM ledger_posting WHERE account_id >= ? AND account_id < ? GROUP BY account_id) p ON p.account_id = a.id "
+            + "WHERE a.id >= ? AND a.id < ?";
+
+    private record Result(long accounts, long discrepancies) {
+        Result plus(Result other) {
+            return new Result(accounts + other.accounts, discrepancies + other.discrepancies);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReconciliationRunRepository reconciliationRunRepository;
+    private final ReconciliationDiscrepancyRepository reconciliationDiscrepancyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long partitionSize;
+    private final int parallelism;
+    private final int fetchSize;
+    private final Duration maxDuration;
+    private final Timer duration;
+    private final Counter discrepancies;
+    private final ShardRouter shardRouter;
+
+    public LedgerReconciliationService(JdbcTemplate jdbcTemplate,
+                                       ReconciliationRunRepository reconciliationRunRepository,
+                                       ReconciliationDiscrepancyRepository reconciliationDiscrepancyRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       ShardRouter shardRouter,
+                                       @Value("${banking.reconciliation.enabled:true}") boolean enabled,
+                                       @Value("${banking.reconciliation.partition-size:10000}") long partitionSize,
+                                       @Value("${banking.reconciliation.parallelism:4}") int parallelism,
+                                       @Value("${banking.reconciliation.fetch-size:1000}") int fetchSize,
+                                       @Value("${banking.reconciliation.max-duration:1h}") Duration maxDuration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reconciliationRunRepository = reconciliationRunRepository;
+        this.reconciliationDiscrepancyRepository = reconciliationDiscrepancyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.partitionSize = partitionSize;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+        this.maxDuration = maxDuration;
+        this.duration = Timer.builder("banking.reconciliation.duration")
+                .description("Длительность сверки остатков с журналом")
+                .register(meterRegistry);
+        this.discrepancies = Counter.builder("banking.reconciliation.discrepancies")
+                .description("Расхождения остатков с журналом, найденные сверкой")
+                .register(meterRegistry);
+        this.shardRouter = shardRouter;
+    }
+
+    // При шардировании каждый шард сверяется отдельным запуском в своей базе
+    @Scheduled(cron = "${banking.reconciliation.cron:0 0 4 * * *}")
+    public void scheduledReconcile() {
+        if (enabled) {
+            shardRouter.forEachShard(this::reconcile);
+        }
+    }
+
+    /**
+     * Сверяет все счета.
+     *
+     * @return завершенный запуск или {@code null}, если сверка уже выполняется.
+     */
+    public ReconciliationRun reconcile() {
+        ReconciliationRun run = start();
+        if (run == null) {
+            logger.info("Ledger reconciliation is already running, skipped");
+            return null;
+        }
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT min(id) AS min_id, max(id) AS max_id FROM bank_account");
+            // Потоки пула не наследуют шард вызывающего потока, поэтому он передается задачам
+            Result result = bounds.get("min_id") == null ? new Result(0, 0) : pool.invoke(new RangeTask(ShardContext.current(), run.getId(),
+                    ((Number) bounds.get("min_id")).longValue(), ((Number) bounds.get("max_id")).longValue() + 1));
+            finish(run, ReconciliationStatus.COMPLETED, result);
+            logger.info("Ledger reconciliation {} checked {} account(s), found {} discrepancy(ies) in {} ms", run.getId(),
+                    result.accounts(), result.discrepancies(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+            return run;
+        } catch (RuntimeException e) {
+            finish(run, ReconciliationStatus.FAILED, new Result(0, 0));
+            throw e;
+        } finally {
+            pool.shutdown();
+            duration.record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    private ReconciliationRun start() {
+        try {
+            return transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                reconciliationRunRepository.failStale(now.minus(maxDuration), now);
+                return reconciliationRunRepository.saveAndFlush(new ReconciliationRun(null, ReconciliationStatus.RUNNING, now, null, 0, 0));
+            });
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private void finish(ReconciliationRun run, ReconciliationStatus status, Result result) {
+        run.setStatus(status);
+        run.setFinishedAt(LocalDateTime.now());
+        run.setAccounts(result.accounts());
+        run.setDiscrepancies(result.discrepancies());
+        transactionTemplate.executeWithoutResult(tx -> reconciliationRunRepository.save(run));
+    }
+
+    // Сверка счетов с ID из [fromId, toId)
+    private Result reconcilePartition(String shard, Long runId, long fromId, long toId) {
+        return shardRouter.onShard(shard, () -> reconcilePartition(runId, fromId, toId));
+    }
+
+    private Result reconcilePartition(Long runId, long fromId, long toId) {
+        List<ReconciliationDiscrepancy> found = new ArrayList<>();
+        long[] accounts = new long[1];
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(PARTITION_QUERY);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            statement.setLong(3, fromId);
+            statement.setLong(4, toId);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            accounts[0]++;
+            BigDecimal balance = rs.getBigDecimal("balance");
+            BigDecimal opening = rs.getBigDecimal("opening");
+            BigDecimal credits = rs.getBigDecimal("credits");
+            BigDecimal debits = rs.getBigDecimal("debits");
+            BigDecimal interest = rs.getBigDecimal("interest");
+            BigDecimal expected = opening.add(credits).subtract(debits).add(interest);
+            if (balance.compareTo(expected) != 0) {
+                found.add(new ReconciliationDiscrepancy(null, runId, rs.getLong("id"), balance, expected,
+                        rs.getBigDecimal("initial_balance"), opening, credits, debits, interest));
+            }
+        }));
+        if (!found.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> reconciliationDiscrepancyRepository.saveAll(found));
+            discrepancies.increment(found.size());
+            logger.error("Ledger reconciliation {} found {} discrepancy(ies) in account IDs [{}, {})", runId, found.size(), fromId, toId);
+        }
+        return new Result(accounts[0], found.size());
+    }
+
+    private final class RangeTask extends RecursiveTask<Result> {
+        private final String shard;
+        private final Long runId;
+        private final long fromId;
+        private final long toId;
+
+        private RangeTask(String shard, Long runId, long fromId, long toId) {
+            this.shard = shard;
+            this.runId = runId;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected Result compute() {
+            if (toId - fromId <= partitionSize) {
+                return reconcilePartition(shard, runId, fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(shard, runId, fromId, middle);
+            left.fork();
+            Result right = new RangeTask(shard, runId, middle, toId).compute();
+            return left.join().plus(right);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.banking.service;
+
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.LedgerEntryType;
+import com.example.banking.model.LedgerPosting;
+import com.example.banking.model.LedgerSnapshot;
+import com.example.banking.model.Transaction;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.LedgerPostingRepository;
+import com.example.banking.repository.LedgerSnapshotRepository;
+import com.example.banking.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал двойной записи и чтение остатков по снимкам.
+ * <p>
+ * Каждое изменение остатка записывается проводкой: перевод — списанием и зачислением, начисление процентов и
+ * открытие счета — одной проводкой. Остаток равен последнему снимку счета плюс сумма проводок после него, поэтому
+ * чтение не зависит от длины истории. Проводки по счету добавляются только под блокировкой строки счета
+ * (или в транзакции, создающей счет), поэтому снимок, сделанный под той же блокировкой, не пропускает
+ * незафиксированных проводок. {@code BankAccount.balance} остается рабочим остатком для проверок при переводе
+ * и сверяется с журналом при каждом снимке (метрика {@code banking.ledger.mismatches}). Каждая проводка
+ * учитывается в помесячных итогах счета ({@link MonthlyRollupService}).
+ *
+ * @author nimatullah
+ */
+@Service
+public class LedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final LedgerSnapshotRepository ledgerSnapshotRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final MonthlyRollupService monthlyRollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer snapshotTimer;
+    private final Counter snapshots;
+    private final Counter mismatches;
+    // Последняя проводка, учтенная при поиске счетов для снимка по шардам: у каждого шарда своя последовательность проводок
+    private final Map<String, AtomicLong> scannedPostingIds = new ConcurrentHashMap<>();
+
+    public LedgerService(LedgerPostingRepository ledgerPostingRepository,
+                         LedgerSnapshotRepository ledgerSnapshotRepository,
+                         BankAccountRepository bankAccountRepository,
+                         MonthlyRollupService monthlyRollupService,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+        this.ledgerPostingRepository = ledgerPostingRepository;
+        this.ledgerSnapshotRepository = ledgerSnapshotRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.monthlyRollupService = monthlyRollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTimer = Timer.builder("banking.ledger.snapshot")
+                .description("Длительность создания снимков остатков")
+                .register(meterRegistry);
+        this.snapshots = Counter.builder("banking.ledger.snapshots")
+                .description("Созданные снимки остатков счетов")
+                .register(meterRegistry);
+        this.mismatches = Counter.builder("banking.ledger.mismatches")
+                .description("Расхождения остатка счета с журналом проводок")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проводка начального взноса. Вызывается в транзакции, создающей счет.
+     */
+    public void recordOpening(BankAccount account) {
+        post(posting(account, LedgerEntryType.OPENING, account.getInitialBalance(), null));
+    }
+
+    /**
+     * Списание и зачисление по переводу. Вызывающий удерживает блокировки обоих счетов.
+     */
+    public void recordTransfer(Transaction transaction) {
+        recordDebit(transaction.getFromAccount(), transaction.getAmount(), transaction.getId());
+        recordCredit(transaction.getToAccount(), transaction.getAmount(), transaction.getId());
+    }
+
+    /**
+     * Списание по переводу, счета которого находятся на разных шардах. Вызывающий удерживает блокировку счета.
+     */
+    public void recordDebit(BankAccount account, BigDecimal amount, Long transactionId) {
+        post(posting(account, LedgerEntryType.DEBIT, amount.negate(), transactionId));
+    }
+
+    /**
+     * Зачисление по переводу или компенсация списания межшардового перевода. Вызывающий удерживает блокировку счета.
+     */
+    public void recordCredit(BankAccount account, BigDecimal amount, Long transactionId) {
+        post(posting(account, LedgerEntryType.CREDIT, amount, transactionId));
+    }
+
+    /**
+     * Проводка начисленных процентов. Вызывающий удерживает блокировку счета.
+     */
+    public void recordInterest(BankAccount account, BigDecimal amount) {
+        if (amount.signum() != 0) {
+            post(posting(account, LedgerEntryType.INTEREST, amount, null));
+        }
+    }
+
+    /**
+     * Остаток счета по журналу: последний снимок плюс проводки после него.
+     *
+     * @param accountId ID счета.
+     * @return остаток.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(Long accountId) {
+        LedgerSnapshot snapshot = ledgerSnapshotRepository.findById(accountId).orElse(null);
+        if (snapshot == null) {
+            return ledgerPostingRepository.findDelta(accountId, 0L).getAmount();
+        }
+        return snapshot.getBalance().add(ledgerPostingRepository.findDelta(accountId, snapshot.getLastPostingId()).getAmount());
+    }
+
+    /**
+     * Остаток счета, пересчитанный по всем проводкам без снимка. Используется для проверки снимков.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal rebuildBalance(Long accountId) {
+        return ledgerPostingRepository.findDelta(accountId, 0L).getAmount();
+    }
+
+    /**
+     * Создает снимки для счетов, у которых после предыдущего снимка накопилось не меньше {@code minPostings} проводок.
+     * Кандидаты ищутся только среди счетов с проводками после предыдущего запуска на том же шарде.
+     * При шардировании вызывается на каждом шарде ({@link LedgerSnapshotter}).
+     *
+     * @return количество созданных снимков.
+     */
+    public int snapshotAccounts(long minPostings) {
+        return snapshotTimer.record(() -> {
+            AtomicLong scannedPostingId = scannedPostingIds.computeIfAbsent(
+                    Objects.requireNonNullElse(ShardContext.current(), ""), shard -> new AtomicLong());
+            long afterId = scannedPostingId.get();
+            long lastPostingId = ledgerPostingRepository.findLastPostingId();
+            List<Long> accountIds = ledgerPostingRepository.findAccountIdsPostedAfter(afterId);
+            int created = 0;
+            for (Long accountId : accountIds) {
+                if (snapshot(accountId, minPostings)) {
+                    created++;
+                }
+            }
+            scannedPostingId.set(lastPostingId);
+            if (created > 0) {
+                logger.info("Ledger snapshots created for {} of {} account(s)", created, accountIds.size());
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Создает снимок счета под блокировкой строки счета и сверяет остаток с журналом.
+     *
+     * @param minPostings минимальное количество проводок после предыдущего снимка.
+     * @return true, если снимок создан.
+     */
+    public boolean snapshot(Long accountId, long minPostings) {
+        Boolean created = transactionTemplate.execute(status -> {
+            BankAccount account = bankAccountRepository.findByIdForUpdate(accountId)
+                    .orElseThrow(() -> new UserNotFoundException("Account not found"));
+            LedgerSnapshot snapshot = ledgerSnapshotRepository.findById(accountId)
+                    .orElseGet(() -> new LedgerSnapshot(accountId, BigDecimal.ZERO, 0L, null));
+            LedgerPostingRepository.Delta delta = ledgerPostingRepository.findDelta(accountId, snapshot.getLastPostingId());
+            if (delta.getPostings() == 0 || delta.getPostings() < minPostings) {
+                return false;
+            }
+
+            snapshot.setBalance(snapshot.getBalance().add(delta.getAmount()));
+            snapshot.setLastPostingId(delta.getLastPostingId());
+            snapshot.setCreatedAt(LocalDateTime.now());
+            ledgerSnapshotRepository.save(snapshot);
+            snapshots.increment();
+
+            if (snapshot.getBalance().compareTo(account.getBalance()) != 0) {
+                mismatches.increment();
+                logger.error("Ledger mismatch for account ID {}: ledger {}, account {}", accountId, snapshot.getBalance(), account.getBalance());
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(created);
+    }
+
+    private void post(LedgerPosting posting) {
+        monthlyRollupService.onPosting(ledgerPostingRepository.save(posting));
+    }
+
+    private static LedgerPosting posting(BankAccount account, LedgerEntryType type, BigDecimal amount, Long transactionId) {
+        return new LedgerPosting(null, account, type, amount, transactionId, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.banking.service;
+
+import com.example.banking.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Фоновое создание снимков остатков по расписанию {@code banking.ledger.snapshot.cron}.
+ * Снимок счета создается, когда после предыдущего накопилось не меньше {@code banking.ledger.snapshot.min-postings} проводок.
+ * При шардировании снимки создаются на каждом шарде.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.ledger.snapshot", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerSnapshotter {
+
+    private final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+    private final long minPostings;
+
+    public LedgerSnapshotter(LedgerService ledgerService,
+                             ShardRouter shardRouter,
+                             @Value("${banking.ledger.snapshot.min-postings:100}") long minPostings) {
+        this.ledgerService = ledgerService;
+        this.shardRouter = shardRouter;
+        this.minPostings = minPostings;
+    }
+
+    @Scheduled(cron = "${banking.ledger.snapshot.cron:0 */5 * * * *}")
+    public void snapshot() {
+        shardRouter.forEachShard(() -> ledgerService.snapshotAccounts(minPostings));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.banking.service;
+
+import com.example.banking.sharding.ShardRouter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Догоняющее обновление помесячных итогов по расписанию {@code banking.statements.catch-up.cron}.
+ * Нужно, когда итоги не обновляются в транзакции проводки, и для проводок, добавленных в обход сервиса.
+ * При шардировании итоги обновляются на каждом шарде.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.statements.catch-up", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MonthlyRollupCatchUp {
+
+    private final MonthlyRollupService monthlyRollupService;
+    private final ShardRouter shardRouter;
+
+    public MonthlyRollupCatchUp(MonthlyRollupService monthlyRollupService, ShardRouter shardRouter) {
+        this.monthlyRollupService = monthlyRollupService;
+        this.shardRouter = shardRouter;
+    }
+
+    @Scheduled(cron = "${banking.statements.catch-up.cron:0 */10 * * * *}")
+    public void catchUp() {
+        shardRouter.forEachShard(monthlyRollupService::catchUp);
+    }
+}
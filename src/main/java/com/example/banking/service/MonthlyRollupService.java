@@ -0,0 +1,136 @@
+package com.example.banking.service;
+
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.AccountMonthlyRollup;
+import com.example.banking.model.LedgerPosting;
+import com.example.banking.repository.AccountMonthlyRollupRepository;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.LedgerPostingRepository;
+import com.example.banking.sharding.ShardContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Помесячные итоги по счетам ({@code account_monthly_rollup}) для выписок.
+ * <p>
+ * Итоги обновляются по проводкам журнала: при {@code banking.statements.rollup.inline=true} — в той же транзакции,
+ * что и перевод или начисление процентов, иначе — догоняющим заданием {@link #catchUp()}. Проводки счета
+ * добавляются под блокировкой строки счета, поэтому их ID растут в порядке фиксации и {@code last_posting_id}
+ * служит отметкой: проводка, уже учтенная в итогах, повторно не применяется, и догоняющее задание безопасно
+ * запускать в любом режиме.
+ *
+ * @author nimatullah
+ */
+@Service
+public class MonthlyRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthlyRollupService.class);
+
+    private final AccountMonthlyRollupRepository rollupRepository;
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean inline;
+    // Последняя проводка, учтенная при поиске счетов для догоняющего обновления по шардам: у каждого шарда своя последовательность проводок
+    private final Map<String, AtomicLong> scannedPostingIds = new ConcurrentHashMap<>();
+
+    public MonthlyRollupService(AccountMonthlyRollupRepository rollupRepository,
+                                LedgerPostingRepository ledgerPostingRepository,
+                                BankAccountRepository bankAccountRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${banking.statements.rollup.inline:true}") boolean inline) {
+        this.rollupRepository = rollupRepository;
+        this.ledgerPostingRepository = ledgerPostingRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inline = inline;
+    }
+
+    /**
+     * Учитывает проводку в итогах ее месяца, если итоги обновляются в транзакции проводки.
+     * Вызывающий удерживает блокировку счета (или создает счет в текущей транзакции).
+     */
+    public void onPosting(LedgerPosting posting) {
+        if (inline) {
+            apply(posting.getAccount().getId(), posting);
+        }
+    }
+
+    /**
+     * Применяет к итогам проводки, добавленные после последнего запуска на том же шарде.
+     * При шардировании вызывается на каждом шарде ({@link MonthlyRollupCatchUp}).
+     *
+     * @return количество счетов с обновленными итогами.
+     */
+    public int catchUp() {
+        AtomicLong scannedPostingId = scannedPostingIds.computeIfAbsent(
+                Objects.requireNonNullElse(ShardContext.current(), ""), shard -> new AtomicLong());
+        long afterId = scannedPostingId.get();
+        long lastPostingId = ledgerPostingRepository.findLastPostingId();
+        List<Long> accountIds = ledgerPostingRepository.findAccountIdsPostedAfter(afterId);
+        int updated = 0;
+        for (Long accountId : accountIds) {
+            if (catchUp(accountId) > 0) {
+                updated++;
+            }
+        }
+        scannedPostingId.set(lastPostingId);
+        if (updated > 0) {
+            logger.info("Monthly rollups caught up for {} of {} account(s)", updated, accountIds.size());
+        }
+        return updated;
+    }
+
+    /**
+     * Применяет к итогам счета все еще не учтенные проводки под блокировкой строки счета.
+     *
+     * @return количество примененных проводок.
+     */
+    public int catchUp(Long accountId) {
+        Integer applied = transactionTemplate.execute(status -> {
+            bankAccountRepository.findByIdForUpdate(accountId)
+                    .orElseThrow(() -> new UserNotFoundException("Account not found"));
+            List<LedgerPosting> postings = ledgerPostingRepository.findByAccountIdAfter(accountId, rollupRepository.findLastPostingId(accountId));
+            postings.forEach(posting -> apply(accountId, posting));
+            return postings.size();
+        });
+        return applied != null ? applied : 0;
+    }
+
+    private void apply(Long accountId, LedgerPosting posting) {
+        LocalDate month = posting.getTimestamp().toLocalDate().withDayOfMonth(1);
+        AccountMonthlyRollup rollup = rollupRepository.findById(new AccountMonthlyRollup.Key(accountId, month))
+                .orElseGet(() -> newRollup(accountId, month));
+        if (posting.getId() <= rollup.getLastPostingId()) {
+            return;
+        }
+        if (posting.getAmount().signum() > 0) {
+            rollup.setTotalIn(rollup.getTotalIn().add(posting.getAmount()));
+        } else {
+            rollup.setTotalOut(rollup.getTotalOut().subtract(posting.getAmount()));
+        }
+        rollup.setPostings(rollup.getPostings() + 1);
+        rollup.setLastPostingId(posting.getId());
+        rollupRepository.save(rollup);
+    }
+
+    private AccountMonthlyRollup newRollup(Long accountId, LocalDate month) {
+        BigDecimal openingBalance = rollupRepository.findFirstByIdAccountIdAndIdMonthLessThanOrderByIdMonthDesc(accountId, month)
+                .map(AccountMonthlyRollup::getClosingBalance)
+                .orElse(BigDecimal.ZERO);
+        return new AccountMonthlyRollup(new AccountMonthlyRollup.Key(accountId, month), openingBalance,
+                BigDecimal.ZERO, BigDecimal.ZERO, 0, 0L);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.banking.service;
+
+import com.example.banking.scheduling.HierarchicalTimingWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выполнение отложенных переводов по колесу таймеров.
+ * <p>
+ * Каждые {@code banking.scheduled-transfers.load-interval} захватываются переводы со сроком в ближайшие
+ * {@code banking.scheduled-transfers.window} и кладутся в {@link HierarchicalTimingWheel}; база не опрашивается на
+ * каждом такте. Колесо продвигается каждые {@code banking.scheduled-transfers.tick}, наступившие за такт сроки
+ * делятся на пачки по {@code banking.scheduled-transfers.batch-size} и выполняются пулом из
+ * {@code banking.scheduled-transfers.workers} потоков. Просроченные сроки (например, после простоя) выполняются
+ * сразу при загрузке. Запускается вместе с остальными фоновыми задачами ({@code banking.scheduling.enabled}).
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.scheduled-transfers", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ScheduledTransferRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledTransferRunner.class);
+
+    private final ScheduledTransferService scheduledTransferService;
+    private final boolean schedulingEnabled;
+    private final Duration tick;
+    private final Duration window;
+    private final Duration loadInterval;
+    private final int batchSize;
+    private final int claimLimit;
+    private final HierarchicalTimingWheel<ScheduledTransferService.Due> wheel;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService workers;
+
+    public ScheduledTransferRunner(ScheduledTransferService scheduledTransferService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${banking.scheduling.enabled:false}") boolean schedulingEnabled,
+                                   @Value("${banking.scheduled-transfers.tick:1s}") Duration tick,
+                                   @Value("${banking.scheduled-transfers.wheel-size:64}") int wheelSize,
+                                   @Value("${banking.scheduled-transfers.window:1m}") Duration window,
+                                   @Value("${banking.scheduled-transfers.load-interval:10s}") Duration loadInterval,
+                                   @Value("${banking.scheduled-transfers.batch-size:100}") int batchSize,
+                                   @Value("${banking.scheduled-transfers.claim-limit:10000}") int claimLimit,
+                                   @Value("${banking.scheduled-transfers.workers:4}") int workers) {
+        this.scheduledTransferService = scheduledTransferService;
+        this.schedulingEnabled = schedulingEnabled;
+        this.tick = tick;
+        this.window = window;
+        this.loadInterval = loadInterval;
+        this.batchSize = batchSize;
+        this.claimLimit = claimLimit;
+        this.wheel = new HierarchicalTimingWheel<>(tick.toMillis(), wheelSize, 3, System.currentTimeMillis());
+        if (window.plus(loadInterval).toMillis() > wheel.horizonMillis()) {
+            throw new IllegalStateException("banking.scheduled-transfers.window exceeds the timing wheel horizon of "
+                    + wheel.horizonMillis() + " ms; increase tick or wheel-size");
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "scheduled-transfers-ticker"));
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> new Thread(runnable, "scheduled-transfers-worker"));
+        Gauge.builder("banking.scheduled.wheel.size", this, runner -> runner.pending())
+                .description("Захваченные сроки отложенных переводов, ожидающие в колесе таймеров")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!schedulingEnabled) {
+            return;
+        }
+        int released = scheduledTransferService.releaseClaims();
+        if (released > 0) {
+            logger.info("Released {} scheduled transfer claim(s) left by the previous run", released);
+        }
+        ticker.scheduleAtFixedRate(() -> safely(() -> load(LocalDateTime.now())), 0, loadInterval.toMillis(), TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(() -> safely(() -> tick(LocalDateTime.now())), tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        ticker.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Захватывает сроки ближайшего окна и кладет их в колесо; просроченные выполняются сразу.
+     *
+     * @return количество захваченных сроков.
+     */
+    public int load(LocalDateTime now) {
+        List<ScheduledTransferService.Due> claimed = scheduledTransferService.claim(now, now.plus(window), claimLimit);
+        List<ScheduledTransferService.Due> overdue = new ArrayList<>();
+        synchronized (wheel) {
+            for (ScheduledTransferService.Due due : claimed) {
+                if (!wheel.add(epochMillis(due.runAt()), due)) {
+                    overdue.add(due);
+                }
+            }
+        }
+        dispatch(overdue);
+        return claimed.size();
+    }
+
+    /**
+     * Продвигает колесо до {@code now} и выполняет наступившие сроки пачками.
+     *
+     * @return количество наступивших сроков.
+     */
+    public int tick(LocalDateTime now) {
+        List<ScheduledTransferService.Due> due;
+        synchronized (wheel) {
+            due = wheel.advance(epochMillis(now));
+        }
+        dispatch(due);
+        return due.size();
+    }
+
+    int pending() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void dispatch(List<ScheduledTransferService.Due> due) {
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<ScheduledTransferService.Due> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            workers.execute(() -> batch.forEach(item -> safely(() -> scheduledTransferService.execute(item))));
+        }
+    }
+
+    private static void safely(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            // Захват не снят: срок будет захвачен снова после истечения claim-lease
+            logger.error("Scheduled transfer processing failed", e);
+        }
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
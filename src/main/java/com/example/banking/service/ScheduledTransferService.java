@@ -0,0 +1,336 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ScheduledTransferDTO;
+import com.example.banking.dto.ScheduledTransferResponseDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.BalanceException;
+import com.example.banking.exception.ClientInputException;
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.ScheduledTransfer;
+import com.example.banking.model.ScheduledTransferRecurrence;
+import com.example.banking.model.ScheduledTransferStatus;
+import com.example.banking.model.TransferSaga;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ScheduledTransferRepository;
+import com.example.banking.sharding.ShardContext;
+import com.example.banking.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Отложенные и периодические переводы: создание клиентом, захват ближайших сроков и выполнение.
+ * <p>
+ * Перевод выполняется через {@link ShardedTransferService#transferInTransaction} от имени владельца в одной транзакции
+ * с переносом {@code next_run_at} на следующий срок, поэтому выполненный срок не повторяется после перезапуска.
+ * При шардировании отложенный перевод хранится на шарде отправителя, сроки захватываются на каждом шарде,
+ * а межшардовый перевод в этой транзакции только списывается и зачисляется после ее фиксации. Выполняется только
+ * перевод, захваченный этим экземпляром на ожидаемый срок; иначе срок уже выполнен или захвачен другим экземпляром.
+ * Отказ перевода (недостаточно средств, счет не найден, сумма выше лимита) пропускает срок, разовый перевод
+ * переходит в {@code FAILED}. При прочих ошибках (в том числе превышении лимитов скорости) захват остается и истекает
+ * через {@code banking.scheduled-transfers.claim-lease}, после чего срок захватывается и выполняется снова.
+ *
+ * @author nimatullah
+ */
+@Service
+public class ScheduledTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledTransferService.class);
+
+    /**
+     * Захваченный срок перевода.
+     *
+     * @param shard шард перевода или {@code null} без шардирования.
+     */
+    public record Due(String shard, Long id, LocalDateTime runAt) {
+    }
+
+    public enum Outcome {
+        EXECUTED,
+        FAILED,
+        SKIPPED
+    }
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final ShardedTransferService shardedTransferService;
+    private final ShardRouter shardRouter;
+    private final ModelMapper modelMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final String instanceId;
+    private final Duration claimLease;
+    private final Counter executed;
+    private final Counter failed;
+    private final Counter skipped;
+
+    public ScheduledTransferService(ScheduledTransferRepository scheduledTransferRepository,
+                                    BankAccountRepository bankAccountRepository,
+                                    ShardedTransferService shardedTransferService,
+                                    ShardRouter shardRouter,
+                                    ModelMapper modelMapper,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${banking.scheduled-transfers.instance-id:${HOSTNAME:banking-service}}") String instanceId,
+                                    @Value("${banking.scheduled-transfers.claim-lease:1m}") Duration claimLease) {
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.shardedTransferService = shardedTransferService;
+        this.shardRouter = shardRouter;
+        this.modelMapper = modelMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.instanceId = instanceId;
+        this.claimLease = claimLease;
+        this.executed = counter(meterRegistry, "executed");
+        this.failed = counter(meterRegistry, "failed");
+        this.skipped = counter(meterRegistry, "skipped");
+    }
+
+    /**
+     * Создает отложенный перевод со счета текущего пользователя. Получатель может находиться на другом шарде,
+     * поэтому метод выполняется вне внешней транзакции.
+     *
+     * @param scheduledTransferDTO данные перевода.
+     * @return созданный перевод.
+     */
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ScheduledTransferResponseDTO create(ScheduledTransferDTO scheduledTransferDTO) {
+        String owner = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (scheduledTransferDTO.getFromAccountId().equals(scheduledTransferDTO.getToAccountId())) {
+            throw new ClientInputException("Cannot transfer money to the same account");
+        }
+        ScheduledTransferRecurrence recurrence = scheduledTransferDTO.getRecurrence() != null
+                ? scheduledTransferDTO.getRecurrence() : ScheduledTransferRecurrence.ONCE;
+        if (scheduledTransferDTO.getEndsAt() != null && scheduledTransferDTO.getEndsAt().isBefore(scheduledTransferDTO.getRunAt())) {
+            throw new ClientInputException("End date is before the first run");
+        }
+
+        // Владелец проверяется по клиенту счета, поэтому клиент загружается тем же запросом
+        Long fromAccountId = scheduledTransferDTO.getFromAccountId();
+        BankAccount fromAccount = shardRouter.onClientShard(fromAccountId, () -> bankAccountRepository.findWithClientById(fromAccountId))
+                .orElseThrow(() -> new UserNotFoundException("Invalid user ID"));
+        if (!fromAccount.getClient().getUsername().equals(owner)) {
+            logger.warn("User {} tried to schedule a transfer from account ID {}", owner, fromAccount.getId());
+            throw new AccessDeniedException("Access denied: Not the account owner");
+        }
+        Long toAccountId = scheduledTransferDTO.getToAccountId();
+        if (!shardRouter.onClientShard(toAccountId, () -> bankAccountRepository.existsById(toAccountId))) {
+            throw new UserNotFoundException("Invalid user ID");
+        }
+
+        ScheduledTransfer scheduledTransfer = new ScheduledTransfer();
+        scheduledTransfer.setOwner(owner);
+        scheduledTransfer.setFromAccountId(fromAccount.getId());
+        scheduledTransfer.setToAccountId(scheduledTransferDTO.getToAccountId());
+        scheduledTransfer.setAmount(scheduledTransferDTO.getAmount());
+        scheduledTransfer.setRecurrence(recurrence);
+        scheduledTransfer.setNextRunAt(scheduledTransferDTO.getRunAt());
+        scheduledTransfer.setEndsAt(scheduledTransferDTO.getEndsAt());
+        scheduledTransfer.setStatus(ScheduledTransferStatus.ACTIVE);
+        scheduledTransfer.setCreatedAt(LocalDateTime.now());
+        shardRouter.onClientShard(fromAccountId, () -> transactionTemplate.execute(status -> scheduledTransferRepository.save(scheduledTransfer)));
+        logger.debug("Scheduled transfer ID {} created for {}", scheduledTransfer.getId(), scheduledTransfer.getNextRunAt());
+        return modelMapper.map(scheduledTransfer, ScheduledTransferResponseDTO.class);
+    }
+
+    /**
+     * Отложенные переводы текущего пользователя со всех шардов.
+     */
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public List<ScheduledTransferResponseDTO> list() {
+        String owner = SecurityContextHolder.getContext().getAuthentication().getName();
+        List<ScheduledTransferResponseDTO> scheduledTransfers = new ArrayList<>();
+        shardRouter.forEachShard(() -> readOnlyTransaction.executeWithoutResult(status ->
+                scheduledTransferRepository.findByOwnerOrderById(owner).forEach(scheduledTransfer ->
+                        scheduledTransfers.add(modelMapper.map(scheduledTransfer, ScheduledTransferResponseDTO.class)))));
+        return scheduledTransfers;
+    }
+
+    /**
+     * Отменяет отложенный перевод текущего пользователя. Срок, выполняемый в этот момент, завершается до отмены.
+     * <p>
+     * ID отложенных переводов уникальны только в пределах шарда, но все переводы владельца хранятся на шарде его
+     * счета, поэтому перевод ищется по ID и владельцу на шардах по очереди.
+     */
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ScheduledTransferResponseDTO cancel(Long id) {
+        String owner = SecurityContextHolder.getContext().getAuthentication().getName();
+        return shardRouter.findOnAnyShard(() -> transactionTemplate.execute(status ->
+                        scheduledTransferRepository.findByIdForUpdate(id)
+                                .filter(candidate -> candidate.getOwner().equals(owner))
+                                .map(scheduledTransfer -> {
+                                    if (scheduledTransfer.getStatus() == ScheduledTransferStatus.ACTIVE) {
+                                        scheduledTransfer.setStatus(ScheduledTransferStatus.CANCELLED);
+                                        release(scheduledTransfer);
+                                    }
+                                    return modelMapper.map(scheduledTransfer, ScheduledTransferResponseDTO.class);
+                                })))
+                .orElseThrow(() -> new UserNotFoundException("Scheduled transfer not found"));
+    }
+
+    /**
+     * Захватывает на каждом шарде активные переводы со сроком до {@code until}, не захваченные другими экземплярами.
+     *
+     * @param limit наибольшее количество захватываемых переводов.
+     * @return захваченные сроки в порядке наступления.
+     */
+    public List<Due> claim(LocalDateTime now, LocalDateTime until, int limit) {
+        List<Due> claimed = new ArrayList<>();
+        shardRouter.forEachShard(() -> {
+            if (claimed.size() < limit) {
+                claimed.addAll(transactionTemplate.execute(status -> claimOnShard(now, until, limit - claimed.size())));
+            }
+        });
+        claimed.sort(Comparator.comparing(Due::runAt));
+        return claimed;
+    }
+
+    private List<Due> claimOnShard(LocalDateTime now, LocalDateTime until, int limit) {
+        List<ScheduledTransfer> claimed = scheduledTransferRepository.findDueForClaim(until, now, PageRequest.of(0, limit));
+        for (ScheduledTransfer scheduledTransfer : claimed) {
+            LocalDateTime runAt = scheduledTransfer.getNextRunAt();
+            scheduledTransfer.setClaimedBy(instanceId);
+            scheduledTransfer.setClaimedUntil((runAt.isAfter(now) ? runAt : now).plus(claimLease));
+        }
+        return claimed.stream()
+                .map(scheduledTransfer -> new Due(ShardContext.current(), scheduledTransfer.getId(), scheduledTransfer.getNextRunAt()))
+                .toList();
+    }
+
+    /**
+     * Снимает захваты этого экземпляра на всех шардах (при старте, когда колесо таймеров еще пусто).
+     */
+    public int releaseClaims() {
+        int[] released = new int[1];
+        shardRouter.forEachShard(() -> released[0] += transactionTemplate.execute(status -> scheduledTransferRepository.releaseClaims(instanceId)));
+        return released[0];
+    }
+
+    /**
+     * Выполняет захваченный срок перевода на шарде перевода.
+     */
+    public Outcome execute(Due due) {
+        Outcome outcome;
+        TransferSaga[] debited = new TransferSaga[1];
+        try {
+            outcome = shardRouter.onShard(due.shard(), () -> transactionTemplate.execute(status -> {
+                ScheduledTransfer scheduledTransfer = lockClaimed(due);
+                if (scheduledTransfer == null) {
+                    return Outcome.SKIPPED;
+                }
+                runAs(scheduledTransfer.getOwner(),
+                        () -> debited[0] = shardedTransferService.transferInTransaction(transferOf(scheduledTransfer)));
+                scheduledTransfer.setRuns(scheduledTransfer.getRuns() + 1);
+                scheduledTransfer.setLastRunAt(LocalDateTime.now());
+                scheduledTransfer.setLastError(null);
+                advance(scheduledTransfer);
+                return Outcome.EXECUTED;
+            }));
+        } catch (BalanceException | UserNotFoundException | ClientInputException e) {
+            // Перевод откатился: срок пропускается, ошибка сохраняется для клиента
+            outcome = shardRouter.onShard(due.shard(), () -> transactionTemplate.execute(status -> {
+                ScheduledTransfer scheduledTransfer = lockClaimed(due);
+                if (scheduledTransfer == null) {
+                    return Outcome.SKIPPED;
+                }
+                logger.info("Scheduled transfer ID {} due {} failed: {}", due.id(), due.runAt(), e.getMessage());
+                scheduledTransfer.setFailures(scheduledTransfer.getFailures() + 1);
+                scheduledTransfer.setLastRunAt(LocalDateTime.now());
+                scheduledTransfer.setLastError(e.getMessage());
+                if (scheduledTransfer.getRecurrence() == ScheduledTransferRecurrence.ONCE) {
+                    scheduledTransfer.setStatus(ScheduledTransferStatus.FAILED);
+                    release(scheduledTransfer);
+                } else {
+                    advance(scheduledTransfer);
+                }
+                return Outcome.FAILED;
+            }));
+        }
+        // Межшардовый перевод зачисляется после фиксации списания вместе с переносом срока
+        if (debited[0] != null) {
+            shardedTransferService.complete(debited[0]);
+        }
+        switch (outcome) {
+            case EXECUTED -> executed.increment();
+            case FAILED -> failed.increment();
+            case SKIPPED -> skipped.increment();
+        }
+        return outcome;
+    }
+
+    private ScheduledTransfer lockClaimed(Due due) {
+        ScheduledTransfer scheduledTransfer = scheduledTransferRepository.findByIdForUpdate(due.id()).orElse(null);
+        if (scheduledTransfer == null
+                || scheduledTransfer.getStatus() != ScheduledTransferStatus.ACTIVE
+                || !instanceId.equals(scheduledTransfer.getClaimedBy())
+                || !scheduledTransfer.getNextRunAt().equals(due.runAt())) {
+            logger.debug("Scheduled transfer ID {} due {} is no longer claimed by this instance", due.id(), due.runAt());
+            return null;
+        }
+        return scheduledTransfer;
+    }
+
+    private static void advance(ScheduledTransfer scheduledTransfer) {
+        LocalDateTime next = scheduledTransfer.getRecurrence().next(scheduledTransfer.getNextRunAt());
+        if (next == null || (scheduledTransfer.getEndsAt() != null && next.isAfter(scheduledTransfer.getEndsAt()))) {
+            scheduledTransfer.setStatus(ScheduledTransferStatus.COMPLETED);
+        } else {
+            scheduledTransfer.setNextRunAt(next);
+        }
+        release(scheduledTransfer);
+    }
+
+    private static void release(ScheduledTransfer scheduledTransfer) {
+        scheduledTransfer.setClaimedBy(null);
+        scheduledTransfer.setClaimedUntil(null);
+    }
+
+    private static TransactionDTO transferOf(ScheduledTransfer scheduledTransfer) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(scheduledTransfer.getFromAccountId());
+        transactionDTO.setToClientId(scheduledTransfer.getToAccountId());
+        transactionDTO.setAmount(scheduledTransfer.getAmount());
+        return transactionDTO;
+    }
+
+    // Перевод выполняется в фоновом потоке от имени владельца
+    private static void runAs(String username, Runnable action) {
+        SecurityContext previous = SecurityContextHolder.getContext();
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+        SecurityContextHolder.setContext(context);
+        try {
+            action.run();
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("banking.scheduled.transfers")
+                .description("Выполнение сроков отложенных переводов")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
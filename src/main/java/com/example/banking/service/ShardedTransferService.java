@@ -0,0 +1,309 @@
+package com.example.banking.service;
+
+import com.example.banking.audit.AuditEventType;
+import com.example.banking.audit.AuditLog;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.BalanceException;
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.metrics.BankingMetrics;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.OutboxEventType;
+import com.example.banking.model.TransferSaga;
+import com.example.banking.model.TransferSagaCredit;
+import com.example.banking.model.TransferSagaStatus;
+import com.example.banking.outbox.OutboxPublisher;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.TransferSagaCreditRepository;
+import com.example.banking.repository.TransferSagaRepository;
+import com.example.banking.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Перевод с учетом шардов.
+ * <p>
+ * Перевод между счетами одного шарда выполняется на этом шарде одной транзакцией {@link TransactionService#transfer}.
+ * Перевод между шардами выполняется сагой из локальных транзакций:
+ * <ol>
+ *     <li>на шарде отправителя — проверки и списание, проводка DEBIT и строка {@code transfer_saga} в статусе DEBITED;</li>
+ *     <li>на шарде получателя — зачисление и проводка CREDIT либо отказ, если счета нет; итог записывается
+ *     в {@code transfer_saga_credit} той же транзакцией, поэтому повтор шага не зачисляет сумму второй раз;</li>
+ *     <li>на шарде отправителя под блокировкой строки саги — статус COMPLETED либо компенсирующая проводка CREDIT
+ *     отправителю и статус COMPENSATED.</li>
+ * </ol>
+ * Если шаг 2 или 3 не выполнен (шард недоступен), перевод остается в статусе DEBITED и продолжается фоновой
+ * задачей через {@code banking.sharding.saga.retry-after}. Компенсация выполняется только после зафиксированного
+ * отказа получателя, поэтому сумма не может быть одновременно зачислена и возвращена. Межшардовые переводы
+ * записываются в {@code transfer_saga}, {@code transfer_saga_credit} и журнал проводок обоих шардов, но не в таблицу
+ * {@code transaction}: ее внешние ключи требуют оба счета на одном шарде. История, модель чтения профиля и счетчики
+ * скорости читают их из {@code transfer_saga} и {@code transfer_saga_credit}. О зачислении шард получателя публикует
+ * событие {@code TRANSFER_CREDITED} в своем outbox, о завершении шард отправителя — {@code TRANSFER_COMPLETED}.
+ *
+ * @author nimatullah
+ */
+@Service
+public class ShardedTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedTransferService.class);
+
+    private final TransactionService transactionService;
+    private final ShardRouter shardRouter;
+    private final BankAccountRepository bankAccountRepository;
+    private final TransferSagaRepository transferSagaRepository;
+    private final TransferSagaCreditRepository transferSagaCreditRepository;
+    private final LedgerService ledgerService;
+    private final VelocityCheckService velocityCheckService;
+    private final DailyLimitService dailyLimitService;
+    private final OutboxPublisher outboxPublisher;
+    private final AuditLog auditLog;
+    private final BankingMetrics bankingMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final Duration retryAfter;
+    private final int recoveryBatch;
+
+    public ShardedTransferService(TransactionService transactionService,
+                                  ShardRouter shardRouter,
+                                  BankAccountRepository bankAccountRepository,
+                                  TransferSagaRepository transferSagaRepository,
+                                  TransferSagaCreditRepository transferSagaCreditRepository,
+                                  LedgerService ledgerService,
+                                  VelocityCheckService velocityCheckService,
+                                  DailyLimitService dailyLimitService,
+                                  OutboxPublisher outboxPublisher,
+                                  AuditLog auditLog,
+                                  BankingMetrics bankingMetrics,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${banking.sharding.saga.retry-after:30s}") Duration retryAfter,
+                                  @Value("${banking.sharding.saga.recovery-batch:100}") int recoveryBatch) {
+        this.transactionService = transactionService;
+        this.shardRouter = shardRouter;
+        this.bankAccountRepository = bankAccountRepository;
+        this.transferSagaRepository = transferSagaRepository;
+        this.transferSagaCreditRepository = transferSagaCreditRepository;
+        this.ledgerService = ledgerService;
+        this.velocityCheckService = velocityCheckService;
+        this.dailyLimitService = dailyLimitService;
+        this.outboxPublisher = outboxPublisher;
+        this.auditLog = auditLog;
+        this.bankingMetrics = bankingMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.retryAfter = retryAfter;
+        this.recoveryBatch = recoveryBatch;
+    }
+
+    /**
+     * Переводит средства между счетами, выбирая локальную транзакцию или сагу по шардам счетов.
+     *
+     * @param transactionDTO данные перевода.
+     * @return сообщение с ID перевода; 202, если межшардовый перевод будет завершен фоновой задачей.
+     */
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public ResponseEntity<String> transfer(TransactionDTO transactionDTO) {
+        Long fromAccountId = transactionDTO.getFromClientId();
+        Long toAccountId = transactionDTO.getToClientId();
+        if (shardRouter.sameShard(fromAccountId, toAccountId)) {
+            return shardRouter.onClientShard(fromAccountId, () -> transactionService.transfer(transactionDTO));
+        }
+
+        // Получатель проверяется заранее, чтобы ошибка в ID не приводила к списанию и компенсации
+        if (!shardRouter.onClientShard(toAccountId, () -> bankAccountRepository.existsById(toAccountId))) {
+            logger.warn("Invalid user ID for toAccount: {}", toAccountId);
+            bankingMetrics.transferRejected("unknown_account");
+            throw new UserNotFoundException("Invalid user ID");
+        }
+        TransferSaga saga = shardRouter.onClientShard(fromAccountId, () -> transactionTemplate.execute(status -> debit(transactionDTO)));
+
+        TransferSagaStatus status;
+        try {
+            status = resume(saga);
+        } catch (RuntimeException e) {
+            logger.warn("Cross-shard transfer {} is pending: {}", saga.getId(), e.getMessage());
+            outcome("pending").increment();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body("Transaction pending! Transaction ID: " + saga.getId());
+        }
+        if (status == TransferSagaStatus.COMPENSATED) {
+            throw new UserNotFoundException("Invalid user ID");
+        }
+        return ResponseEntity.ok("Transaction successful! Transaction ID: " + saga.getId());
+    }
+
+    /**
+     * Переводит средства в текущей транзакции на шарде отправителя, например вместе с переносом срока отложенного
+     * перевода ({@link ScheduledTransferService}). Перевод внутри шарда выполняется полностью, межшардовый — только
+     * шагом списания: вызывающий продолжает его методом {@link #complete} после фиксации транзакции, иначе перевод
+     * завершит фоновая задача.
+     *
+     * @param transactionDTO данные перевода.
+     * @return сага межшардового перевода или {@code null}, если перевод выполнен внутри шарда.
+     */
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public TransferSaga transferInTransaction(TransactionDTO transactionDTO) {
+        if (shardRouter.sameShard(transactionDTO.getFromClientId(), transactionDTO.getToClientId())) {
+            transactionService.transfer(transactionDTO);
+            return null;
+        }
+        return debit(transactionDTO);
+    }
+
+    /**
+     * Зачисляет и завершает межшардовый перевод, списанный {@link #transferInTransaction}. Вызывается вне транзакции;
+     * если шард недоступен, перевод остается незавершенным до фоновой задачи.
+     */
+    public void complete(TransferSaga saga) {
+        try {
+            resume(saga);
+        } catch (RuntimeException e) {
+            logger.warn("Cross-shard transfer {} is pending: {}", saga.getId(), e.getMessage());
+            outcome("pending").increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${banking.sharding.saga.recovery.fixed-delay:30000}")
+    public void scheduledRecovery() {
+        if (shardRouter.isSharded()) {
+            recoverPendingTransfers();
+        }
+    }
+
+    /**
+     * Продолжает межшардовые переводы, не завершенные за {@code banking.sharding.saga.retry-after}, на всех шардах.
+     *
+     * @return количество завершенных или компенсированных переводов.
+     */
+    public int recoverPendingTransfers() {
+        int[] resumed = new int[1];
+        shardRouter.forEachShard(() -> {
+            List<TransferSaga> pending = transferSagaRepository.findPending(LocalDateTime.now().minus(retryAfter),
+                    PageRequest.of(0, recoveryBatch));
+            for (TransferSaga saga : pending) {
+                try {
+                    resume(saga);
+                    resumed[0]++;
+                } catch (RuntimeException e) {
+                    logger.warn("Cross-shard transfer {} is still pending: {}", saga.getId(), e.getMessage());
+                }
+            }
+        });
+        if (resumed[0] > 0) {
+            logger.info("Resumed {} pending cross-shard transfer(s)", resumed[0]);
+        }
+        return resumed[0];
+    }
+
+    // Шаг 1, шард отправителя: те же проверки, что и у локального перевода
+    private TransferSaga debit(TransactionDTO transactionDTO) {
+        BankAccount fromAccount = bankAccountRepository.findByIdForUpdate(transactionDTO.getFromClientId())
+                .orElseThrow(() -> {
+                    logger.warn("Invalid user ID for fromAccount: {}", transactionDTO.getFromClientId());
+                    bankingMetrics.transferRejected("unknown_account");
+                    return new UserNotFoundException("Invalid user ID");
+                });
+        if (fromAccount.getBalance().compareTo(transactionDTO.getAmount()) < 0) {
+            logger.warn("Insufficient balance for account ID {}", fromAccount.getId());
+            bankingMetrics.transferRejected("insufficient_balance");
+            throw new BalanceException("Insufficient balance");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        velocityCheckService.check(fromAccount.getId(), transactionDTO.getAmount(), now);
+        dailyLimitService.check(fromAccount, transactionDTO.getAmount(), now);
+
+        fromAccount.setBalance(fromAccount.getBalance().subtract(transactionDTO.getAmount()));
+        bankAccountRepository.save(fromAccount);
+        Long id = transferSagaRepository.nextTransactionId();
+        ledgerService.recordDebit(fromAccount, transactionDTO.getAmount(), id);
+        return transferSagaRepository.save(new TransferSaga(id, fromAccount.getId(), transactionDTO.getToClientId(),
+                transactionDTO.getAmount(), TransferSagaStatus.DEBITED, now, now));
+    }
+
+    private TransferSagaStatus resume(TransferSaga saga) {
+        boolean credited = shardRouter.onClientShard(saga.getToAccountId(), () -> transactionTemplate.execute(status -> credit(saga)));
+        return shardRouter.onClientShard(saga.getFromAccountId(), () -> transactionTemplate.execute(status -> finish(saga.getId(), credited)));
+    }
+
+    // Шаг 2, шард получателя: повтор возвращает итог первого выполнения
+    private boolean credit(TransferSaga saga) {
+        Optional<TransferSagaCredit> existing = transferSagaCreditRepository.findById(saga.getId());
+        if (existing.isPresent()) {
+            return existing.get().isCredited();
+        }
+        Optional<BankAccount> toAccount = bankAccountRepository.findByIdForUpdate(saga.getToAccountId());
+        toAccount.ifPresent(account -> {
+            account.setBalance(account.getBalance().add(saga.getAmount()));
+            bankAccountRepository.save(account);
+            ledgerService.recordCredit(account, saga.getAmount(), saga.getId());
+            // Событие шарда получателя: TRANSFER_COMPLETED пишется в outbox шарда отправителя
+            outboxPublisher.publish(OutboxEventType.TRANSFER_CREDITED, saga.getId(), Map.of(
+                    "fromAccountId", saga.getFromAccountId(),
+                    "toAccountId", saga.getToAccountId(),
+                    "amount", saga.getAmount()));
+        });
+        // Одновременный повтор шага нарушит первичный ключ и откатит второе зачисление
+        transferSagaCreditRepository.save(new TransferSagaCredit(saga.getId(), saga.getFromAccountId(), saga.getToAccountId(),
+                saga.getAmount(), toAccount.isPresent(), LocalDateTime.now()));
+        return toAccount.isPresent();
+    }
+
+    // Шаг 3, шард отправителя
+    private TransferSagaStatus finish(Long sagaId, boolean credited) {
+        TransferSaga saga = transferSagaRepository.findByIdForUpdate(sagaId)
+                .orElseThrow(() -> new IllegalStateException("Transfer saga " + sagaId + " not found"));
+        if (saga.getStatus() != TransferSagaStatus.DEBITED) {
+            return saga.getStatus();
+        }
+
+        Map<String, Object> details = Map.of(
+                "transactionId", saga.getId(),
+                "fromAccountId", saga.getFromAccountId(),
+                "toAccountId", saga.getToAccountId(),
+                "amount", saga.getAmount());
+        if (credited) {
+            saga.setStatus(TransferSagaStatus.COMPLETED);
+            outboxPublisher.publish(OutboxEventType.TRANSFER_COMPLETED, saga.getId(), Map.of(
+                    "fromAccountId", saga.getFromAccountId(),
+                    "toAccountId", saga.getToAccountId(),
+                    "amount", saga.getAmount()));
+            auditLog.recordAfterCommit(AuditEventType.TRANSFER, details);
+        } else {
+            BankAccount fromAccount = bankAccountRepository.findByIdForUpdate(saga.getFromAccountId())
+                    .orElseThrow(() -> new IllegalStateException("Account " + saga.getFromAccountId() + " not found"));
+            fromAccount.setBalance(fromAccount.getBalance().add(saga.getAmount()));
+            bankAccountRepository.save(fromAccount);
+            ledgerService.recordCredit(fromAccount, saga.getAmount(), saga.getId());
+            saga.setStatus(TransferSagaStatus.COMPENSATED);
+            logger.warn("Cross-shard transfer {} was rejected by account ID {} and compensated", saga.getId(), saga.getToAccountId());
+        }
+        saga.setUpdatedAt(LocalDateTime.now());
+        transferSagaRepository.save(saga);
+        outcome(saga.getStatus().name().toLowerCase()).increment();
+        return saga.getStatus();
+    }
+
+    private Counter outcome(String outcome) {
+        return outcomes.computeIfAbsent(outcome, key -> Counter.builder("banking.sharding.transfers")
+                .description("Межшардовые переводы по итогу")
+                .tag("outcome", key)
+                .register(meterRegistry));
+    }
+}
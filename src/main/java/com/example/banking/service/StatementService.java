@@ -0,0 +1,132 @@
+package com.example.banking.service;
+
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.AccountMonthlyRollup;
+import com.example.banking.repository.AccountMonthlyRollupRepository;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.LedgerPostingRepository;
+import com.example.banking.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.stream.Stream;
+
+/**
+ * Месячные выписки по счету.
+ * <p>
+ * Остаток на начало месяца берется из помесячных итогов ({@link MonthlyRollupService}), строки выписки — из проводок
+ * только запрошенного месяца, поэтому время формирования не зависит от длины истории счета. Строки читаются из базы
+ * потоком и сразу записываются в ответ; обороты и остаток на конец считаются по тем же строкам и выводятся после них.
+ *
+ * @author nimatullah
+ */
+@Service
+public class StatementService {
+
+    private final AccountMonthlyRollupRepository rollupRepository;
+    private final LedgerPostingRepository ledgerPostingRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+
+    public StatementService(AccountMonthlyRollupRepository rollupRepository,
+                            LedgerPostingRepository ledgerPostingRepository,
+                            BankAccountRepository bankAccountRepository,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            ShardRouter shardRouter) {
+        this.rollupRepository = rollupRepository;
+        this.ledgerPostingRepository = ledgerPostingRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Выписка по счету за месяц в виде JSON, записываемого в ответ по мере чтения проводок.
+     *
+     * @param accountId ID счета.
+     * @param month     месяц выписки.
+     * @throws UserNotFoundException если счет не найден.
+     */
+    public StreamingResponseBody getStatement(Long accountId, YearMonth month) {
+        if (!shardRouter.onClientShard(accountId, () -> bankAccountRepository.existsById(accountId))) {
+            throw new UserNotFoundException("Account not found");
+        }
+        return out -> writeStatement(accountId, month, out);
+    }
+
+    void writeStatement(Long accountId, YearMonth month, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // Тело ответа пишется в другом потоке, поэтому шард счета задается здесь
+            shardRouter.onClientShard(accountId, () -> {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try {
+                        write(json, accountId, month);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void write(JsonGenerator json, Long accountId, YearMonth month) throws IOException {
+        LocalDate firstDay = month.atDay(1);
+        BigDecimal openingBalance = rollupRepository.findFirstByIdAccountIdAndIdMonthLessThanOrderByIdMonthDesc(accountId, firstDay)
+                .map(AccountMonthlyRollup::getClosingBalance)
+                .orElse(BigDecimal.ZERO);
+
+        json.writeStartObject();
+        json.writeNumberField("accountId", accountId);
+        json.writeStringField("month", month.toString());
+        json.writeNumberField("openingBalance", openingBalance);
+        json.writeArrayFieldStart("lines");
+        BigDecimal balance = openingBalance;
+        BigDecimal totalIn = BigDecimal.ZERO;
+        BigDecimal totalOut = BigDecimal.ZERO;
+        try (Stream<LedgerPostingRepository.StatementLine> lines = ledgerPostingRepository.streamForPeriod(
+                accountId, firstDay.atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay())) {
+            for (LedgerPostingRepository.StatementLine line : (Iterable<LedgerPostingRepository.StatementLine>) lines::iterator) {
+                BigDecimal amount = line.getAmount();
+                balance = balance.add(amount);
+                if (amount.signum() > 0) {
+                    totalIn = totalIn.add(amount);
+                } else {
+                    totalOut = totalOut.subtract(amount);
+                }
+                json.writeStartObject();
+                json.writeNumberField("id", line.getId());
+                json.writeStringField("timestamp", line.getTimestamp().toString());
+                json.writeStringField("type", line.getType().name());
+                json.writeNumberField("amount", amount);
+                if (line.getTransactionId() != null) {
+                    json.writeNumberField("transactionId", line.getTransactionId());
+                }
+                json.writeNumberField("balance", balance);
+                json.writeEndObject();
+            }
+        }
+        json.writeEndArray();
+        json.writeNumberField("totalIn", totalIn);
+        json.writeNumberField("totalOut", totalOut);
+        json.writeNumberField("closingBalance", balance);
+        json.writeEndObject();
+    }
+}
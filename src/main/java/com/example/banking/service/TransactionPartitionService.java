@@ -0,0 +1,143 @@
+package com.example.banking.service;
+
+import com.example.banking.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Сервис обслуживания помесячных секций таблицы транзакций.
+ * <p>
+ * Заранее создает секции на ближайшие месяцы и переносит секции старше срока хранения в архивную таблицу.
+ *
+ * @author nimatullah
+ */
+@Service
+@ConditionalOnProperty(prefix = "banking.transactions.partitioning", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionPartitionService.class);
+    private static final Pattern PARTITION_NAME = Pattern.compile("transaction_p(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+    private final ShardRouter shardRouter;
+
+    public TransactionPartitionService(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ShardRouter shardRouter,
+                                       @Value("${banking.transactions.partitioning.months-ahead:3}") int monthsAhead,
+                                       @Value("${banking.transactions.archive.after-months:24}") int archiveAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Создает недостающие секции на каждом шарде при старте приложения, чтобы вставка транзакций не зависела от расписания.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        shardRouter.forEachShard(this::ensureFuturePartitions);
+    }
+
+    /**
+     * Ежедневное обслуживание секций на каждом шарде: создание будущих и архивирование старых.
+     */
+    @Scheduled(cron = "${banking.transactions.partitioning.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        shardRouter.forEachShard(() -> {
+            ensureFuturePartitions();
+            archiveOldPartitions();
+        });
+    }
+
+    /**
+     * Создает секции для текущего месяца и заданного количества месяцев вперед.
+     */
+    public void ensureFuturePartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+    }
+
+    /**
+     * Создает секцию для указанного месяца, если она еще не существует.
+     *
+     * @param month месяц секции.
+     * @return имя секции.
+     */
+    public String createPartition(YearMonth month) {
+        String partition = jdbcTemplate.queryForObject("SELECT create_transaction_partition(?)", String.class, month.atDay(1));
+        logger.debug("Transaction partition {} is present", partition);
+        return partition;
+    }
+
+    /**
+     * Переносит в архив все секции, месяц которых полностью старше срока хранения.
+     *
+     * @return количество заархивированных секций.
+     */
+    public int archiveOldPartitions() {
+        YearMonth cutoff = YearMonth.now().minusMonths(archiveAfterMonths);
+        int archived = 0;
+        for (String partition : listPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(cutoff)) {
+                archivePartition(partition);
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * @return имена секций таблицы транзакций.
+     */
+    public List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "JOIN pg_class p ON p.oid = i.inhparent "
+                        + "WHERE p.relname = 'transaction' ORDER BY c.relname",
+                String.class);
+    }
+
+    /**
+     * Отсоединяет секцию, копирует ее строки в архивную таблицу и удаляет секцию в одной транзакции.
+     */
+    private void archivePartition(String partition) {
+        logger.info("Archiving transaction partition {}", partition);
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("ALTER TABLE transaction DETACH PARTITION " + partition);
+            int copied = jdbcTemplate.update(
+                    "INSERT INTO transaction_archive (id, from_account_id, to_account_id, amount, timestamp) "
+                            + "SELECT id, from_account_id, to_account_id, amount, timestamp FROM " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            return copied;
+        });
+        logger.info("Archived {} transactions from partition {}", rows, partition);
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.banking.service;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.banking.audit.AuditEventType;
+import com.example.banking.audit.AuditLog;
 import com.example.banking.dto.TransactionDTO;
+import com.example.banking.dto.TransactionResponseDTO;
 import com.example.banking.exception.BalanceException;
 import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.metrics.BankingMetrics;
+import com.example.banking.metrics.LogSampler;
 import com.example.banking.model.BankAccount;
+import com.example.banking.model.OutboxEventType;
 import com.example.banking.model.Transaction;
+import com.example.banking.outbox.OutboxPublisher;
 import com.example.banking.repository.BankAccountRepository;
 import com.example.banking.repository.TransactionRepository;
+import com.example.banking.repository.TransferSagaCreditRepository;
+import com.example.banking.repository.TransferSagaRepository;
+import com.example.banking.sharding.ShardRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -18,7 +33,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Сервис для обработки транзакций между банковскими счетами.
@@ -32,15 +52,42 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final BankAccountRepository bankAccountRepository;
+    private final BankingMetrics bankingMetrics;
+    private final AuditLog auditLog;
+    private final LedgerService ledgerService;
+    private final OutboxPublisher outboxPublisher;
+    private final VelocityCheckService velocityCheckService;
+    private final DailyLimitService dailyLimitService;
+    private final TransferSagaRepository transferSagaRepository;
+    private final TransferSagaCreditRepository transferSagaCreditRepository;
+    private final ShardRouter shardRouter;
+    // Каждый перевод попадает в журнал аудита, поэтому в диагностический лог пишется только выборка
+    private final LogSampler transferLogSampler = new LogSampler(100);
 
     @Autowired
-    public TransactionService(TransactionRepository transactionRepository, BankAccountRepository bankAccountRepository) {
+    public TransactionService(TransactionRepository transactionRepository, BankAccountRepository bankAccountRepository,
+                              BankingMetrics bankingMetrics, AuditLog auditLog, LedgerService ledgerService, OutboxPublisher outboxPublisher,
+                              VelocityCheckService velocityCheckService, DailyLimitService dailyLimitService,
+                              TransferSagaRepository transferSagaRepository, TransferSagaCreditRepository transferSagaCreditRepository,
+                              ShardRouter shardRouter) {
         this.transactionRepository = transactionRepository;
         this.bankAccountRepository = bankAccountRepository;
+        this.bankingMetrics = bankingMetrics;
+        this.auditLog = auditLog;
+        this.ledgerService = ledgerService;
+        this.outboxPublisher = outboxPublisher;
+        this.velocityCheckService = velocityCheckService;
+        this.dailyLimitService = dailyLimitService;
+        this.transferSagaRepository = transferSagaRepository;
+        this.transferSagaCreditRepository = transferSagaCreditRepository;
+        this.shardRouter = shardRouter;
     }
 
     /**
      * Метод для перевода средств между счетами.
+     * <p>
+     * При шардировании оба счета должны находиться на шарде текущего потока; переводы между шардами
+     * выполняет {@link ShardedTransferService}.
      *
      * @param transactionDTO данные транзакции.
      * @return ResponseEntity с сообщением об успешной транзакции и ID транзакции.
@@ -48,7 +95,8 @@ public class TransactionService {
     @Transactional
     @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
     public ResponseEntity<String> transfer(TransactionDTO transactionDTO) {
-        logger.info("Starting transfer from client ID {} to client ID {}", transactionDTO.getFromClientId(), transactionDTO.getToClientId());
+        long transferStart = bankingMetrics.start();
+        logger.debug("Starting transfer from client ID {} to client ID {}", transactionDTO.getFromClientId(), transactionDTO.getToClientId());
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -58,30 +106,40 @@ public class TransactionService {
 
         if (transactionDTO.getFromClientId().equals(transactionDTO.getToClientId())) {
             logger.warn("Cannot transfer money to the same account");
+            bankingMetrics.transferRejected("same_account");
             throw new UserNotFoundException("Cannot transfer money to the same account");
         }
 
-        BankAccount fromAccount = bankAccountRepository.findById(transactionDTO.getFromClientId())
-                .orElseThrow(() -> {
-                    logger.warn("Invalid user ID for fromAccount: {}", transactionDTO.getFromClientId());
-                    return new UserNotFoundException("Invalid user ID");
-                });
-
-        BankAccount toAccount = bankAccountRepository.findById(transactionDTO.getToClientId())
-                .orElseThrow(() -> {
-                    logger.warn("Invalid user ID for toAccount: {}", transactionDTO.getToClientId());
-                    return new UserNotFoundException("Invalid user ID");
-                });
+        // Счета блокируются в порядке возрастания ID, чтобы встречные переводы не приводили к взаимоблокировке
+        long lockStart = bankingMetrics.start();
+        BankAccount fromAccount;
+        BankAccount toAccount;
+        if (transactionDTO.getFromClientId() < transactionDTO.getToClientId()) {
+            fromAccount = lockAccount(transactionDTO.getFromClientId(), "fromAccount");
+            toAccount = lockAccount(transactionDTO.getToClientId(), "toAccount");
+        } else {
+            toAccount = lockAccount(transactionDTO.getToClientId(), "toAccount");
+            fromAccount = lockAccount(transactionDTO.getFromClientId(), "fromAccount");
+        }
+        bankingMetrics.recordTransferPhase(BankingMetrics.LOCK_WAIT, lockStart);
 
         if (fromAccount.getBalance().compareTo(transactionDTO.getAmount()) < 0) {
             logger.warn("Insufficient balance for account ID {}", fromAccount.getId());
+            bankingMetrics.transferRejected("insufficient_balance");
             throw new BalanceException("Insufficient balance");
         }
 
+        // Проверка скорости под блокировкой счета отправителя, по счетчикам в памяти без чтения истории переводов
+        LocalDateTime now = LocalDateTime.now();
+        velocityCheckService.check(fromAccount.getId(), transactionDTO.getAmount(), now);
+        // Суточный лимит списывается из части, выданной этому экземпляру; в базу проверка обращается только за новой частью
+        dailyLimitService.check(fromAccount, transactionDTO.getAmount(), now);
+
+        long writeStart = bankingMetrics.start();
         fromAccount.setBalance(fromAccount.getBalance().subtract(transactionDTO.getAmount()));
         toAccount.setBalance(toAccount.getBalance().add(transactionDTO.getAmount()));
 
-        logger.info("Saving updated balances for accounts ID {} and ID {}", fromAccount.getId(), toAccount.getId());
+        logger.debug("Saving updated balances for accounts ID {} and ID {}", fromAccount.getId(), toAccount.getId());
         bankAccountRepository.save(fromAccount);
         bankAccountRepository.save(toAccount);
 
@@ -89,11 +147,90 @@ public class TransactionService {
         transaction.setFromAccount(fromAccount);
         transaction.setToAccount(toAccount);
         transaction.setAmount(transactionDTO.getAmount());
-        transaction.setTimestamp(LocalDateTime.now());
+        transaction.setTimestamp(now);
 
         transactionRepository.save(transaction);
-
-        logger.info("Transaction successful! Transaction ID: {}", transaction.getId());
+        ledgerService.recordTransfer(transaction);
+        // Получатели событий (уведомления, антифрод) вызываются пересылкой outbox после фиксации, а не здесь
+        outboxPublisher.publish(OutboxEventType.TRANSFER_COMPLETED, transaction.getId(), Map.of(
+                "fromAccountId", fromAccount.getId(),
+                "toAccountId", toAccount.getId(),
+                "amount", transactionDTO.getAmount()));
+        // Явный flush, чтобы запись в базу не смешивалась со временем фиксации транзакции
+        transactionRepository.flush();
+        bankingMetrics.recordTransferPhase(BankingMetrics.DB_WRITE, writeStart);
+        bankingMetrics.recordTransferCompletion(transferStart);
+        auditLog.recordAfterCommit(AuditEventType.TRANSFER, Map.of(
+                "transactionId", transaction.getId(),
+                "fromAccountId", fromAccount.getId(),
+                "toAccountId", toAccount.getId(),
+                "amount", transactionDTO.getAmount()));
+
+        if (transferLogSampler.sample()) {
+            logger.info("Transaction successful! Transaction ID: {} (sampled 1/100)", transaction.getId());
+        }
         return ResponseEntity.ok("Transaction successful! Transaction ID: " + transaction.getId());
     }
+
+    /**
+     * Загружает счет с блокировкой строки до конца транзакции.
+     *
+     * @param accountId ID счета.
+     * @param role      роль счета в переводе для журнала.
+     * @return заблокированный счет.
+     */
+    private BankAccount lockAccount(Long accountId, String role) {
+        return bankAccountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> {
+                    logger.warn("Invalid user ID for {}: {}", role, accountId);
+                    bankingMetrics.transferRejected("unknown_account");
+                    return new UserNotFoundException("Invalid user ID");
+                });
+    }
+
+    /**
+     * История операций счета клиента за период.
+     * <p>
+     * При шардировании в историю входят и межшардовые переводы счета: исходящие из {@code transfer_saga} (кроме
+     * компенсированных) и зачисленные входящие из {@code transfer_saga_credit}.
+     *
+     * @param clientId ID клиента.
+     * @param from     начало периода (включительно).
+     * @param to       конец периода (включительно).
+     * @param page     номер страницы.
+     * @param size     размер страницы.
+     * @return страница транзакций, отсортированных от новых к старым.
+     */
+    @Transactional(readOnly = true)
+    @PreAuthorize("@jwtUserDetailsService.preAuthorizeClient()")
+    public Page<TransactionResponseDTO> getHistory(Long clientId, LocalDate from, LocalDate to, int page, int size) {
+        logger.debug("Loading transaction history for client ID {} from {} to {}", clientId, from, to);
+        BankAccount account = bankAccountRepository.findByClientId(clientId)
+                .orElseThrow(() -> new UserNotFoundException("Invalid user ID"));
+
+        LocalDateTime periodStart = from.atStartOfDay();
+        LocalDateTime periodEnd = to.plusDays(1).atStartOfDay();
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
+        if (!shardRouter.isSharded()) {
+            return transactionRepository.findHistory(account.getId(), periodStart, periodEnd, pageable);
+        }
+
+        // Страница собирается слиянием первых (page + 1) * size строк каждого источника, отсортированных одинаково
+        int head = (page + 1) * size;
+        Page<TransactionResponseDTO> local = transactionRepository.findHistory(account.getId(), periodStart, periodEnd,
+                PageRequest.of(0, head, pageable.getSort()));
+        Page<TransactionResponseDTO> outgoing = transferSagaRepository.findHistory(account.getId(), periodStart, periodEnd,
+                PageRequest.of(0, head));
+        Page<TransactionResponseDTO> incoming = transferSagaCreditRepository.findHistory(account.getId(), periodStart, periodEnd,
+                PageRequest.of(0, head));
+        List<TransactionResponseDTO> content = Stream.of(local, outgoing, incoming)
+                .flatMap(Page::stream)
+                .sorted(Comparator.comparing(TransactionResponseDTO::getTimestamp)
+                        .thenComparing(TransactionResponseDTO::getId).reversed())
+                .skip((long) page * size)
+                .limit(size)
+                .toList();
+        return new PageImpl<>(content, pageable,
+                local.getTotalElements() + outgoing.getTotalElements() + incoming.getTotalElements());
+    }
 }
@@ -0,0 +1,173 @@
+package com.example.banking.service;
+
+import com.example.banking.exception.ClientInputException;
+import com.example.banking.exception.VelocityLimitException;
+import com.example.banking.repository.TransactionRepository;
+import com.example.banking.repository.TransferSagaRepository;
+import com.example.banking.sharding.ShardRouter;
+import com.example.banking.velocity.SlidingWindowCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+/**
+ * Правила скорости переводов: не больше {@code banking.velocity.max-transfers} переводов и не больше
+ * {@code banking.velocity.max-amount} со счета отправителя за {@code banking.velocity.window}.
+ * <p>
+ * Проверка не читает таблицу транзакций: переводы учитываются в счетчиках окна в памяти ({@link SlidingWindowCounters}),
+ * которые восстанавливаются из переводов последнего окна при старте, до приема запросов. Перевод резервируется в счетчиках при проверке и
+ * снимается, если транзакция перевода откатилась. Счетчики у каждого экземпляра свои, поэтому при нескольких
+ * экземплярах лимиты действуют на экземпляр.
+ *
+ * @author nimatullah
+ */
+@Service
+public class VelocityCheckService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(VelocityCheckService.class);
+
+    private final TransactionRepository transactionRepository;
+    private final TransferSagaRepository transferSagaRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final Duration window;
+    private final long maxTransfers;
+    private final BigDecimal maxAmount;
+    private final long maxAmountCents;
+    private final SlidingWindowCounters counters;
+    private final Counter rejected;
+
+    public VelocityCheckService(TransactionRepository transactionRepository,
+                                TransferSagaRepository transferSagaRepository,
+                                PlatformTransactionManager transactionManager,
+                                ShardRouter shardRouter,
+                                MeterRegistry meterRegistry,
+                                @Value("${banking.velocity.enabled:true}") boolean enabled,
+                                @Value("${banking.velocity.window:10m}") Duration window,
+                                @Value("${banking.velocity.buckets:10}") int buckets,
+                                @Value("${banking.velocity.max-transfers:20}") long maxTransfers,
+                                @Value("${banking.velocity.max-amount:1000000}") BigDecimal maxAmount,
+                                @Value("${banking.velocity.max-accounts:100000}") int maxAccounts) {
+        this.transactionRepository = transactionRepository;
+        this.transferSagaRepository = transferSagaRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.window = window;
+        this.maxTransfers = maxTransfers;
+        this.maxAmount = maxAmount;
+        this.maxAmountCents = cents(maxAmount);
+        this.counters = new SlidingWindowCounters(window.toMillis() / buckets, buckets, maxAccounts);
+        this.rejected = Counter.builder("banking.velocity.rejected")
+                .description("Переводы, отклоненные правилами скорости")
+                .register(meterRegistry);
+        Gauge.builder("banking.velocity.accounts", counters, SlidingWindowCounters::size)
+                .description("Счета со счетчиками скорости в памяти")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Проверяет перевод со счета по правилам скорости и учитывает его в окне. Вызывается в транзакции перевода:
+     * при ее откате перевод снимается со счетчиков.
+     *
+     * @param accountId ID счета отправителя.
+     * @param amount    сумма перевода.
+     * @param now       время перевода.
+     * @throws VelocityLimitException если лимит окна будет превышен.
+     */
+    public void check(Long accountId, BigDecimal amount, LocalDateTime now) {
+        if (!enabled) {
+            return;
+        }
+        if (amount.compareTo(maxAmount) > 0) {
+            rejected.increment();
+            throw new ClientInputException("Transfer amount exceeds the limit of " + maxAmount.toPlainString() + " per " + window);
+        }
+        long cents = cents(amount);
+        long atMillis = epochMillis(now);
+        long retryAfter = counters.tryAdd(accountId, atMillis, cents, maxTransfers, maxAmountCents);
+        if (retryAfter > 0) {
+            rejected.increment();
+            logger.warn("Velocity limit exceeded for account ID {}", accountId);
+            throw new VelocityLimitException("Transfer velocity limit exceeded", Duration.ofMillis(retryAfter));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counters.remove(accountId, atMillis, cents);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Восстанавливает счетчики при старте. Вызывается после создания бинов, но до запуска веб-сервера и фоновых
+     * задач: переводы, выполненные после чтения окна, иначе учитывались бы и при проверке, и при восстановлении.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Добавляет в счетчики переводы последнего окна со всех шардов, включая списания межшардовых переводов из
+     * {@code transfer_saga}.
+     * Переводы, уже учтенные в счетчиках, добавляются повторно, поэтому вызывается только при старте.
+     */
+    void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime since = LocalDateTime.now().minus(window);
+        int[] transfers = new int[1];
+        shardRouter.forEachShard(() -> transfers[0] += readOnlyTransaction.execute(status ->
+                load(transactionRepository.streamOutgoingSince(since)) + load(transferSagaRepository.streamOutgoingSince(since))));
+        logger.info("Velocity counters rebuilt from {} transfer(s) of the last {}", transfers[0], window);
+    }
+
+    private int load(Stream<TransactionRepository.OutgoingTransfer> outgoing) {
+        int loaded = 0;
+        try (Stream<TransactionRepository.OutgoingTransfer> rows = outgoing) {
+            for (TransactionRepository.OutgoingTransfer row : (Iterable<TransactionRepository.OutgoingTransfer>) rows::iterator) {
+                counters.add(row.getAccountId(), epochMillis(row.getTimestamp()), 1, cents(row.getAmount()));
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    long transfers(Long accountId, LocalDateTime now) {
+        return counters.count(accountId, epochMillis(now));
+    }
+
+    // Сумма в копейках; суммы переводов принимаются с точностью до копеек
+    private static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.UP).longValueExact();
+    }
+
+    // Время транзакций хранится без часового пояса, поэтому окно считается по тем же локальным часам
+    private static long epochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
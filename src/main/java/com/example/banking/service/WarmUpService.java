@@ -0,0 +1,211 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.ClientResponseDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.metrics.BankingMetrics;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.security.JwtTokenService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Прогрев JIT перед тем, как приложение начнет принимать трафик.
+ * <p>
+ * Слушатель {@link ApplicationReadyEvent} выполняется синхронно и последним, поэтому проба готовности
+ * ({@code /actuator/health/readiness}) переходит в {@code UP} только после прогрева. Прогреваются генерация и проверка
+ * JWT, преобразование DTO, валидация, сериализация JSON и перевод средств. Переводы выполняются между синтетическими
+ * счетами в транзакциях, которые откатываются, и не попадают в метрики и журнал аудита. Итоги публикуются
+ * в {@code /actuator/info} (раздел {@code warmup}).
+ *
+ * @author nimatullah
+ */
+@Service
+@ConditionalOnProperty(prefix = "banking.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WarmUpService implements InfoContributor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpService.class);
+    private static final int TRANSFERS_PER_TRANSACTION = 20;
+
+    private final JwtTokenService jwtTokenService;
+    private final ClientService clientService;
+    private final TransactionService transactionService;
+    private final ClientRepository clientRepository;
+    private final BankAccountRepository bankAccountRepository;
+    private final BankingMetrics bankingMetrics;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int iterations;
+    private final int transferIterations;
+    private final Duration maxDuration;
+
+    private volatile Map<String, Object> report = Map.of("status", "pending");
+
+    public WarmUpService(JwtTokenService jwtTokenService,
+                         ClientService clientService,
+                         TransactionService transactionService,
+                         ClientRepository clientRepository,
+                         BankAccountRepository bankAccountRepository,
+                         BankingMetrics bankingMetrics,
+                         ObjectMapper objectMapper,
+                         Validator validator,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${banking.warmup.iterations:2000}") int iterations,
+                         @Value("${banking.warmup.transfer-iterations:200}") int transferIterations,
+                         @Value("${banking.warmup.max-duration:30s}") Duration maxDuration) {
+        this.jwtTokenService = jwtTokenService;
+        this.clientService = clientService;
+        this.transactionService = transactionService;
+        this.clientRepository = clientRepository;
+        this.bankAccountRepository = bankAccountRepository;
+        this.bankingMetrics = bankingMetrics;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.iterations = iterations;
+        this.transferIterations = transferIterations;
+        this.maxDuration = maxDuration;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onApplicationReady() {
+        warmUp();
+    }
+
+    /**
+     * Выполняет прогрев, но не дольше {@code banking.warmup.max-duration}.
+     *
+     * @return сводка прогрева.
+     */
+    public Map<String, Object> warmUp() {
+        logger.info("Starting JIT warm-up: {} iterations, {} transfers, limit {}", iterations, transferIterations, maxDuration);
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+
+        int completed = 0;
+        Client user = new Client("warmup-user", "warmup-password");
+        ClientDTO clientDTO = syntheticClientDTO();
+        try {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                warmUpInMemory(user, clientDTO);
+                completed++;
+            }
+        } catch (Exception e) {
+            logger.warn("In-memory warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        }
+
+        int transfers = 0;
+        try {
+            while (transfers < transferIterations && System.nanoTime() < deadline) {
+                transfers += warmUpTransfers(Math.min(TRANSFERS_PER_TRANSACTION, transferIterations - transfers));
+            }
+        } catch (Exception e) {
+            logger.warn("Transfer warm-up stopped after {} transfers: {}", transfers, e.getMessage());
+        }
+
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        report = Map.of("status", "completed", "durationMs", elapsedMillis, "iterations", completed, "transfers", transfers);
+        logger.info("JIT warm-up completed in {} ms: {} iterations, {} transfers", elapsedMillis, completed, transfers);
+        return report;
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        builder.withDetail("warmup", report);
+    }
+
+    private void warmUpInMemory(Client user, ClientDTO clientDTO) throws JsonProcessingException {
+        String token = jwtTokenService.generateToken(user);
+        jwtTokenService.validateToken(token, user);
+
+        Client client = clientService.clientMapper(clientDTO);
+        ClientResponseDTO response = clientService.clientMapper(client);
+        validator.validate(clientDTO);
+
+        String json = objectMapper.writeValueAsString(clientDTO);
+        objectMapper.readValue(json, ClientDTO.class);
+        objectMapper.writeValueAsString(response);
+
+        TransactionDTO transactionDTO = objectMapper.readValue("{\"fromClientId\":1,\"toClientId\":2,\"amount\":10.50}", TransactionDTO.class);
+        validator.validate(transactionDTO);
+    }
+
+    /**
+     * Создает два синтетических счета и выполняет между ними переводы в транзакции, которая затем откатывается.
+     *
+     * @return количество выполненных переводов.
+     */
+    private int warmUpTransfers(int count) {
+        Integer done = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            BankAccount from = syntheticAccount();
+            BankAccount to = syntheticAccount();
+            TransactionDTO transactionDTO = new TransactionDTO();
+            transactionDTO.setAmount(BigDecimal.ONE);
+
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(from.getClient().getUsername(), null, List.of()));
+            try {
+                for (int i = 0; i < count; i++) {
+                    boolean forward = i % 2 == 0;
+                    transactionDTO.setFromClientId(forward ? from.getId() : to.getId());
+                    transactionDTO.setToClientId(forward ? to.getId() : from.getId());
+                    bankingMetrics.withoutRecording(() -> transactionService.transfer(transactionDTO));
+                }
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+            return count;
+        });
+        return done == null ? 0 : done;
+    }
+
+    private BankAccount syntheticAccount() {
+        String username = "warmup-" + UUID.randomUUID();
+        Client client = new Client(null, username, "warmup-password", "+0" + username, username + "@warmup.invalid",
+                "1970-01-01", "Warm Up");
+        clientRepository.save(client);
+        BankAccount account = new BankAccount(null, BigDecimal.valueOf(1_000_000), BigDecimal.valueOf(1_000_000), client, null);
+        return bankAccountRepository.save(account);
+    }
+
+    private static ClientDTO syntheticClientDTO() {
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("warmup-user");
+        clientDTO.setPassword("warmup-password");
+        clientDTO.setInitialBalance(BigDecimal.valueOf(1000));
+        clientDTO.setPhoneNumber("+70000000000");
+        clientDTO.setEmail("warmup@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1970, 1, 1));
+        clientDTO.setFullName("Warm Up");
+        return clientDTO;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.banking.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Шард текущего потока, по которому {@link com.example.banking.config.ShardRoutingDataSource} выбирает пул соединений.
+ * Устанавливается через {@link ShardRouter} до начала транзакции: соединение транзакции получается один раз,
+ * и смена шарда внутри нее не действует.
+ *
+ * @author nimatullah
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return шард текущего потока или {@code null}, если шард не задан.
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет действие на указанном шарде и восстанавливает предыдущий шард потока.
+     */
+    static <T> T call(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.banking.sharding;
+
+import com.example.banking.config.ShardRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Выполнение операций на шарде клиента.
+ * <p>
+ * Клиент, его счет и переводы между счетами одного шарда хранятся в базе шарда, определяемого по ID клиента
+ * (ID счета совпадает с ID клиента). Шард задается вызывающим до начала транзакции: внутри транзакции
+ * переход на другой шард запрещен. Без шардирования все методы выполняют действие на единственной базе.
+ *
+ * @author nimatullah
+ */
+@Component
+public class ShardRouter {
+
+    private final ShardRoutingDataSource routing;
+    private final List<String> shards;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardRouter(ObjectProvider<ShardRoutingDataSource> routing) {
+        this.routing = routing.getIfAvailable();
+        this.shards = this.routing == null
+                ? Collections.singletonList(null)
+                : List.copyOf(this.routing.getShards().keySet());
+    }
+
+    public boolean isSharded() {
+        return routing != null;
+    }
+
+    /**
+     * @return шард клиента или {@code null} без шардирования.
+     */
+    public String shardOf(Long clientId) {
+        return routing == null ? null : routing.shardOf(clientId);
+    }
+
+    public boolean sameShard(Long clientId, Long otherClientId) {
+        return Objects.equals(shardOf(clientId), shardOf(otherClientId));
+    }
+
+    /**
+     * Шард для нового клиента: шарды выбираются по кругу.
+     */
+    public String nextShard() {
+        return shards.get(Math.floorMod(nextShard.getAndIncrement(), shards.size()));
+    }
+
+    /**
+     * Выполняет действие на указанном шарде.
+     *
+     * @throws IllegalStateException если поток уже выполняет транзакцию на другом шарде.
+     */
+    public <T> T onShard(String shard, Supplier<T> action) {
+        if (routing == null) {
+            return action.get();
+        }
+        String current = ShardContext.current() != null ? ShardContext.current() : routing.getDefaultShard();
+        if (!current.equals(shard) && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard " + current);
+        }
+        return ShardContext.call(shard, action);
+    }
+
+    public <T> T onClientShard(Long clientId, Supplier<T> action) {
+        return onShard(shardOf(clientId), action);
+    }
+
+    /**
+     * Выполняет действие на каждом шарде по очереди.
+     */
+    public void forEachShard(Runnable action) {
+        for (String shard : shards) {
+            onShard(shard, () -> {
+                action.run();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Ищет значение на шардах по очереди, например клиента по логину, и возвращает первое найденное.
+     */
+    public <T> Optional<T> findOnAnyShard(Supplier<Optional<T>> lookup) {
+        for (String shard : shards) {
+            Optional<T> found = onShard(shard, lookup);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return имена шардов; без шардирования — список из одного {@code null}.
+     */
+    public List<String> shards() {
+        return new ArrayList<>(shards);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.banking.throttling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Адаптивное ограничение числа одновременно выполняемых запросов к API (сброс нагрузки).
+ * <p>
+ * Раз в {@code sample-interval} вычисляется среднее время ожидания соединения из пула за прошедший интервал
+ * (по таймерам {@code hikaricp.connections.acquire}). Если оно выше {@code max-pool-wait}, лимит уменьшается
+ * в 4/3 раза, новые запросы сверх {@code min-limit} отклоняются, пока пул не разгрузится; если лимит был достигнут
+ * при нормальном ожидании — лимит увеличивается на единицу (AIMD). Запросы сверх лимита отклоняются со статусом 503.
+ * Метрики: {@code banking.loadshedding.shed} (тег {@code reason}: {@code concurrency} или {@code pool_wait}),
+ * {@code banking.loadshedding.limit}, {@code banking.loadshedding.inflight}, {@code banking.loadshedding.pool.wait}.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.load-shedding", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    static final String CONCURRENCY = "concurrency";
+    static final String POOL_WAIT = "pool_wait";
+
+    private final MeterRegistry meterRegistry;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double maxPoolWaitMillis;
+    private final long sampleIntervalNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final AtomicLong nextSampleNanos;
+    private final Map<String, Counter> shed = new ConcurrentHashMap<>();
+
+    private volatile boolean poolSaturated;
+    private volatile boolean limitReached;
+    private volatile double poolWaitMillis;
+    // Изменяются только потоком, выигравшим CAS по nextSampleNanos
+    private long lastAcquireCount;
+    private double lastAcquireNanos;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      @Value("${banking.load-shedding.initial-limit:50}") int initialLimit,
+                                      @Value("${banking.load-shedding.min-limit:5}") int minLimit,
+                                      @Value("${banking.load-shedding.max-limit:200}") int maxLimit,
+                                      @Value("${banking.load-shedding.max-pool-wait:50ms}") Duration maxPoolWait,
+                                      @Value("${banking.load-shedding.sample-interval:100ms}") Duration sampleInterval) {
+        this.meterRegistry = meterRegistry;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxPoolWaitMillis = maxPoolWait.toNanos() / 1e6;
+        this.sampleIntervalNanos = sampleInterval.toNanos();
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+        this.nextSampleNanos = new AtomicLong(System.nanoTime() + sampleIntervalNanos);
+
+        Gauge.builder("banking.loadshedding.limit", limit, AtomicInteger::get)
+                .description("Текущий адаптивный лимит одновременных запросов к API")
+                .register(meterRegistry);
+        Gauge.builder("banking.loadshedding.inflight", inFlight, AtomicInteger::get)
+                .description("Запросы к API, выполняемые в данный момент")
+                .register(meterRegistry);
+        Gauge.builder("banking.loadshedding.pool.wait", this, limiter -> limiter.poolWaitMillis)
+                .description("Среднее время ожидания соединения из пула за последний интервал")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Пытается занять место для запроса. При успехе вызывающий обязан вызвать {@link #release()}.
+     *
+     * @return false, если запрос нужно отклонить.
+     */
+    public boolean tryAcquire() {
+        sample();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                limitReached = true;
+                return shed(CONCURRENCY);
+            }
+            if (poolSaturated && current >= minLimit) {
+                return shed(POOL_WAIT);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * Пересчитывает лимит по среднему времени ожидания соединения за прошедший интервал.
+     */
+    void adjust(double recentPoolWaitMillis) {
+        poolWaitMillis = recentPoolWaitMillis;
+        poolSaturated = recentPoolWaitMillis > maxPoolWaitMillis;
+        if (poolSaturated) {
+            int reduced = limit.updateAndGet(current -> Math.max(minLimit, current * 3 / 4));
+            logger.debug("Connection pool wait {} ms, concurrency limit reduced to {}", recentPoolWaitMillis, reduced);
+        } else if (limitReached) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+        limitReached = false;
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long next = nextSampleNanos.get();
+        if (now - next < 0 || !nextSampleNanos.compareAndSet(next, now + sampleIntervalNanos)) {
+            return;
+        }
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : meterRegistry.find("hikaricp.connections.acquire").timers()) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        long acquired = count - lastAcquireCount;
+        double waited = totalNanos - lastAcquireNanos;
+        lastAcquireCount = count;
+        lastAcquireNanos = totalNanos;
+        adjust(acquired > 0 ? waited / acquired / 1e6 : 0);
+    }
+
+    private boolean shed(String reason) {
+        shed.computeIfAbsent(reason, key -> Counter.builder("banking.loadshedding.shed")
+                        .description("Запросы, отклоненные при перегрузке базы данных")
+                        .tag("reason", key)
+                        .register(meterRegistry))
+                .increment();
+        return false;
+    }
+}
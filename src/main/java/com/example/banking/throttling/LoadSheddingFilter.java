@@ -0,0 +1,59 @@
+package com.example.banking.throttling;
+
+import com.example.banking.exception.ServiceOverloadedException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Фильтр сброса нагрузки для запросов к {@code /api/**}.
+ * <p>
+ * Выполняется до цепочки безопасности, чтобы отклоненный запрос не загружал пользователя из базы при проверке JWT.
+ *
+ * @author nimatullah
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(prefix = "banking.load-shedding", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    public LoadSheddingFilter(AdaptiveConcurrencyLimiter limiter, HandlerExceptionResolver handlerExceptionResolver) {
+        this.limiter = limiter;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!limiter.tryAcquire()) {
+            handlerExceptionResolver.resolveException(request, response, null,
+                    new ServiceOverloadedException("Service is overloaded, retry later", RETRY_AFTER));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.banking.throttling;
+
+import com.example.banking.exception.TooManyRequestsException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Фильтр ограничения частоты запросов аутентифицированного клиента.
+ * <p>
+ * Подключается в цепочку безопасности после {@code JwtRequestFilter}, когда имя пользователя уже известно, поэтому
+ * не является бином и не регистрируется отдельно как фильтр сервлета. Анонимные запросы не ограничиваются.
+ *
+ * @author nimatullah
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    public RateLimitFilter(TokenBucketRateLimiter rateLimiter, HandlerExceptionResolver handlerExceptionResolver) {
+        this.rateLimiter = rateLimiter;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            long waitNanos = rateLimiter.tryAcquire(authentication.getName());
+            if (waitNanos > 0) {
+                logger.debug("Rate limit exceeded for {}", authentication.getName());
+                handlerExceptionResolver.resolveException(request, response, null,
+                        new TooManyRequestsException("Rate limit exceeded", Duration.ofNanos(waitNanos)));
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.banking.throttling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение частоты запросов клиента по алгоритму маркерной корзины (token bucket).
+ * <p>
+ * Корзина каждого клиента хранится в одном {@link AtomicLong} — теоретическом моменте прибытия следующего запроса
+ * (вариант GCRA): корзина емкостью {@code capacity} пополняется на один маркер каждые {@code 1 / refill-rate} секунды.
+ * Взятие маркера — одна операция CAS без блокировок. Полная корзина неотличима от отсутствующей, поэтому при превышении
+ * {@code max-clients} записи простаивающих клиентов удаляются. Отказы считаются метрикой {@code banking.ratelimit.rejected}.
+ *
+ * @author nimatullah
+ */
+@Component
+@ConditionalOnProperty(prefix = "banking.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TokenBucketRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    @Autowired
+    public TokenBucketRateLimiter(MeterRegistry meterRegistry,
+                                  @Value("${banking.rate-limit.capacity:50}") int capacity,
+                                  @Value("${banking.rate-limit.refill-rate:20}") double refillRate,
+                                  @Value("${banking.rate-limit.max-clients:100000}") int maxClients) {
+        this(meterRegistry, capacity, refillRate, maxClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(MeterRegistry meterRegistry, int capacity, double refillRate, int maxClients, LongSupplier clock) {
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillRate);
+        this.capacityNanos = capacity * emissionIntervalNanos;
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.rejected = Counter.builder("banking.ratelimit.rejected")
+                .description("Запросы, отклоненные ограничением частоты клиента")
+                .register(meterRegistry);
+        Gauge.builder("banking.ratelimit.clients", buckets, Map::size)
+                .description("Количество клиентов с активной корзиной маркеров")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Берет маркер из корзины клиента.
+     *
+     * @param key имя пользователя.
+     * @return 0, если запрос разрешен, иначе время в наносекундах до появления маркера.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong bucket = bucket(key);
+        while (true) {
+            long now = clock.getAsLong();
+            long arrival = bucket.get();
+            long next = (arrival - now > 0 ? arrival : now) + emissionIntervalNanos;
+            long wait = next - now - capacityNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            evictIdle();
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(clock.getAsLong()));
+    }
+
+    /**
+     * Удаляет полные корзины: клиент, не отправлявший запросов дольше времени пополнения, получит новую полную корзину.
+     */
+    private void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.banking.velocity;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Счетчики количества и суммы операций по ключу (ID счета) в скользящем окне из {@code buckets} интервалов
+ * по {@code bucketMillis}.
+ * <p>
+ * Окно ключа — кольцо интервалов в одном массиве {@code long[]}: номер интервала, количество и сумма в минимальных
+ * единицах. Массив не изменяется, изменение заменяет его копией через CAS, поэтому проверка лимитов и добавление
+ * выполняются атомарно без блокировок, а чтение и проверка стоят O(buckets) независимо от числа операций.
+ * Ключи хранятся в {@link ConcurrentHashMap}: чтение без блокировок, добавление ключа блокирует одну ячейку таблицы.
+ * Окно учитывает текущий интервал и {@code buckets - 1} предыдущих, то есть его длина округляется до интервала.
+ * <p>
+ * При достижении {@code maxKeys} удаляются ключи без операций в окне (не чаще раза за интервал). Ключи с операциями
+ * в окне не удаляются, поэтому {@code maxKeys} — мягкая граница.
+ *
+ * @author nimatullah
+ */
+public class SlidingWindowCounters {
+
+    private static final int STRIDE = 3;
+    private static final int EPOCH = 0;
+    private static final int COUNT = 1;
+    private static final int AMOUNT = 2;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final int maxKeys;
+    private final long[] empty;
+    private final Map<Long, AtomicReference<long[]>> windows = new ConcurrentHashMap<>();
+    private volatile long lastEvictionEpoch = Long.MIN_VALUE;
+
+    public SlidingWindowCounters(long bucketMillis, int buckets, int maxKeys) {
+        if (bucketMillis <= 0 || buckets < 1) {
+            throw new IllegalArgumentException("Invalid sliding window dimensions");
+        }
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        this.maxKeys = maxKeys;
+        this.empty = new long[buckets * STRIDE];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            empty[bucket * STRIDE + EPOCH] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Добавляет операцию, если после нее количество в окне не превысит {@code maxCount}, а сумма — {@code maxAmount}.
+     *
+     * @return 0, если операция добавлена, иначе время в миллисекундах, через которое из окна выйдет достаточно операций.
+     */
+    public long tryAdd(long key, long nowMillis, long amount, long maxCount, long maxAmount) {
+        long epoch = Math.floorDiv(nowMillis, bucketMillis);
+        while (true) {
+            AtomicReference<long[]> window = window(key, epoch);
+            long[] current = window.get();
+            long count = 0;
+            long total = 0;
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                if (live(current, bucket, epoch)) {
+                    count += current[bucket * STRIDE + COUNT];
+                    total += current[bucket * STRIDE + AMOUNT];
+                }
+            }
+            if (count + 1 > maxCount || total + amount > maxAmount) {
+                return retryAfter(current, epoch, nowMillis, count + 1 - maxCount, total + amount - maxAmount);
+            }
+            if (window.compareAndSet(current, added(current, epoch, 1, amount)) && windows.get(key) == window) {
+                return 0;
+            }
+            // Массив заменен другим потоком или окно удалено как простаивающее: проверка повторяется
+        }
+    }
+
+    /**
+     * Добавляет операции без проверки лимитов (восстановление окна из базы).
+     */
+    public void add(long key, long atMillis, long count, long amount) {
+        long epoch = Math.floorDiv(atMillis, bucketMillis);
+        while (true) {
+            AtomicReference<long[]> window = window(key, epoch);
+            long[] current = window.get();
+            if (window.compareAndSet(current, added(current, epoch, count, amount)) && windows.get(key) == window) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Снимает операцию, добавленную в момент {@code atMillis}, если ее интервал еще в кольце.
+     */
+    public void remove(long key, long atMillis, long amount) {
+        long epoch = Math.floorDiv(atMillis, bucketMillis);
+        int offset = Math.floorMod(epoch, buckets) * STRIDE;
+        AtomicReference<long[]> window = windows.get(key);
+        if (window == null) {
+            return;
+        }
+        while (true) {
+            long[] current = window.get();
+            if (current[offset + EPOCH] != epoch) {
+                return;
+            }
+            long[] next = current.clone();
+            next[offset + COUNT] = Math.max(0, next[offset + COUNT] - 1);
+            next[offset + AMOUNT] = Math.max(0, next[offset + AMOUNT] - amount);
+            if (window.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Количество операций ключа в окне на момент {@code nowMillis}.
+     */
+    public long count(long key, long nowMillis) {
+        return sum(key, nowMillis, COUNT);
+    }
+
+    /**
+     * Сумма операций ключа в окне на момент {@code nowMillis}.
+     */
+    public long amount(long key, long nowMillis) {
+        return sum(key, nowMillis, AMOUNT);
+    }
+
+    public int size() {
+        return windows.size();
+    }
+
+    private long sum(long key, long nowMillis, int field) {
+        AtomicReference<long[]> window = windows.get(key);
+        if (window == null) {
+            return 0;
+        }
+        long epoch = Math.floorDiv(nowMillis, bucketMillis);
+        long[] current = window.get();
+        long sum = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (live(current, bucket, epoch)) {
+                sum += current[bucket * STRIDE + field];
+            }
+        }
+        return sum;
+    }
+
+    private AtomicReference<long[]> window(long key, long epoch) {
+        AtomicReference<long[]> window = windows.get(key);
+        if (window != null) {
+            return window;
+        }
+        if (windows.size() >= maxKeys && lastEvictionEpoch != epoch) {
+            lastEvictionEpoch = epoch;
+            windows.values().removeIf(candidate -> idle(candidate.get(), epoch));
+        }
+        return windows.computeIfAbsent(key, k -> new AtomicReference<>(empty));
+    }
+
+    private long[] added(long[] current, long epoch, long count, long amount) {
+        int offset = Math.floorMod(epoch, buckets) * STRIDE;
+        long[] next = current.clone();
+        if (next[offset + EPOCH] != epoch) {
+            next[offset + EPOCH] = epoch;
+            next[offset + COUNT] = 0;
+            next[offset + AMOUNT] = 0;
+        }
+        next[offset + COUNT] += count;
+        next[offset + AMOUNT] += amount;
+        return next;
+    }
+
+    // Время до момента, когда выход старых интервалов из окна освободит excessCount операций и excessAmount суммы
+    private long retryAfter(long[] current, long epoch, long nowMillis, long excessCount, long excessAmount) {
+        long[] order = new long[buckets];
+        int live = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (live(current, bucket, epoch)) {
+                order[live++] = current[bucket * STRIDE + EPOCH];
+            }
+        }
+        Arrays.sort(order, 0, live);
+        long freedCount = 0;
+        long freedAmount = 0;
+        for (int i = 0; i < live; i++) {
+            int offset = Math.floorMod(order[i], buckets) * STRIDE;
+            freedCount += current[offset + COUNT];
+            freedAmount += current[offset + AMOUNT];
+            if (freedCount >= excessCount && freedAmount >= excessAmount) {
+                return Math.max(1, (order[i] + buckets) * bucketMillis - nowMillis);
+            }
+        }
+        return buckets * bucketMillis;
+    }
+
+    private boolean live(long[] window, int bucket, long epoch) {
+        long bucketEpoch = window[bucket * STRIDE + EPOCH];
+        return bucketEpoch > epoch - buckets && bucketEpoch <= epoch;
+    }
+
+    private boolean idle(long[] window, long epoch) {
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (window[bucket * STRIDE + EPOCH] > epoch - buckets) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
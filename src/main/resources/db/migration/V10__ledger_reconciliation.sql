@@ -0,0 +1,36 @@
+-- Сверка остатков счетов с журналом: bank_account.balance = OPENING + CREDIT - DEBIT + INTEREST.
+-- reconciliation_run — запуски сверки, reconciliation_discrepancy — найденные расхождения.
+
+CREATE TABLE reconciliation_run
+(
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status        VARCHAR(16)  NOT NULL,
+    started_at    TIMESTAMP(6) NOT NULL,
+    finished_at   TIMESTAMP(6),
+    accounts      BIGINT       NOT NULL DEFAULT 0,
+    discrepancies BIGINT       NOT NULL DEFAULT 0
+);
+
+-- Одновременно выполняется не больше одной сверки на все экземпляры
+CREATE UNIQUE INDEX ux_reconciliation_run_running ON reconciliation_run ((true)) WHERE status = 'RUNNING';
+
+CREATE TABLE reconciliation_discrepancy
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    run_id          BIGINT         NOT NULL REFERENCES reconciliation_run (id),
+    account_id      BIGINT         NOT NULL,
+    balance         NUMERIC(38, 2) NOT NULL,
+    expected        NUMERIC(38, 2) NOT NULL,
+    initial_balance NUMERIC(38, 2) NOT NULL,
+    opening         NUMERIC(38, 2) NOT NULL,
+    credits         NUMERIC(38, 2) NOT NULL,
+    debits          NUMERIC(38, 2) NOT NULL,
+    interest        NUMERIC(38, 2) NOT NULL
+);
+
+-- ReconciliationDiscrepancyRepository.findByRunIdOrderByAccountId
+CREATE INDEX ix_reconciliation_discrepancy_run ON reconciliation_discrepancy (run_id, account_id);
+
+-- Сверка суммирует проводки диапазона счетов только по индексу (index-only scan); findDelta тоже читает только индекс
+DROP INDEX ix_ledger_posting_account_id;
+CREATE INDEX ix_ledger_posting_account_id ON ledger_posting (account_id, id) INCLUDE (type, amount);
@@ -0,0 +1,63 @@
+-- Шардирование счетов: схема одинакова на всех шардах, шард клиента определяется слотом его ID (id mod slots).
+-- transfer_saga — межшардовые переводы на шарде отправителя, transfer_saga_credit — зачисления на шарде получателя.
+
+-- Выравнивает последовательности ID клиентов, счетов и транзакций шарда: следующие значения больше существующих
+-- и дают остаток home_slot по модулю slots, поэтому ID уникальны на всех шардах и указывают на свой шард.
+-- Клиенты и счета выравниваются от общего максимума, чтобы ID счета по-прежнему совпадал с ID клиента.
+-- Уже выровненная последовательность не перезапускается. Вызывается приложением при старте для каждого шарда.
+CREATE FUNCTION align_shard_sequences(slots INT, home_slot INT) RETURNS VOID AS
+$$
+DECLARE
+    target  RECORD;
+    next_id BIGINT;
+BEGIN
+    FOR target IN
+        SELECT * FROM (VALUES (pg_get_serial_sequence('client', 'id'),
+                               GREATEST((SELECT max(id) FROM client), (SELECT max(id) FROM bank_account))),
+                              (pg_get_serial_sequence('bank_account', 'id'),
+                               GREATEST((SELECT max(id) FROM client), (SELECT max(id) FROM bank_account))),
+                              (pg_get_serial_sequence('transaction', 'id'),
+                               (SELECT max(id) FROM transaction))) AS t(sequence_name, max_id)
+        LOOP
+            -- Последовательность выдает значения start + k * increment, поэтому выровненную определяют шаг и начало
+            IF EXISTS(SELECT 1 FROM pg_sequence
+                      WHERE seqrelid = target.sequence_name::regclass
+                        AND seqincrement = slots
+                        AND mod(seqstart, slots) = home_slot) THEN
+                CONTINUE;
+            END IF;
+            next_id := COALESCE(target.max_id, 0) + 1;
+            next_id := next_id + mod(mod(home_slot - next_id, slots) + slots, slots);
+            EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s START WITH %s RESTART WITH %s',
+                           target.sequence_name, slots, next_id, next_id);
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TABLE transfer_saga
+(
+    -- ID из последовательности transaction шарда отправителя; используется в проводках как transaction_id
+    id              BIGINT         NOT NULL PRIMARY KEY,
+    from_account_id BIGINT         NOT NULL REFERENCES bank_account (id),
+    -- Счет на другом шарде, внешнего ключа нет
+    to_account_id   BIGINT         NOT NULL,
+    amount          NUMERIC(38, 2) NOT NULL,
+    status          VARCHAR(16)    NOT NULL,
+    created_at      TIMESTAMP(6)   NOT NULL,
+    updated_at      TIMESTAMP(6)   NOT NULL
+);
+
+-- ShardedTransferService.recoverPendingTransfers: незавершенные переводы
+CREATE INDEX ix_transfer_saga_debited ON transfer_saga (updated_at) WHERE status = 'DEBITED';
+
+-- Зачисление выполняется не больше одного раза: строка вставляется в одной транзакции с зачислением
+-- или с отказом, если счета получателя нет
+CREATE TABLE transfer_saga_credit
+(
+    saga_id         BIGINT         NOT NULL PRIMARY KEY,
+    from_account_id BIGINT         NOT NULL,
+    to_account_id   BIGINT         NOT NULL,
+    amount          NUMERIC(38, 2) NOT NULL,
+    credited        BOOLEAN        NOT NULL,
+    created_at      TIMESTAMP(6)   NOT NULL
+);
@@ -0,0 +1,10 @@
+-- Межшардовые переводы в истории, модели чтения профиля и счетчиках скорости.
+
+-- TransferSagaRepository.findHistory и ClientViewRepository.LIVE_VIEW: исходящие переводы счета
+CREATE INDEX ix_transfer_saga_from_account_id_created_at ON transfer_saga (from_account_id, created_at);
+
+-- VelocityCheckService.rebuild: переводы последнего окна
+CREATE INDEX ix_transfer_saga_created_at ON transfer_saga (created_at);
+
+-- TransferSagaCreditRepository.findHistory и ClientViewRepository.LIVE_VIEW: зачисленные входящие переводы счета
+CREATE INDEX ix_transfer_saga_credit_to_account_id_created_at ON transfer_saga_credit (to_account_id, created_at) WHERE credited;
@@ -0,0 +1,2 @@
+-- Отложенный перевод хранится на шарде отправителя, получатель может быть на другом шарде
+ALTER TABLE scheduled_transfer DROP CONSTRAINT scheduled_transfer_to_account_id_fkey;
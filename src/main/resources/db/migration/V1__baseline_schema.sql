@@ -0,0 +1,30 @@
+-- Базовая схема, ранее создаваемая Hibernate (ddl-auto=update).
+-- IF NOT EXISTS позволяет применить миграцию к базе, созданной Hibernate.
+
+CREATE TABLE IF NOT EXISTS client
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username     VARCHAR(255) NOT NULL,
+    password     VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255) NOT NULL,
+    email        VARCHAR(255) NOT NULL,
+    birth_date   VARCHAR(255) NOT NULL,
+    full_name    VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS bank_account
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    initial_balance NUMERIC(38, 2) NOT NULL,
+    balance         NUMERIC(38, 2) NOT NULL,
+    client_id       BIGINT         NOT NULL UNIQUE REFERENCES client (id)
+);
+
+CREATE TABLE IF NOT EXISTS transaction
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    from_account_id BIGINT         NOT NULL REFERENCES bank_account (id),
+    to_account_id   BIGINT         NOT NULL REFERENCES bank_account (id),
+    amount          NUMERIC(38, 2) NOT NULL,
+    timestamp       TIMESTAMP(6)   NOT NULL
+);
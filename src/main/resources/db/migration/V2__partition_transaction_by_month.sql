@@ -0,0 +1,67 @@
+-- Секционирование таблицы transaction по месяцам (RANGE по timestamp) и архивная таблица.
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования.
+
+CREATE SEQUENCE transaction_partitioned_id_seq;
+
+CREATE TABLE transaction_partitioned
+(
+    id              BIGINT         NOT NULL DEFAULT nextval('transaction_partitioned_id_seq'),
+    from_account_id BIGINT         NOT NULL REFERENCES bank_account (id),
+    to_account_id   BIGINT         NOT NULL REFERENCES bank_account (id),
+    amount          NUMERIC(38, 2) NOT NULL,
+    timestamp       TIMESTAMP(6)   NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER TABLE transaction RENAME TO transaction_unpartitioned;
+ALTER TABLE transaction_partitioned RENAME TO transaction;
+
+-- Создает секцию transaction_pYYYY_MM для месяца, содержащего month_start. Используется и приложением.
+CREATE FUNCTION create_transaction_partition(month_start DATE) RETURNS TEXT AS
+$$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::DATE;
+    partition_name  TEXT := format('transaction_p%s', to_char(partition_start, 'YYYY_MM'));
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, partition_start, (partition_start + INTERVAL '1 month')::DATE);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Секции для уже существующих транзакций и на три месяца вперед
+DO
+$$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE((SELECT min(timestamp) FROM transaction_unpartitioned), now()))::DATE;
+BEGIN
+    WHILE month_start <= date_trunc('month', now() + INTERVAL '3 months')::DATE
+        LOOP
+            PERFORM create_transaction_partition(month_start);
+            month_start := (month_start + INTERVAL '1 month')::DATE;
+        END LOOP;
+END;
+$$;
+
+INSERT INTO transaction (id, from_account_id, to_account_id, amount, timestamp)
+SELECT id, from_account_id, to_account_id, amount, timestamp
+FROM transaction_unpartitioned;
+
+SELECT setval('transaction_partitioned_id_seq', COALESCE((SELECT max(id) FROM transaction_unpartitioned), 0) + 1, false);
+
+DROP TABLE transaction_unpartitioned;
+
+ALTER SEQUENCE transaction_partitioned_id_seq RENAME TO transaction_id_seq;
+ALTER SEQUENCE transaction_id_seq OWNED BY transaction.id;
+
+-- Архив транзакций из секций старше настроенного срока хранения
+CREATE TABLE transaction_archive
+(
+    id              BIGINT         NOT NULL,
+    from_account_id BIGINT         NOT NULL,
+    to_account_id   BIGINT         NOT NULL,
+    amount          NUMERIC(38, 2) NOT NULL,
+    timestamp       TIMESTAMP(6)   NOT NULL,
+    archived_at     TIMESTAMP(6)   NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, timestamp)
+);
@@ -0,0 +1,25 @@
+-- Индексы под методы репозиториев ClientRepository, BankAccountRepository и TransactionRepository.
+-- Проверяются тестом QueryPlanTests: при добавлении нового метода запроса добавьте индекс и проверку плана.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- ClientRepository.findByUsername
+CREATE UNIQUE INDEX IF NOT EXISTS ux_client_username ON client (username);
+
+-- ClientRepository.findOneByPhoneNumber, findByPhoneNumber
+CREATE INDEX IF NOT EXISTS ix_client_phone_number ON client (phone_number);
+
+-- ClientRepository.findOneByEmail, findByEmail
+CREATE INDEX IF NOT EXISTS ix_client_email ON client (email);
+
+-- ClientRepository.findByFullNameLike: шаблон задает клиент, поэтому нужен триграммный индекс, а не btree
+CREATE INDEX IF NOT EXISTS ix_client_full_name_trgm ON client USING gin (full_name gin_trgm_ops);
+
+-- ClientRepository.findByBirthDateAfter (дата хранится строкой yyyy-MM-dd, лексикографический порядок совпадает с хронологическим)
+CREATE INDEX IF NOT EXISTS ix_client_birth_date ON client (birth_date);
+
+-- BankAccountRepository.findByClientId использует уникальное ограничение bank_account_client_id_key из V1
+
+-- TransactionRepository.findHistory и внешние ключи на bank_account; индексы создаются в каждой секции
+CREATE INDEX IF NOT EXISTS ix_transaction_from_account_timestamp ON transaction (from_account_id, timestamp);
+CREATE INDEX IF NOT EXISTS ix_transaction_to_account_timestamp ON transaction (to_account_id, timestamp);
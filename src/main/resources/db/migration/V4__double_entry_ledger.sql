@@ -0,0 +1,49 @@
+-- Журнал двойной записи: неизменяемые проводки по счетам и снимки остатков.
+-- Перевод дает две проводки (DEBIT со счета отправителя, CREDIT на счет получателя), начисление процентов — одну (INTEREST).
+-- Остаток счета = снимок + сумма проводок с id больше last_posting_id снимка.
+
+CREATE TABLE ledger_posting
+(
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_id     BIGINT         NOT NULL REFERENCES bank_account (id),
+    type           VARCHAR(32)    NOT NULL,
+    amount         NUMERIC(38, 2) NOT NULL,
+    transaction_id BIGINT,
+    timestamp      TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT ck_ledger_posting_sign CHECK (
+        CASE type
+            WHEN 'DEBIT' THEN amount < 0
+            WHEN 'CREDIT' THEN amount > 0
+            ELSE amount >= 0
+            END)
+);
+
+-- LedgerPostingRepository.findDelta: проводки счета после снимка
+CREATE INDEX ix_ledger_posting_account_id ON ledger_posting (account_id, id);
+
+CREATE TABLE ledger_snapshot
+(
+    account_id      BIGINT         NOT NULL PRIMARY KEY REFERENCES bank_account (id),
+    balance         NUMERIC(38, 2) NOT NULL,
+    last_posting_id BIGINT         NOT NULL,
+    created_at      TIMESTAMP(6)   NOT NULL
+);
+
+-- Проводки только добавляются: изменение и удаление запрещены
+CREATE FUNCTION forbid_ledger_posting_change() RETURNS TRIGGER AS
+$$
+BEGIN
+    RAISE EXCEPTION 'ledger_posting is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ledger_posting_append_only
+    BEFORE UPDATE OR DELETE
+    ON ledger_posting
+    FOR EACH ROW
+EXECUTE FUNCTION forbid_ledger_posting_change();
+
+-- История существующих счетов до появления журнала неизвестна, поэтому текущий остаток становится начальной проводкой
+INSERT INTO ledger_posting (account_id, type, amount, timestamp)
+SELECT id, 'OPENING', balance, now()
+FROM bank_account;
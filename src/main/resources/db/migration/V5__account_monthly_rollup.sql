@@ -0,0 +1,38 @@
+-- Помесячные итоги по счетам для выписок. Обновляются в транзакции проводки или догоняющим заданием;
+-- last_posting_id — последняя учтенная проводка счета, поэтому повторное применение проводки не меняет итоги.
+
+CREATE TABLE account_monthly_rollup
+(
+    account_id      BIGINT         NOT NULL REFERENCES bank_account (id),
+    month_start     DATE           NOT NULL,
+    opening_balance NUMERIC(38, 2) NOT NULL,
+    total_in        NUMERIC(38, 2) NOT NULL,
+    total_out       NUMERIC(38, 2) NOT NULL,
+    postings        INTEGER        NOT NULL,
+    last_posting_id BIGINT         NOT NULL,
+    PRIMARY KEY (account_id, month_start)
+);
+
+-- StatementService: строки выписки за месяц
+CREATE INDEX ix_ledger_posting_account_timestamp ON ledger_posting (account_id, timestamp);
+
+-- Итоги по уже существующим проводкам
+WITH monthly AS (SELECT account_id,
+                        date_trunc('month', timestamp)::DATE            AS month_start,
+                        COALESCE(SUM(amount) FILTER (WHERE amount > 0), 0)  AS total_in,
+                        COALESCE(-SUM(amount) FILTER (WHERE amount < 0), 0) AS total_out,
+                        SUM(amount)                                     AS net,
+                        count(*)                                        AS postings,
+                        max(id)                                         AS last_posting_id
+                 FROM ledger_posting
+                 GROUP BY account_id, date_trunc('month', timestamp)::DATE)
+INSERT
+INTO account_monthly_rollup (account_id, month_start, opening_balance, total_in, total_out, postings, last_posting_id)
+SELECT account_id,
+       month_start,
+       COALESCE(SUM(net) OVER (PARTITION BY account_id ORDER BY month_start ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0),
+       total_in,
+       total_out,
+       postings,
+       last_posting_id
+FROM monthly;
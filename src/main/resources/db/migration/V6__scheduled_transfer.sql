@@ -0,0 +1,30 @@
+-- Отложенные и периодические переводы.
+-- Экземпляр приложения захватывает ближайшие переводы (claimed_by, claimed_until) и держит их в колесе таймеров.
+-- Выполнение перевода и перенос next_run_at фиксируются одной транзакцией, поэтому после перезапуска
+-- выполненный срок не повторяется, а невыполненный захватывается снова после истечения claimed_until.
+
+CREATE TABLE scheduled_transfer
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    owner           VARCHAR(255)   NOT NULL,
+    from_account_id BIGINT         NOT NULL REFERENCES bank_account (id),
+    to_account_id   BIGINT         NOT NULL REFERENCES bank_account (id),
+    amount          NUMERIC(38, 2) NOT NULL CHECK (amount > 0),
+    recurrence      VARCHAR(16)    NOT NULL,
+    next_run_at     TIMESTAMP(6)   NOT NULL,
+    ends_at         TIMESTAMP(6),
+    status          VARCHAR(16)    NOT NULL,
+    runs            INTEGER        NOT NULL DEFAULT 0,
+    failures        INTEGER        NOT NULL DEFAULT 0,
+    last_run_at     TIMESTAMP(6),
+    last_error      VARCHAR(255),
+    claimed_by      VARCHAR(64),
+    claimed_until   TIMESTAMP(6),
+    created_at      TIMESTAMP(6)   NOT NULL
+);
+
+-- ScheduledTransferRepository.findDueForClaim: только активные переводы в порядке срока
+CREATE INDEX ix_scheduled_transfer_due ON scheduled_transfer (next_run_at) WHERE status = 'ACTIVE';
+
+-- ScheduledTransferRepository.findByOwner
+CREATE INDEX ix_scheduled_transfer_owner ON scheduled_transfer (owner, id);
@@ -0,0 +1,24 @@
+-- Транзакционный outbox: события пишутся в транзакции перевода или регистрации клиента и доставляются
+-- получателям фоновой пересылкой. outbox_consumer хранит позицию каждого получателя; строка получателя
+-- блокируется на время доставки пачки (FOR UPDATE SKIP LOCKED), поэтому пачку доставляет один экземпляр.
+
+CREATE TABLE outbox_event
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type         VARCHAR(32)  NOT NULL,
+    aggregate_id BIGINT       NOT NULL,
+    payload      TEXT         NOT NULL,
+    created_at   TIMESTAMP(6) NOT NULL
+);
+
+-- OutboxEventRepository.deleteDelivered
+CREATE INDEX ix_outbox_event_created_at ON outbox_event (created_at);
+
+CREATE TABLE outbox_consumer
+(
+    name          VARCHAR(64) PRIMARY KEY,
+    last_event_id BIGINT       NOT NULL,
+    delivered     BIGINT       NOT NULL DEFAULT 0,
+    last_error    VARCHAR(255),
+    updated_at    TIMESTAMP(6) NOT NULL
+);
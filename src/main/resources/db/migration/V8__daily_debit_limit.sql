@@ -0,0 +1,14 @@
+-- Суточные лимиты списаний. daily_debit_usage.reserved — часть суточного лимита счета, выданная экземплярам
+-- приложения; экземпляр расходует выданную часть в памяти и берет следующую, когда она закончилась.
+-- Сумма выданных частей не превышает лимит, поэтому лимит не превышается при любом числе экземпляров.
+
+-- NULL — лимит по умолчанию (banking.daily-limit.default)
+ALTER TABLE bank_account ADD COLUMN daily_debit_limit NUMERIC(38, 2) CHECK (daily_debit_limit >= 0);
+
+CREATE TABLE daily_debit_usage
+(
+    account_id BIGINT         NOT NULL REFERENCES bank_account (id),
+    usage_date DATE           NOT NULL,
+    reserved   NUMERIC(38, 2) NOT NULL CHECK (reserved >= 0),
+    PRIMARY KEY (account_id, usage_date)
+);
@@ -0,0 +1,55 @@
+-- Модель чтения профиля клиента: профиль, баланс и последние переводы одной строкой на клиента.
+-- Обновляется получателем outbox client-view после фиксации изменений; version — номер последнего события outbox,
+-- примененного к строке.
+
+CREATE TABLE client_view
+(
+    client_id           BIGINT PRIMARY KEY,
+    account_id          BIGINT         NOT NULL,
+    full_name           VARCHAR(255),
+    phone_number        VARCHAR(255),
+    email               VARCHAR(255),
+    birth_date          VARCHAR(255),
+    balance             NUMERIC(38, 2) NOT NULL,
+    -- Последние переводы счета в JSON, от новых к старым
+    recent_transactions TEXT           NOT NULL,
+    version             BIGINT         NOT NULL,
+    updated_at          TIMESTAMP(6)   NOT NULL
+);
+
+-- ClientViewService.refreshBalances: строки по счету
+CREATE INDEX ix_client_view_account_id ON client_view (account_id);
+
+-- Начисление процентов меняет баланс всех счетов и публикуется одним событием без агрегата
+ALTER TABLE outbox_event ALTER COLUMN aggregate_id DROP NOT NULL;
+
+-- Строки для существующих клиентов (последние 10 переводов, как banking.client-view.recent-transactions по умолчанию)
+INSERT INTO client_view (client_id, account_id, full_name, phone_number, email, birth_date, balance, recent_transactions,
+                         version, updated_at)
+SELECT c.id,
+       a.id,
+       c.full_name,
+       c.phone_number,
+       c.email,
+       c.birth_date,
+       a.balance,
+       COALESCE((SELECT json_agg(json_build_object('id', r.id, 'fromAccountId', r.from_account_id,
+                                                   'toAccountId', r.to_account_id, 'amount', r.amount,
+                                                   'timestamp', r.timestamp) ORDER BY r.timestamp DESC, r.id DESC)
+                 FROM ((SELECT t.id, t.from_account_id, t.to_account_id, t.amount, t.timestamp
+                        FROM transaction t
+                        WHERE t.from_account_id = a.id
+                        ORDER BY t.timestamp DESC, t.id DESC
+                        LIMIT 10)
+                       UNION ALL
+                       (SELECT t.id, t.from_account_id, t.to_account_id, t.amount, t.timestamp
+                        FROM transaction t
+                        WHERE t.to_account_id = a.id
+                        ORDER BY t.timestamp DESC, t.id DESC
+                        LIMIT 10)
+                       ORDER BY timestamp DESC, id DESC
+                       LIMIT 10) r)::TEXT, '[]'),
+       COALESCE((SELECT max(id) FROM outbox_event), 0),
+       now()
+FROM client c
+         JOIN bank_account a ON a.client_id = c.id;
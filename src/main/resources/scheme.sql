@@ -1 +1 @@
---  Создание таблиц делегируем Hibernate
\ No newline at end of file
+-- Схема базы данных управляется миграциями Flyway: src/main/resources/db/migration
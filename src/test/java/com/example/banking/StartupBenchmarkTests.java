@@ -0,0 +1,129 @@
+package com.example.banking;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Замер времени от запуска JVM до готовности приложения ({@code /actuator/health/readiness}).
+ * <p>
+ * Использует сборку профиля {@code aot} ({@code target/banking-service.jar} и {@code target/lib}) и встроенный PostgreSQL.
+ * Сначала пробным запуском до обновления контекста создается архив CDS {@code target/application.jsa}, затем
+ * сравниваются запуски без AOT, с AOT и с AOT и CDS. Запуск: {@code mvn verify -Paot}; количество запусков
+ * каждого варианта задается свойством {@code startup.runs} (по умолчанию 3). Отчет: {@code target/startup-report.txt}.
+ */
+@Tag("startup")
+class StartupBenchmarkTests {
+
+    private static final Path TARGET = Path.of("target");
+    private static final Path JAR = TARGET.resolve("banking-service.jar");
+    private static final Path ARCHIVE = TARGET.resolve("application.jsa");
+    private static final Duration READY_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    @Test
+    void timeToReady() throws Exception {
+        assumeTrue(Files.exists(JAR), "Run with -Paot to build " + JAR);
+        int runs = Integer.getInteger("startup.runs", 3);
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+            Files.deleteIfExists(ARCHIVE);
+            int trainingExit = launch(jdbcUrl, freePort(), "training",
+                    "-XX:ArchiveClassesAtExit=" + ARCHIVE.getFileName(), "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh")
+                    .waitFor();
+            assertThat(trainingExit).isZero();
+            assertThat(ARCHIVE).exists();
+
+            List<String> report = new ArrayList<>();
+            report.add(String.format("%-10s %10s %10s   (ms, %d runs)", "variant", "median", "min", runs));
+            report.add(measure(jdbcUrl, runs, "jit"));
+            report.add(measure(jdbcUrl, runs, "aot", "-Dspring.aot.enabled=true"));
+            report.add(measure(jdbcUrl, runs, "aot+cds", "-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + ARCHIVE.getFileName()));
+
+            report.forEach(System.out::println);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(TARGET.resolve("startup-report.txt")))) {
+                report.forEach(out::println);
+            }
+        }
+    }
+
+    private String measure(String jdbcUrl, int runs, String variant, String... jvmArgs) throws Exception {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            int port = freePort();
+            long start = System.nanoTime();
+            Process process = launch(jdbcUrl, port, variant + "-" + i, jvmArgs);
+            try {
+                awaitReady(process, port);
+                millis[i] = (System.nanoTime() - start) / 1_000_000;
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+        Arrays.sort(millis);
+        return String.format(Locale.ROOT, "%-10s %10d %10d", variant, millis[runs / 2], millis[0]);
+    }
+
+    private Process launch(String jdbcUrl, int port, String logName, String... jvmArgs) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(List.of(jvmArgs));
+        command.addAll(List.of("-jar", JAR.getFileName().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--banking.audit.directory=audit"));
+        Path log = TARGET.resolve("startup").resolve(logName + ".log");
+        Files.createDirectories(log.getParent());
+        return new ProcessBuilder(command)
+                .directory(TARGET.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private void awaitReady(Process process, int port) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + READY_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertThat(process.isAlive()).as("application process exited during startup").isTrue();
+            try {
+                if (httpClient.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Сервер еще не принимает соединения
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Application was not ready within " + READY_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.banking.audit;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.model.Client;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.JwtUserDetailsService;
+import com.example.banking.security.JwtTokenService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Сравнение задержки запроса перевода с включенным и выключенным журналом аудита.
+ * Запуск: {@code mvn test -Pbenchmark}.
+ */
+@SpringBootTest(properties = "banking.rate-limit.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Tag("benchmark")
+class AuditLatencyBenchmarkTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AuditLog auditLog;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Test
+    void transferLatencyWithAndWithoutAudit() throws Exception {
+        Client from = createClient(BigDecimal.valueOf(1_000_000));
+        Client to = createClient(BigDecimal.ONE);
+        Long fromAccountId = bankAccountRepository.findByClientId(from.getId()).orElseThrow().getId();
+        Long toAccountId = bankAccountRepository.findByClientId(to.getId()).orElseThrow().getId();
+        String token = jwtTokenService.generateToken(jwtUserDetailsService.loadUserByUsername(from.getUsername()));
+        String body = "{\"fromClientId\":" + fromAccountId + ",\"toClientId\":" + toAccountId + ",\"amount\":1}";
+
+        int iterations = 2_000;
+        try {
+            for (boolean enabled : new boolean[]{true, false, true, false}) {
+                auditLog.setEnabled(enabled);
+                long[] latencies = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    mockMvc.perform(post("/api/transactions")
+                                    .header("Authorization", "Bearer " + token)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body))
+                            .andExpect(status().isOk());
+                    latencies[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(latencies);
+                System.out.printf("audit %-3s: p50 %8.1f us, p99 %8.1f us%n", enabled ? "on" : "off",
+                        latencies[iterations / 2] / 1_000.0, latencies[iterations * 99 / 100] / 1_000.0);
+            }
+        } finally {
+            auditLog.setEnabled(true);
+        }
+    }
+
+    private Client createClient(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("user-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Test Client " + suffix);
+        clientService.createClient(clientDTO);
+        return clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+    }
+}
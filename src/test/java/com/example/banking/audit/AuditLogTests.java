@@ -0,0 +1,127 @@
+package com.example.banking.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка кольцевого буфера и файловой записи журнала аудита.
+ */
+class AuditLogTests {
+
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ringBufferDeliversEveryEventFromConcurrentProducers() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            });
+        }
+
+        Set<Integer> received = new HashSet<>();
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (received.size() < producers * perProducer && System.nanoTime() < deadline) {
+            buffer.drain(received::add, 256);
+        }
+        executor.shutdown();
+
+        assertThat(received).hasSize(producers * perProducer);
+    }
+
+    @Test
+    void fullRingBufferRejectsWithoutBlocking() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drain(drained::add, 10)).isEqualTo(4);
+        assertThat(drained).containsExactly(0, 1, 2, 3);
+        assertThat(buffer.offer(4)).isTrue();
+    }
+
+    @Test
+    void eventsAreWrittenAsJsonLines() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuditLog auditLog = new AuditLog(OBJECT_MAPPER, meterRegistry, true, directory, 64, 16, Duration.ofMillis(10));
+
+        auditLog.record(AuditEventType.LOGIN_SUCCESS, "alice", Map.of());
+        auditLog.record(AuditEventType.TRANSFER, "alice", Map.of("transactionId", 7, "amount", 40));
+        auditLog.setEnabled(false);
+        auditLog.record(AuditEventType.LOGIN_FAILURE, "bob", Map.of());
+        auditLog.close();
+
+        List<String> lines = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                assertThat(file.getFileName().toString()).matches("audit-\\d{4}-\\d{2}-\\d{2}\\.jsonl");
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        assertThat(lines).hasSize(2);
+        JsonNode transfer = OBJECT_MAPPER.readTree(lines.get(1));
+        assertThat(transfer.get("type").asText()).isEqualTo("TRANSFER");
+        assertThat(transfer.get("actor").asText()).isEqualTo("alice");
+        assertThat(transfer.get("attributes").get("transactionId").asInt()).isEqualTo(7);
+        assertThat(OBJECT_MAPPER.readTree(lines.get(0)).has("attributes")).isFalse();
+        assertThat(meterRegistry.get("banking.audit.events").tag("result", "written").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void writerStartsOnlyWhenAuditIsEnabled() throws Exception {
+        AuditLog auditLog = new AuditLog(OBJECT_MAPPER, new SimpleMeterRegistry(), false, directory, 64, 16, Duration.ofMillis(10));
+
+        auditLog.record(AuditEventType.LOGIN_SUCCESS, "alice", Map.of());
+        assertThat(auditLog.isWriterStarted()).isFalse();
+
+        auditLog.setEnabled(true);
+        auditLog.record(AuditEventType.LOGIN_SUCCESS, "bob", Map.of());
+        assertThat(auditLog.isWriterStarted()).isTrue();
+        auditLog.close();
+
+        List<String> lines = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                lines.addAll(Files.readAllLines(file));
+            }
+        }
+        assertThat(lines).singleElement().asString().contains("\"bob\"");
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.banking.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка маршрутизации read-only транзакций. Две in-memory базы H2 заменяют основную базу и реплику.
+ */
+class ReplicaRoutingDataSourceTests {
+
+    private DriverManagerDataSource primary;
+    private DriverManagerDataSource replica;
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5), "SELECT lag FROM node");
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(primary).execute("DROP TABLE node");
+        new JdbcTemplate(replica).execute("DROP TABLE node");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        assertThat(inTransaction(readOnly)).isEqualTo("replica");
+        assertThat(inTransaction(readWrite)).isEqualTo("primary");
+        assertThat(nodeName()).isEqualTo("primary");
+        assertThat(routingDataSource.getPoolStatistics()).containsEntry("replica-0.connections", 1L);
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        new JdbcTemplate(replica).update("UPDATE node SET lag = 30");
+        routingDataSource.checkReplicaLag();
+
+        assertThat(inTransaction(readOnly)).isEqualTo("primary");
+        assertThat(routingDataSource.getPoolStatistics())
+                .containsEntry("replica-0.healthy", 0L)
+                .containsEntry("primary.fallbacks", 1L);
+
+        new JdbcTemplate(replica).update("UPDATE node SET lag = 0");
+        routingDataSource.checkReplicaLag();
+
+        assertThat(inTransaction(readOnly)).isEqualTo("replica");
+    }
+
+    private String inTransaction(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> nodeName());
+    }
+
+    private String nodeName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DriverManagerDataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(32), lag DOUBLE PRECISION)");
+        jdbcTemplate.update("INSERT INTO node VALUES (?, 0)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.banking.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки с фиксированной интенсивностью поступления запросов (открытая модель).
+ * <p>
+ * Моменты отправки запросов заранее расписаны с шагом {@code 1 / rate}. Задержка отсчитывается от запланированного
+ * момента, а не от фактической отправки: если сервис или пул потоков генератора не успевают, время ожидания
+ * в очереди попадает в гистограмму (поправка на coordinated omission). Дополнительно хранится гистограмма
+ * времени обслуживания без поправки.
+ *
+ * @author nimatullah
+ */
+class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    /**
+     * Операция нагрузочного теста.
+     */
+    interface Operation {
+        /**
+         * @return true, если ответ успешный.
+         */
+        boolean execute() throws Exception;
+    }
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private int totalWeight;
+
+    /**
+     * Добавляет операцию с весом в смеси запросов.
+     */
+    LoadGenerator add(String name, int weight, Operation operation) {
+        if (weight > 0) {
+            endpoints.put(name, new Endpoint(name, weight, operation));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    /**
+     * Подает нагрузку с интенсивностью {@code ratePerSecond} в течение {@code duration}.
+     *
+     * @param threads количество потоков, выполняющих запросы.
+     * @return отчет по каждой операции.
+     */
+    Report run(double ratePerSecond, Duration duration, int threads) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long total = (long) (ratePerSecond * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long startNanos = System.nanoTime();
+        try {
+            for (long i = 0; i < total; i++) {
+                long intendedStart = startNanos + i * intervalNanos;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Endpoint endpoint = pick();
+                executor.execute(() -> endpoint.call(intendedStart));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return new Report(Duration.ofNanos(System.nanoTime() - startNanos), new ArrayList<>(endpoints.values()));
+    }
+
+    private Endpoint pick() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints.values()) {
+            value -= endpoint.weight;
+            if (value < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Empty request mix");
+    }
+
+    /**
+     * Статистика одной операции.
+     */
+    static final class Endpoint {
+        final String name;
+        final int weight;
+        final Operation operation;
+        final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final AtomicLong errors = new AtomicLong();
+
+        private Endpoint(String name, int weight, Operation operation) {
+            this.name = name;
+            this.weight = weight;
+            this.operation = operation;
+        }
+
+        private void call(long intendedStartNanos) {
+            long actualStart = System.nanoTime();
+            boolean success;
+            try {
+                success = operation.execute();
+            } catch (Exception e) {
+                success = false;
+            }
+            long end = System.nanoTime();
+            if (!success) {
+                errors.incrementAndGet();
+            }
+            responseTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (end - intendedStartNanos) / 1_000));
+            serviceTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (end - actualStart) / 1_000));
+        }
+    }
+
+    /**
+     * Итоги прогона: пропускная способность и перцентили задержки по операциям.
+     */
+    record Report(Duration elapsed, List<Endpoint> endpoints) {
+
+        void print(PrintStream out) {
+            out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s %9s %11s%n",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+            double seconds = elapsed.toNanos() / 1e9;
+            for (Endpoint endpoint : endpoints) {
+                Histogram histogram = endpoint.responseTime;
+                out.printf(Locale.ROOT, "%-14s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f%n",
+                        endpoint.name, histogram.getTotalCount(), endpoint.errors.get(), histogram.getTotalCount() / seconds,
+                        millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                        histogram.getMaxValue() / 1_000.0, millis(endpoint.serviceTime, 99));
+            }
+        }
+
+        /**
+         * Сохраняет распределения задержек в формате HdrHistogram ({@code .hgrm}) для построения графиков.
+         */
+        void writeHistograms(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (Endpoint endpoint : endpoints) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(endpoint.name + ".hgrm")))) {
+                    endpoint.responseTime.outputPercentileDistribution(out, 1_000.0);
+                }
+            }
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1_000.0;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.banking.load;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.security.JwtTokenService;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.JwtUserDetailsService;
+import com.example.banking.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сквозной нагрузочный тест: приложение на встроенном PostgreSQL, заранее созданные клиенты и смесь запросов
+ * регистрации, аутентификации, поиска и переводов с фиксированной интенсивностью.
+ * <p>
+ * Запуск: {@code mvn test -Pload-test}. Параметры (системные свойства):
+ * {@code load.clients} (200), {@code load.rate} в запросах в секунду (100), {@code load.duration} (30s),
+ * {@code load.warmup} (10s, результаты прогрева отбрасываются), {@code load.threads} (64), {@code load.mix} ({@code register=5,authenticate=10,search=35,transfer=50}).
+ * Отчет печатается в консоль, распределения задержек сохраняются в {@code target/load-test/*.hgrm}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Tag("load")
+class LoadTest extends PostgresIntegrationTest {
+
+    private static final String PASSWORD = "password";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<SeededClient> clients = new ArrayList<>();
+
+    private record SeededClient(String username, String token, Long accountId) {
+    }
+
+    @Test
+    void fixedRateMixedLoad() throws Exception {
+        int clientCount = Integer.getInteger("load.clients", 200);
+        double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+        Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+        Duration warmup = Duration.parse("PT" + System.getProperty("load.warmup", "10s"));
+        int threads = Integer.getInteger("load.threads", 64);
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", "register=5,authenticate=10,search=35,transfer=50"));
+
+        seed(clientCount);
+
+        System.out.printf("Load test: %d clients, %.0f req/s for %s after %s warm-up, %d threads, mix %s%n",
+                clientCount, rate, duration, warmup, threads, mix);
+        if (!warmup.isZero()) {
+            generator(mix).run(rate, warmup, threads);
+        }
+        LoadGenerator.Report report = generator(mix).run(rate, duration, threads);
+        report.print(System.out);
+        report.writeHistograms(Path.of("target", "load-test"));
+
+        assertThat(report.endpoints()).allSatisfy(endpoint -> assertThat(endpoint.responseTime.getTotalCount()).isPositive());
+    }
+
+    private LoadGenerator generator(Map<String, Integer> mix) {
+        return new LoadGenerator()
+                .add("register", mix.getOrDefault("register", 0), this::register)
+                .add("authenticate", mix.getOrDefault("authenticate", 0), this::authenticate)
+                .add("search", mix.getOrDefault("search", 0), this::search)
+                .add("transfer", mix.getOrDefault("transfer", 0), this::transfer);
+    }
+
+    private void seed(int count) {
+        IntStream.range(0, count).parallel().forEach(i -> {
+            ClientDTO clientDTO = newClient("load-" + i + "-" + UUID.randomUUID().toString().substring(0, 8));
+            clientDTO.setInitialBalance(new BigDecimal("1000000"));
+            clientService.createClient(clientDTO);
+        });
+        clientRepository.findAll().forEach(client -> clients.add(new SeededClient(
+                client.getUsername(),
+                jwtTokenService.generateToken(jwtUserDetailsService.loadUserByUsername(client.getUsername())),
+                bankAccountRepository.findByClientId(client.getId()).orElseThrow().getId())));
+    }
+
+    private boolean register() throws Exception {
+        ClientDTO clientDTO = newClient("reg-" + UUID.randomUUID().toString().substring(0, 12));
+        String body = "{\"username\":\"" + clientDTO.getUsername() + "\",\"password\":\"" + PASSWORD + "\","
+                + "\"initialBalance\":100,\"phoneNumber\":\"" + clientDTO.getPhoneNumber() + "\","
+                + "\"email\":\"" + clientDTO.getEmail() + "\",\"birthDate\":\"1990-01-01\",\"fullName\":\"" + clientDTO.getFullName() + "\"}";
+        return send(post("/api/clients/register", null, body));
+    }
+
+    private boolean authenticate() throws Exception {
+        SeededClient client = randomClient();
+        return send(post("/api/clients/authenticate", null,
+                "{\"username\":\"" + client.username() + "\",\"password\":\"" + PASSWORD + "\"}"));
+    }
+
+    private boolean search() throws Exception {
+        SeededClient client = randomClient();
+        return send(request("/api/clients?fullName=Load&page=0&size=10", client.token()).GET().build());
+    }
+
+    private boolean transfer() throws Exception {
+        SeededClient from = randomClient();
+        SeededClient to = randomClient();
+        if (from == to) {
+            to = clients.get((clients.indexOf(from) + 1) % clients.size());
+        }
+        return send(post("/api/transactions", from.token(),
+                "{\"fromClientId\":" + from.accountId() + ",\"toClientId\":" + to.accountId() + ",\"amount\":1}"));
+    }
+
+    private boolean send(HttpRequest request) throws Exception {
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        return status >= 200 && status < 300;
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private SeededClient randomClient() {
+        return clients.get(ThreadLocalRandom.current().nextInt(clients.size()));
+    }
+
+    private static ClientDTO newClient(String username) {
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername(username);
+        clientDTO.setPassword(PASSWORD);
+        clientDTO.setPhoneNumber("+7" + username);
+        clientDTO.setEmail(username + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Load Client " + username);
+        return clientDTO;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
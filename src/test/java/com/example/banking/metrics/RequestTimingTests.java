@@ -0,0 +1,147 @@
+package com.example.banking.metrics;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.model.Client;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.security.JwtTokenService;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.JwtUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверка заголовка {@code Server-Timing}, сохранения медленных запросов и доступа к ним только администраторов.
+ */
+@SpringBootTest(properties = {
+        "banking.request-timing.server-timing-header=true",
+        "banking.request-timing.slow-threshold=0ms",
+        "banking.security.admin-usernames=timing-admin"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class RequestTimingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+    @Autowired
+    private JwtTokenService jwtTokenService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void transferResponseCarriesPhaseBreakdown() throws Exception {
+        Client from = createClient(BigDecimal.valueOf(100));
+        Client to = createClient(BigDecimal.ONE);
+        Long fromAccountId = bankAccountRepository.findByClientId(from.getId()).orElseThrow().getId();
+        Long toAccountId = bankAccountRepository.findByClientId(to.getId()).orElseThrow().getId();
+        String token = jwtTokenService.generateToken(jwtUserDetailsService.loadUserByUsername(from.getUsername()));
+        slowRequestLog.clear();
+
+        String serverTiming = mockMvc.perform(post("/api/transactions")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromClientId\":" + fromAccountId + ",\"toClientId\":" + toAccountId + ",\"amount\":10}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Server-Timing");
+
+        assertThat(serverTiming)
+                .contains("filter;dur=", "auth;dur=", "service;dur=", "commit;dur=", "serialization;dur=", "total;dur=")
+                .contains("repo;dur=", "desc=\"BankAccountRepository.findByIdForUpdate\"");
+
+        SlowRequestLog.SlowRequest captured = slowRequestLog.snapshot().get(0);
+        assertThat(captured.uri()).isEqualTo("/api/transactions");
+        assertThat(captured.phases()).extracting(RequestTiming.Phase::name)
+                .contains(RequestTiming.FILTER, RequestTiming.AUTH, RequestTiming.REPOSITORY, RequestTiming.COMMIT);
+
+        mockMvc.perform(get("/actuator/slowrequests").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/actuator/slowrequests").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        assertThat(slowRequestLog.snapshot()).extracting(SlowRequestLog.SlowRequest::uri).contains("/api/transactions");
+    }
+
+    @Test
+    void slowRequestsAreAvailableToAdministrators() throws Exception {
+        createClient("timing-admin", BigDecimal.ONE);
+        String token = jwtTokenService.generateToken(jwtUserDetailsService.loadUserByUsername("timing-admin"));
+        slowRequestLog.capture(new SlowRequestLog.SlowRequest(Instant.now(), "GET", "/api/clients", 200, 1, List.of(), 0));
+
+        mockMvc.perform(get("/actuator/slowrequests").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").exists());
+        mockMvc.perform(delete("/actuator/slowrequests").header("Authorization", "Bearer " + token))
+                .andExpect(status().isNoContent());
+        // Сам запрос очистки попадает в буфер после ответа
+        assertThat(slowRequestLog.snapshot()).extracting(SlowRequestLog.SlowRequest::uri).doesNotContain("/api/clients");
+    }
+
+    @Test
+    void metricsRequireAuthenticationAndRejectedTokensAreTimed() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+
+        Timer jwtFilter = meterRegistry.get("banking.jwt.filter").timer();
+        long verifications = jwtFilter.count();
+        mockMvc.perform(get("/api/clients").header("Authorization", "Bearer not-a-token"));
+
+        assertThat(jwtFilter.count()).isEqualTo(verifications + 1);
+    }
+
+    @Test
+    void slowRequestLogKeepsNewestEntries() {
+        SlowRequestLog log = new SlowRequestLog(3);
+        for (int i = 0; i < 5; i++) {
+            log.capture(new SlowRequestLog.SlowRequest(Instant.now(), "GET", "/" + i, 200, i, List.of(), 0));
+        }
+
+        assertThat(log.snapshot()).extracting(SlowRequestLog.SlowRequest::uri).containsExactly("/4", "/3", "/2");
+    }
+
+    private Client createClient(BigDecimal initialBalance) {
+        return createClient("user-" + UUID.randomUUID().toString().substring(0, 8), initialBalance);
+    }
+
+    private Client createClient(String username, BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername(username);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Test Client " + suffix);
+        clientService.createClient(clientDTO);
+        return clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.banking.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка обнаружения закрепления виртуального потока при блокировке внутри synchronized.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadPinningMonitorTests {
+
+    private final Object lock = new Object();
+
+    @Test
+    void blockingInsideSynchronizedIsReported() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(5));
+        monitor.start();
+        try {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+            executor.setVirtualThreads(true);
+            CompletableFuture.runAsync(this::sleepWhileHoldingMonitor, executor).get(5, TimeUnit.SECONDS);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Timer pinned = null;
+            while (pinned == null && System.nanoTime() < deadline) {
+                pinned = meterRegistry.find("banking.virtualthreads.pinned").tag("source", "application").timer();
+                Thread.sleep(100);
+            }
+            assertThat(pinned).isNotNull();
+            assertThat(pinned.count()).isPositive();
+        } finally {
+            monitor.close();
+        }
+    }
+
+    private void sleepWhileHoldingMonitor() {
+        synchronized (lock) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.banking.outbox;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.BalanceException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.model.OutboxEventType;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.TransactionService;
+import com.example.banking.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Outbox: события пишутся в транзакции изменения, доставляются получателям по порядку один раз, ошибка одного
+ * получателя не задерживает остальных, пропуск в номерах ждет завершения транзакций, которые могли его выделить.
+ */
+class OutboxRelayTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+    @Autowired
+    private RecordingListener recordingListener;
+    @Autowired
+    private RecordingListener flakyListener;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void drain() {
+        flakyListener.failing = false;
+        // События других тестов в общей базе доставляются заранее: первая пересылка обнаруживает пропуски в их номерах,
+        // вторая пропускает их, так как открытых транзакций нет
+        outboxRelay.relay(LocalDateTime.now());
+        outboxRelay.relay(LocalDateTime.now());
+        recordingListener.received.clear();
+        flakyListener.received.clear();
+    }
+
+    @Test
+    @WithMockUser
+    void transferAndRegistrationAreDeliveredInOrderOnce() {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        transfer(from, to, "25");
+
+        assertThat(outboxRelay.relay(LocalDateTime.now())).isPositive();
+
+        List<OutboxMessage> received = List.copyOf(recordingListener.received);
+        assertThat(received).extracting(OutboxMessage::type).containsExactly(
+                OutboxEventType.CLIENT_REGISTERED, OutboxEventType.CLIENT_REGISTERED, OutboxEventType.TRANSFER_COMPLETED);
+        assertThat(received).extracting(OutboxMessage::id).isSorted().doesNotHaveDuplicates();
+        assertThat(received.get(0).aggregateId()).isEqualTo(from.getClient().getId());
+        assertThat(received.get(2).payload()).contains("\"fromAccountId\":" + from.getId(), "\"amount\":25");
+        assertThat(flakyListener.received).isEqualTo(received);
+
+        assertThat(outboxRelay.relay(LocalDateTime.now())).isZero();
+        assertThat(recordingListener.received).hasSize(3);
+    }
+
+    @Test
+    @WithMockUser
+    void rolledBackTransferWritesNoEvent() {
+        BankAccount from = createAccount(BigDecimal.ONE);
+        BankAccount to = createAccount(BigDecimal.ONE);
+
+        assertThatThrownBy(() -> transfer(from, to, "10")).isInstanceOf(BalanceException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_event WHERE type = 'TRANSFER_COMPLETED' "
+                + "AND (payload::jsonb ->> 'fromAccountId')::BIGINT = ?", Long.class, from.getId())).isZero();
+    }
+
+    @Test
+    void failingConsumerIsRetriedWithoutHoldingBackOthers() {
+        flakyListener.failing = true;
+        publish(42L);
+
+        outboxRelay.relay(LocalDateTime.now());
+
+        assertThat(recordingListener.received).extracting(OutboxMessage::aggregateId).containsExactly(42L);
+        assertThat(flakyListener.received).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM outbox_consumer WHERE name = 'test-flaky'", String.class))
+                .isEqualTo("consumer unavailable");
+        assertThat(meterRegistry.get("banking.outbox.failures").tag("consumer", "test-flaky").counter().count()).isPositive();
+        assertThat(meterRegistry.get("banking.outbox.lag.events").tag("consumer", "test-flaky").gauge().value()).isPositive();
+
+        flakyListener.failing = false;
+        outboxRelay.relay(LocalDateTime.now());
+
+        assertThat(flakyListener.received).extracting(OutboxMessage::aggregateId).containsExactly(42L);
+        assertThat(recordingListener.received).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM outbox_consumer WHERE name = 'test-flaky'", String.class)).isNull();
+    }
+
+    @Test
+    void gapOfRolledBackTransactionIsSkippedOnceNoOlderTransactionIsOpen() {
+        // Номер события откатившейся транзакции остается пропуском
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxPublisher.publish(OutboxEventType.CLIENT_REGISTERED, 1L, Map.of());
+            status.setRollbackOnly();
+        });
+        publish(2L);
+
+        assertThat(outboxRelay.relay(LocalDateTime.now())).isZero();
+        assertThat(meterRegistry.get("banking.outbox.lag.events").tag("consumer", "test-recording").gauge().value()).isPositive();
+
+        assertThat(outboxRelay.relay(LocalDateTime.now())).isPositive();
+        assertThat(recordingListener.received).extracting(OutboxMessage::aggregateId).containsExactly(2L);
+        assertThat(meterRegistry.get("banking.outbox.lag").tag("consumer", "test-recording").gauge().value()).isZero();
+    }
+
+    @Test
+    void gapOfOpenTransactionHoldsDeliveryUntilItCommits() throws Exception {
+        CountDownLatch published = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> longTransaction = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    outboxPublisher.publish(OutboxEventType.CLIENT_REGISTERED, 1L, Map.of());
+                    published.countDown();
+                    await(commit);
+                }));
+        try {
+            assertThat(published.await(10, TimeUnit.SECONDS)).isTrue();
+            publish(2L);
+
+            for (int i = 0; i < 3; i++) {
+                assertThat(outboxRelay.relay(LocalDateTime.now().plusHours(1))).as("event of the open transaction is awaited").isZero();
+            }
+        } finally {
+            commit.countDown();
+        }
+        longTransaction.get(10, TimeUnit.SECONDS);
+
+        assertThat(outboxRelay.relay(LocalDateTime.now())).isPositive();
+        assertThat(recordingListener.received).extracting(OutboxMessage::aggregateId).containsExactly(1L, 2L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(Long aggregateId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                outboxPublisher.publish(OutboxEventType.CLIENT_REGISTERED, aggregateId, Map.of("username", "outbox")));
+    }
+
+    private void transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        transactionService.transfer(transactionDTO);
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("outbox-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Outbox Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+
+    static class RecordingListener implements OutboxListener {
+        private final String consumer;
+        final List<OutboxMessage> received = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        RecordingListener(String consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public String consumer() {
+            return consumer;
+        }
+
+        @Override
+        public void onEvents(List<OutboxMessage> events) {
+            if (failing) {
+                throw new IllegalStateException("consumer unavailable");
+            }
+            received.addAll(events);
+        }
+    }
+
+    @TestConfiguration
+    static class Listeners {
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener("test-recording");
+        }
+
+        @Bean
+        RecordingListener flakyListener() {
+            return new RecordingListener("test-flaky");
+        }
+    }
+}
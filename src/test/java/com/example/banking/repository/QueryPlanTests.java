@@ -0,0 +1,228 @@
+package com.example.banking.repository;
+
+import com.example.banking.service.BankAccountService;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.LedgerReconciliationService;
+import com.example.banking.service.TransactionService;
+import com.example.banking.support.PostgresIntegrationTest;
+import com.example.banking.support.StatementRecorder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессионные тесты планов запросов: на заполненной базе каждый запрос репозиториев должен использовать свой индекс.
+ * Тест вызывает сервис или репозиторий, записывает SQL и параметры, которые они действительно выполнили
+ * ({@link StatementRecorder}), и проверяет EXPLAIN этих запросов. Кэш поиска клиентов отключен.
+ */
+@SpringBootTest(properties = "banking.search-cache.ttl=0")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTests extends PostgresIntegrationTest {
+
+    private static final int CLIENTS = 50_000;
+    private static final int TRANSACTIONS = 200_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private StatementRecorder statementRecorder;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientViewRepository clientViewRepository;
+    @Autowired
+    private LedgerPostingRepository ledgerPostingRepository;
+    @Autowired
+    private LedgerReconciliationService ledgerReconciliationService;
+    @Autowired
+    private TransferSagaRepository transferSagaRepository;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE transaction, transaction_archive, bank_account, client RESTART IDENTITY CASCADE");
+        jdbcTemplate.update("INSERT INTO client (username, password, phone_number, email, birth_date, full_name) "
+                + "SELECT 'user' || g, 'secret', '+7' || lpad(g::text, 10, '0'), 'user' || g || '@example.com', "
+                + "to_char(DATE '1950-01-01' + (g % 20000), 'YYYY-MM-DD'), 'Client ' || md5(g::text) "
+                + "FROM generate_series(1, ?) g", CLIENTS);
+        jdbcTemplate.update("INSERT INTO bank_account (initial_balance, balance, client_id) SELECT 100, 100, id FROM client");
+
+        LocalDate monthStart = YearMonth.now().atDay(1);
+        jdbcTemplate.queryForObject("SELECT create_transaction_partition(?)", String.class, monthStart);
+        jdbcTemplate.update("INSERT INTO transaction (from_account_id, to_account_id, amount, timestamp) "
+                + "SELECT 1 + g % ?, 1 + (g * 7) % ?, 1.00, ?::timestamp + (g % 86400) * INTERVAL '1 second' "
+                + "FROM generate_series(1, ?) g", CLIENTS, CLIENTS, monthStart.atStartOfDay(), TRANSACTIONS);
+        jdbcTemplate.update("INSERT INTO ledger_posting (account_id, type, amount, transaction_id, timestamp) "
+                + "SELECT 1 + g % ?, CASE WHEN g % 2 = 0 THEN 'DEBIT' ELSE 'CREDIT' END, CASE WHEN g % 2 = 0 THEN -1.00 ELSE 1.00 END, g / 2, now() "
+                + "FROM generate_series(1, ?) g", CLIENTS, TRANSACTIONS * 2);
+        // VACUUM переносит записи из pending list GIN-индекса в основную структуру, как это со временем делает autovacuum
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    @Test
+    void findByUsername() {
+        assertThat(plans("client", () -> clientRepository.findByUsername("user4242")))
+                .singleElement().asString().contains("ux_client_username");
+    }
+
+    @Test
+    void findByPhoneNumber() {
+        assertThat(plans("client", () -> clientService.searchClients(null, "+70000004242", null, null, 0, 10, "id")))
+                .isNotEmpty().allSatisfy(plan -> assertThat(plan).contains("ix_client_phone_number"));
+    }
+
+    @Test
+    void findByEmail() {
+        assertThat(plans("client", () -> clientService.searchClients(null, null, "user4242@example.com", null, 0, 10, "id")))
+                .isNotEmpty().allSatisfy(plan -> assertThat(plan).contains("ix_client_email"));
+    }
+
+    @Test
+    void findByFullNameLike() {
+        String fullName = jdbcTemplate.queryForObject("SELECT full_name FROM client WHERE id = 4242", String.class);
+        assertThat(plans("client", () -> clientService.searchClients(fullName.substring(10, 22), null, null, null, 0, 10, "id")))
+                .isNotEmpty().allSatisfy(plan -> assertThat(plan).contains("ix_client_full_name_trgm"));
+    }
+
+    @Test
+    void findByBirthDateAfter() {
+        // Страница отсортирована по id, как в поиске по умолчанию. Если условию отвечает много клиентов, страницу дешевле
+        // набрать обходом первичного ключа с фильтром, поэтому индекс проверяется на выборочной дате (несколько клиентов)
+        assertThat(plans("client", () -> clientService.searchClients(null, null, null, LocalDate.of(2004, 10, 2), 0, 10, "id")))
+                .singleElement().asString().contains("ix_client_birth_date");
+        // Подсчет выполняется, только если страница заполнена, и читает индекс при любой дате
+        assertThat(plans("client", () -> clientService.searchClients(null, null, null, LocalDate.of(2004, 9, 1), 0, 2, "id")))
+                .hasSize(2).last().asString().contains("ix_client_birth_date");
+    }
+
+    @Test
+    void findByClientId() {
+        assertThat(plans("bank_account", () -> bankAccountRepository.findByClientId(4242L)))
+                .singleElement().asString().contains("bank_account_client_id_key");
+    }
+
+    @Test
+    void findBalances() {
+        assertThat(plans("bank_account", () -> bankAccountService.getBalances(List.of(4242L, 4243L, 4244L, 4244L), List.of())))
+                .singleElement().asString().contains("bank_account_pkey");
+        assertThat(plans("bank_account", () -> bankAccountService.getBalances(List.of(), List.of(4242L, 4243L, 4244L))))
+                .singleElement().asString().contains("bank_account_client_id_key");
+    }
+
+    @Test
+    @WithMockUser
+    void findHistory() {
+        LocalDate monthStart = YearMonth.now().atDay(1);
+        assertThat(plans("transaction", () -> transactionService.getHistory(4242L, monthStart, monthStart.plusMonths(1).minusDays(1), 0, 20)))
+                .isNotEmpty()
+                .allSatisfy(plan -> assertThat(plan).contains("from_account_id_timestamp_idx").contains("to_account_id_timestamp_idx"));
+    }
+
+    @Test
+    void clientViewRecentTransactions() {
+        // Ветви подзапроса последних переводов в ClientViewRepository.LIVE_VIEW
+        assertThat(plans("client", () -> clientViewRepository.findLive(4242L, 10, 0, LocalDateTime.now())))
+                .singleElement().asString().contains("from_account_id_timestamp_idx").contains("to_account_id_timestamp_idx");
+    }
+
+    @Test
+    void findDelta() {
+        assertThat(plans("ledger_posting", () -> ledgerPostingRepository.findDelta(4242L, 150_000L)))
+                .singleElement().asString().contains("ix_ledger_posting_account_id");
+    }
+
+    @Test
+    void reconcilePartition() {
+        // Суммы проводок диапазона счетов в LedgerReconciliationService читаются только из индекса
+        assertThat(plans("ledger_posting", ledgerReconciliationService::reconcile))
+                .isNotEmpty().allSatisfy(plan -> assertThat(plan).contains("Index Only Scan using ix_ledger_posting_account_id"));
+    }
+
+    @Test
+    void findPendingTransfers() {
+        // Незавершенные межшардовые переводы — малая доля таблицы, их читает частичный индекс
+        jdbcTemplate.update("INSERT INTO transfer_saga (id, from_account_id, to_account_id, amount, status, created_at, updated_at) "
+                + "SELECT g, 1 + g % ?, 1 + (g * 7) % ?, 1.00, CASE WHEN g % 1000 = 0 THEN 'DEBITED' ELSE 'COMPLETED' END, now(), now() "
+                + "FROM generate_series(1, ?) g ON CONFLICT DO NOTHING", CLIENTS, CLIENTS, 100_000);
+        jdbcTemplate.execute("ANALYZE transfer_saga");
+        try {
+            assertThat(plans("transfer_saga", () -> transferSagaRepository.findPending(LocalDateTime.now(), PageRequest.of(0, 100))))
+                    .singleElement().asString().contains("ix_transfer_saga_debited");
+            // Межшардовые переводы в истории счета читаются по (from_account_id, created_at)
+            assertThat(plans("transfer_saga", () -> transferSagaRepository.findHistory(4242L, LocalDateTime.now().minusDays(1),
+                    LocalDateTime.now(), PageRequest.of(0, 20))))
+                    .isNotEmpty().allSatisfy(plan -> assertThat(plan).contains("ix_transfer_saga_from_account_id_created_at"));
+        } finally {
+            // Переводы с текущим временем иначе попали бы в счетчики скорости контекстов, созданных позже
+            jdbcTemplate.update("DELETE FROM transfer_saga");
+        }
+    }
+
+    @Test
+    void streamForPeriod() {
+        // Проводки заполнены текущим месяцем; выписка за прошлый месяц не должна читать их по (account_id, id)
+        LocalDateTime monthStart = YearMonth.now().minusMonths(1).atDay(1).atStartOfDay();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        assertThat(plans("ledger_posting", () -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<LedgerPostingRepository.StatementLine> lines =
+                         ledgerPostingRepository.streamForPeriod(4242L, monthStart, monthStart.plusMonths(1))) {
+                lines.forEach(line -> {
+                });
+            }
+        }))).singleElement().asString().contains("ix_ledger_posting_account_timestamp");
+    }
+
+    /**
+     * Планы запросов, которые выполнило действие и которые читают из таблицы {@code table}. Кэши Hibernate
+     * очищаются заранее, чтобы запросы дошли до базы.
+     */
+    private List<String> plans(String table, Runnable action) {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        Pattern from = Pattern.compile("\\bfrom\\s+" + table + "\\b", Pattern.CASE_INSENSITIVE);
+        return statementRecorder.record(action).stream()
+                .filter(statement -> from.matcher(statement.sql()).find())
+                .map(statement -> String.join("\n",
+                        jdbcTemplate.queryForList("EXPLAIN " + statement.sql(), String.class, statement.parameters().toArray())))
+                .toList();
+    }
+
+    @TestConfiguration
+    static class Recording {
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.banking.repository;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.JwtUserDetailsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение задержки аутентификации и поиска клиентов в приложении с кэшем второго уровня и в отдельном контексте,
+ * где кэш второго уровня и кэш запросов выключены свойствами Hibernate. Результаты пишутся в лог после обоих замеров.
+ * Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class SecondLevelCacheBenchmarkTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheBenchmarkTests.class);
+    private static final int ITERATIONS = 2_000;
+    private static final Map<String, Double> microsPerCall = new ConcurrentHashMap<>();
+
+    @AfterAll
+    static void report() {
+        new TreeMap<>(microsPerCall).forEach((name, micros) -> logger.info("{}: {} us/op", name, String.format("%.1f", micros)));
+    }
+
+    @Nested
+    @SpringBootTest(properties = "banking.search-cache.ttl=0")
+    @ActiveProfiles("h2")
+    class CacheEnabled extends Measurement {
+
+        CacheEnabled() {
+            super("cache on");
+        }
+
+        @Override
+        void verify(Statistics statistics) {
+            assertThat(statistics.getSecondLevelCacheHitCount() + statistics.getQueryCacheHitCount()).isPositive();
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {
+            "banking.search-cache.ttl=0",
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+            "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+    @ActiveProfiles("h2")
+    class CacheDisabled extends Measurement {
+
+        CacheDisabled() {
+            super("cache off");
+        }
+
+        @Override
+        void verify(Statistics statistics) {
+            assertThat(statistics.getSecondLevelCacheHitCount() + statistics.getQueryCacheHitCount()).isZero();
+        }
+    }
+
+    abstract static class Measurement {
+
+        private final String mode;
+
+        @Autowired
+        private ClientService clientService;
+        @Autowired
+        private ClientRepository clientRepository;
+        @Autowired
+        private JwtUserDetailsService jwtUserDetailsService;
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        Measurement(String mode) {
+            this.mode = mode;
+        }
+
+        abstract void verify(Statistics statistics);
+
+        @Test
+        void authenticationAndSearchLatency() {
+            String username = createClient();
+            for (int i = 0; i < 50; i++) {
+                createClient();
+            }
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+
+            measure("auth", () -> jwtUserDetailsService.loadUserByUsername(username));
+            measure("search", () -> clientService.searchClients(null, null, null, null, 0, 10, "id"));
+
+            verify(statistics);
+        }
+
+        private void measure(String name, Runnable call) {
+            for (int i = 0; i < ITERATIONS; i++) { // прогрев
+                call.run();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                call.run();
+            }
+            microsPerCall.put(name + ", " + mode, (System.nanoTime() - start) / 1_000.0 / ITERATIONS);
+        }
+
+        private String createClient() {
+            String suffix = UUID.randomUUID().toString().substring(0, 8);
+            ClientDTO clientDTO = new ClientDTO();
+            clientDTO.setUsername("user-" + suffix);
+            clientDTO.setPassword("password");
+            clientDTO.setInitialBalance(BigDecimal.TEN);
+            clientDTO.setPhoneNumber("+7" + suffix);
+            clientDTO.setEmail(suffix + "@example.com");
+            clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+            clientDTO.setFullName("Test Client " + suffix);
+            clientService.createClient(clientDTO);
+            return clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow().getUsername();
+        }
+    }
+}
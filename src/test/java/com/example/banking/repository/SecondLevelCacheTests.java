@@ -0,0 +1,99 @@
+package com.example.banking.repository;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.JwtUserDetailsService;
+import com.example.banking.service.TransactionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка кэша второго уровня для {@link Client} и {@link BankAccount}.
+ */
+@SpringBootTest(properties = "banking.search-cache.ttl=0")
+@ActiveProfiles("h2")
+class SecondLevelCacheTests {
+
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void repeatedUsernameLookupIsServedFromCache() {
+        String username = createClient(BigDecimal.TEN).getUsername();
+
+        jwtUserDetailsService.loadUserByUsername(username);
+        long statements = statistics.getPrepareStatementCount();
+        jwtUserDetailsService.loadUserByUsername(username);
+
+        assertThat(statistics.getQueryCacheHitCount()).isPositive();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements);
+    }
+
+    @Test
+    @WithMockUser
+    void transferInvalidatesCachedBalances() {
+        Client from = createClient(BigDecimal.valueOf(100));
+        Client to = createClient(BigDecimal.valueOf(100));
+        BankAccount fromAccount = bankAccountRepository.findByClientId(from.getId()).orElseThrow();
+        BankAccount toAccount = bankAccountRepository.findByClientId(to.getId()).orElseThrow();
+
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(fromAccount.getId());
+        transactionDTO.setToClientId(toAccount.getId());
+        transactionDTO.setAmount(BigDecimal.valueOf(40));
+        transactionService.transfer(transactionDTO);
+
+        assertThat(bankAccountRepository.findById(fromAccount.getId()).orElseThrow().getBalance()).isEqualByComparingTo("60");
+        assertThat(bankAccountRepository.findByClientId(to.getId()).orElseThrow().getBalance()).isEqualByComparingTo("140");
+    }
+
+    private Client createClient(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("user-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Test Client " + suffix);
+        clientService.createClient(clientDTO);
+        return clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+    }
+}
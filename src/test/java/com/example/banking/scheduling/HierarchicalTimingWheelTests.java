@@ -0,0 +1,71 @@
+package com.example.banking.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Колесо таймеров возвращает элементы не раньше срока и не позже чем через такт, в том числе после перекладывания
+ * с верхних уровней.
+ */
+class HierarchicalTimingWheelTests {
+
+    private static final long TICK = 100;
+
+    @Test
+    void itemsFireWithinOneTickAfterDueAcrossLevels() {
+        long start = 1_000_050;
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(TICK, 8, 3, start);
+        Random random = new Random(42);
+        Map<Long, Long> dueById = new HashMap<>();
+        for (long id = 0; id < 2_000; id++) {
+            long due = start + random.nextLong(wheel.horizonMillis());
+            dueById.put(id, due);
+            assertThat(wheel.add(due, id)).isTrue();
+        }
+        assertThat(wheel.size()).isEqualTo(2_000);
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = start; fired.size() < dueById.size() && now < start + 2 * wheel.horizonMillis(); now += 37) {
+            for (Long id : wheel.advance(now)) {
+                long due = dueById.get(id);
+                assertThat(now).as("item %d fired early", id).isGreaterThanOrEqualTo(due);
+                assertThat(now - due).as("item %d fired late", id).isLessThan(TICK + 37);
+                fired.add(id);
+            }
+        }
+
+        assertThat(fired).containsExactlyInAnyOrderElementsOf(dueById.keySet());
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void itemsAddedWhileRunningAreScheduledRelativeToCurrentTime() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 4, 2, 0);
+        wheel.advance(1_234);
+
+        wheel.add(1_250, "soon");
+        wheel.add(2_700, "later");
+
+        assertThat(wheel.advance(1_299)).isEmpty();
+        assertThat(wheel.advance(1_300)).containsExactly("soon");
+        assertThat(wheel.advance(2_699)).isEmpty();
+        assertThat(wheel.advance(2_800)).containsExactly("later");
+    }
+
+    @Test
+    void overdueItemIsNotAddedAndFarItemIsRejected() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 4, 2, 10_000);
+
+        assertThat(wheel.add(9_999, "overdue")).isFalse();
+        assertThatThrownBy(() -> wheel.add(10_000 + 16 * TICK, "far")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(wheel.size()).isZero();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.AccountBalanceDTO;
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.exception.ClientInputException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Остатки нескольких счетов: ID читаются проекцией частями по {@code banking.accounts.balances.chunk-size},
+ * без загрузки счетов и клиентов, неизвестные ID пропускаются.
+ */
+@SpringBootTest(properties = "banking.accounts.balances.chunk-size=4")
+class AccountBalancesTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void balancesAreReadWithOneProjectionQueryPerChunk() {
+        List<BankAccount> accounts = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            accounts.add(createAccount(BigDecimal.valueOf(i * 10L)));
+        }
+        List<Long> ids = new ArrayList<>(accounts.stream().map(BankAccount::getId).toList());
+        ids.add(-1L);
+        ids.add(accounts.get(0).getId());
+
+        statistics.clear();
+        List<AccountBalanceDTO> balances = bankAccountService.getBalances(ids, List.of());
+
+        assertThat(balances)
+                .extracting(AccountBalanceDTO::getAccountId, AccountBalanceDTO::getClientId, AccountBalanceDTO::getBalance)
+                .containsExactlyInAnyOrderElementsOf(accounts.stream()
+                        .map(account -> tuple(account.getId(), account.getClient().getId(), account.getBalance()))
+                        .toList());
+        // 7 различных ID частями по 4
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).as("accounts and clients are not loaded").isZero();
+    }
+
+    @Test
+    void balancesAreFoundByClientIds() {
+        BankAccount first = createAccount(BigDecimal.valueOf(15));
+        BankAccount second = createAccount(BigDecimal.valueOf(25));
+
+        statistics.clear();
+        List<AccountBalanceDTO> balances = bankAccountService.getBalances(List.of(first.getId()),
+                List.of(first.getClient().getId(), second.getClient().getId()));
+
+        assertThat(balances).extracting(AccountBalanceDTO::getAccountId).containsExactlyInAnyOrder(first.getId(), second.getId());
+        assertThat(balances).filteredOn(balance -> balance.getAccountId().equals(second.getId()))
+                .singleElement()
+                .satisfies(balance -> assertThat(balance.getBalance()).isEqualByComparingTo("25"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void emptyRequestIsRejected() {
+        assertThatThrownBy(() -> bankAccountService.getBalances(List.of(), List.of()))
+                .isInstanceOf(ClientInputException.class);
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("balances-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Balances Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+}
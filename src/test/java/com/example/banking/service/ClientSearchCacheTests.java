@@ -0,0 +1,194 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.ClientResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Объединение одинаковых запросов поиска клиентов и сброс кэша результатов при изменении клиентов.
+ */
+@SpringBootTest(properties = {"banking.search-cache.ttl=1m", "banking.search-cache.wait-timeout=2s"})
+@ActiveProfiles("h2")
+class ClientSearchCacheTests {
+
+    @Autowired
+    private ClientSearchCache clientSearchCache;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void clear() {
+        clientSearchCache.invalidate();
+    }
+
+    @Test
+    void concurrentIdenticalSearchesShareOneExecution() throws Exception {
+        ClientSearchCache.Key key = new ClientSearchCache.Key("fullName", "coalesce", 0, 10, "id");
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        double coalescedBefore = count("coalesced");
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Page<ClientResponseDTO>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> clientSearchCache.get(key, () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return new PageImpl<>(List.of());
+                })));
+            }
+            // Ждем, пока все вызывающие, кроме выполняющего поиск, присоединятся к нему
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (count("coalesced") - coalescedBefore < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            Page<ClientResponseDTO> first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Page<ClientResponseDTO>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(executions).hasValue(1);
+        assertThat(count("coalesced") - coalescedBefore).isEqualTo(callers - 1);
+    }
+
+    @Test
+    void cachedResultIsServedUntilClientIsCreated() {
+        String marker = "Search " + UUID.randomUUID().toString().substring(0, 8);
+        createClient(marker);
+        double hitsBefore = count("hit");
+
+        assertThat(clientService.searchClients(marker + "%", null, null, null, 0, 10, "id")).hasSize(1);
+        // Остальные критерии не применяются и не влияют на ключ
+        assertThat(clientService.searchClients(marker + "%", "+70000000000", null, null, 0, 10, "id")).hasSize(1);
+        assertThat(count("hit") - hitsBefore).isEqualTo(1);
+
+        createClient(marker);
+        assertThat(clientService.searchClients(marker + "%", null, null, null, 0, 10, "id")).hasSize(2);
+    }
+
+    @Test
+    void searchStartedBeforeInvalidationIsNotCached() {
+        ClientSearchCache.Key key = new ClientSearchCache.Key("all", null, 0, 10, "id");
+        AtomicInteger executions = new AtomicInteger();
+
+        clientSearchCache.get(key, () -> {
+            executions.incrementAndGet();
+            clientSearchCache.invalidate();
+            return new PageImpl<>(List.of());
+        });
+        clientSearchCache.get(key, () -> {
+            executions.incrementAndGet();
+            return new PageImpl<>(List.of());
+        });
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void errorOfTheRunningSearchIsPassedToWaitingCallers() throws Exception {
+        ClientSearchCache.Key key = new ClientSearchCache.Key("fullName", "error", 0, 10, "id");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        double coalescedBefore = count("coalesced");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Page<ClientResponseDTO>> leader = executor.submit(() -> clientSearchCache.get(key, () -> {
+                started.countDown();
+                await(release);
+                throw new StackOverflowError();
+            }));
+            await(started);
+            Future<Page<ClientResponseDTO>> follower = executor.submit(() -> clientSearchCache.get(key, () -> new PageImpl<>(List.of())));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (count("coalesced") - coalescedBefore < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> follower.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitingCallerSearchesItselfAfterTheWaitTimeout() throws Exception {
+        ClientSearchCache.Key key = new ClientSearchCache.Key("fullName", "slow", 0, 10, "id");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Page<ClientResponseDTO> own = new PageImpl<>(List.of());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> clientSearchCache.get(key, () -> {
+                started.countDown();
+                await(release);
+                return new PageImpl<>(List.of());
+            }));
+            await(started);
+
+            assertThat(clientSearchCache.get(key, () -> own)).isSameAs(own);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("banking.search.requests").tag("result", result).counter().count();
+    }
+
+    private void createClient(String fullName) {
+        String username = "search-" + UUID.randomUUID();
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername(username);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(BigDecimal.TEN);
+        clientDTO.setPhoneNumber("+7" + username);
+        clientDTO.setEmail(username + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName(fullName);
+        clientService.createClient(clientDTO);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
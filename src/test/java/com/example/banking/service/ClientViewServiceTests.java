@@ -0,0 +1,175 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.ClientViewDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.model.OutboxEventType;
+import com.example.banking.outbox.OutboxPublisher;
+import com.example.banking.outbox.OutboxRelay;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Модель чтения профиля: обновление по событиям outbox, ограниченное отставание, сборка из таблиц записи
+ * при отсутствии строки.
+ */
+class ClientViewServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private ClientViewService clientViewService;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private OutboxPublisher outboxPublisher;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void drain() {
+        // События других тестов в общей базе доставляются заранее: первая пересылка обнаруживает пропуски в их номерах,
+        // вторая пропускает их, так как открытых транзакций нет
+        outboxRelay.relay(LocalDateTime.now());
+        outboxRelay.relay(LocalDateTime.now());
+    }
+
+    @Test
+    @WithMockUser
+    void transfersReachTheViewAfterRelay() throws Exception {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        outboxRelay.relay(LocalDateTime.now());
+        ClientViewDTO before = clientViewService.getView(from.getClient().getId());
+        assertThat(before.getBalance()).isEqualByComparingTo("100");
+        assertThat(before.getRecentTransactions()).isEqualTo("[]");
+
+        transfer(from, to, "25");
+        assertThat(clientViewService.getView(from.getClient().getId()).getBalance())
+                .as("view lags behind the write side until relay").isEqualByComparingTo("100");
+        outboxRelay.relay(LocalDateTime.now());
+
+        ClientViewDTO sender = clientViewService.getView(from.getClient().getId());
+        assertThat(sender.getBalance()).isEqualByComparingTo("75");
+        assertThat(sender.getVersion()).isGreaterThan(before.getVersion());
+        JsonNode recent = objectMapper.readTree(sender.getRecentTransactions());
+        assertThat(recent).hasSize(1);
+        assertThat(recent.get(0).get("toAccountId").asLong()).isEqualTo(to.getId());
+        assertThat(recent.get(0).get("amount").decimalValue()).isEqualByComparingTo("25");
+        assertThat(clientViewService.getView(to.getClient().getId()).getBalance()).isEqualByComparingTo("26");
+    }
+
+    @Test
+    @WithMockUser
+    void recentTransactionsAreLimitedAndNewestFirst() throws Exception {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.valueOf(100));
+        for (int i = 1; i <= 12; i++) {
+            transfer(i % 2 == 0 ? from : to, i % 2 == 0 ? to : from, String.valueOf(i));
+        }
+        outboxRelay.relay(LocalDateTime.now());
+
+        JsonNode recent = objectMapper.readTree(clientViewService.getView(from.getClient().getId()).getRecentTransactions());
+        assertThat(recent).hasSize(10);
+        assertThat(recent.get(0).get("amount").decimalValue()).isEqualByComparingTo("12");
+        assertThat(recent.get(9).get("amount").decimalValue()).isEqualByComparingTo("3");
+    }
+
+    @Test
+    void contactChangesAndInterestReachTheView() {
+        BankAccount account = createAccount(BigDecimal.valueOf(100));
+        BankAccount other = createAccount(BigDecimal.valueOf(100));
+        outboxRelay.relay(LocalDateTime.now());
+        Long clientId = account.getClient().getId();
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        clientService.updateClientContactInfo(clientId, "+7" + suffix, suffix + "@changed.example.com");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE bank_account SET balance = 105 WHERE id IN (?, ?)", account.getId(), other.getId());
+            outboxPublisher.publish(OutboxEventType.INTEREST_ACCRUED, null,
+                    Map.of("accounts", 1, "fromAccountId", account.getId(), "toAccountId", account.getId()));
+        });
+
+        outboxRelay.relay(LocalDateTime.now());
+
+        ClientViewDTO view = clientViewService.getView(clientId);
+        assertThat(view.getPhoneNumber()).isEqualTo("+7" + suffix);
+        assertThat(view.getEmail()).isEqualTo(suffix + "@changed.example.com");
+        assertThat(view.getBalance()).isEqualByComparingTo("105");
+        // Счет вне диапазона пачки не переносится
+        assertThat(clientViewService.getView(other.getClient().getId()).getBalance()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    void missingRowIsReadFromTheWriteSide() {
+        BankAccount account = createAccount(BigDecimal.valueOf(100));
+        Long clientId = account.getClient().getId();
+        jdbcTemplate.update("DELETE FROM client_view WHERE client_id = ?", clientId);
+        double liveReads = meterRegistry.counter("banking.clientview.reads", "source", "live").count();
+
+        ClientViewDTO view = clientViewService.getView(clientId);
+
+        assertThat(view.getId()).isEqualTo(clientId);
+        assertThat(view.getAccountId()).isEqualTo(account.getId());
+        assertThat(view.getBalance()).isEqualByComparingTo("100");
+        assertThat(meterRegistry.counter("banking.clientview.reads", "source", "live").count()).isEqualTo(liveReads + 1);
+        assertThatThrownBy(() -> clientViewService.getView(-1L)).isInstanceOf(UserNotFoundException.class);
+    }
+
+    private void transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        transactionService.transfer(transactionDTO);
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("view-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("View Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+}
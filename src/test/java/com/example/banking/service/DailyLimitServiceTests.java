@@ -0,0 +1,158 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.DailyLimitException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Суточный лимит: соблюдение лимита, выдача частей из базы только по исчерпании части в памяти, несколько переводов
+ * в одной транзакции, откат перевода, возврат остатка при остановке.
+ */
+class DailyLimitServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private DailyLimitService dailyLimitService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @WithMockUser
+    void chunksAreReservedOnlyWhenTheLeaseIsSpent() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000), "400");
+        BankAccount to = createAccount(BigDecimal.ONE, null);
+
+        transfer(from, to, "30");
+        assertThat(reserved(from)).as("first chunk is a quarter of the limit").isEqualByComparingTo("100");
+        transfer(from, to, "70");
+        assertThat(reserved(from)).as("lease covers the transfer without the database").isEqualByComparingTo("100");
+        transfer(from, to, "150");
+        assertThat(reserved(from)).as("chunk grows to the missing amount").isEqualByComparingTo("250");
+        assertThat(dailyLimitService.remaining(from.getId())).isZero();
+    }
+
+    @Test
+    @WithMockUser
+    void transfersOverTheDailyLimitAreRejected() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000), "400");
+        BankAccount to = createAccount(BigDecimal.ONE, null);
+        transfer(from, to, "250");
+        transfer(from, to, "100");
+
+        assertThatThrownBy(() -> transfer(from, to, "50.01")).isInstanceOf(DailyLimitException.class);
+        transfer(from, to, "50");
+
+        assertThat(reserved(from)).isEqualByComparingTo("400");
+        assertThatThrownBy(() -> transfer(from, to, "0.01")).isInstanceOf(DailyLimitException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM bank_account WHERE id = ?", BigDecimal.class, from.getId()))
+                .isEqualByComparingTo("600");
+    }
+
+    @Test
+    @WithMockUser
+    void rolledBackTransferRestoresTheQuota() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000), "400");
+        BankAccount to = createAccount(BigDecimal.ONE, null);
+        transfer(from, to, "10");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            transfer(from, to, "300");
+            status.setRollbackOnly();
+        });
+
+        assertThat(reserved(from)).isEqualByComparingTo("100");
+        assertThat(dailyLimitService.remaining(from.getId())).isEqualTo(9_000);
+        transfer(from, to, "390");
+        assertThat(reserved(from)).isEqualByComparingTo("400");
+    }
+
+    @Test
+    @WithMockUser
+    void transfersInOneTransactionShareTheChunkItReserved() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000), "400");
+        BankAccount to = createAccount(BigDecimal.ONE, null);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                transfer(from, to, "10");
+            }
+        });
+
+        assertThat(reserved(from)).isEqualByComparingTo("100");
+        assertThat(dailyLimitService.remaining(from.getId())).isEqualTo(5_000);
+    }
+
+    @Test
+    @WithMockUser
+    void unusedLeasesAreReleased() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000), "400");
+        BankAccount to = createAccount(BigDecimal.ONE, null);
+        transfer(from, to, "40");
+
+        dailyLimitService.releaseLeases();
+
+        assertThat(reserved(from)).isEqualByComparingTo("40");
+        assertThat(dailyLimitService.remaining(from.getId())).isZero();
+        transfer(from, to, "360");
+        assertThat(reserved(from)).isEqualByComparingTo("400");
+    }
+
+    private BigDecimal reserved(BankAccount account) {
+        return jdbcTemplate.queryForObject("SELECT reserved FROM daily_debit_usage WHERE account_id = ? AND usage_date = ?",
+                BigDecimal.class, account.getId(), LocalDate.now());
+    }
+
+    private String transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionService.transfer(transactionDTO).getBody();
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance, String dailyDebitLimit) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("daily-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Daily Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        BankAccount account = bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+        if (dailyDebitLimit != null) {
+            jdbcTemplate.update("UPDATE bank_account SET daily_debit_limit = ? WHERE id = ?", new BigDecimal(dailyDebitLimit), account.getId());
+        }
+        return account;
+    }
+}
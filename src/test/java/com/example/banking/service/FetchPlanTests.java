@@ -0,0 +1,166 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.ClientResponseDTO;
+import com.example.banking.dto.ScheduledTransferDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.dto.TransactionResponseDTO;
+import com.example.banking.model.Client;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов сервисных методов при пустых кэшах Hibernate: связи загружаются лениво, история и поиск
+ * читаются проекциями, поэтому число запросов не зависит от количества строк (защита от N+1).
+ * Outbox, суточные лимиты, проверки скорости и итоги по месяцам отключены, чтобы считались только запросы сценария.
+ */
+@SpringBootTest(properties = {
+        "banking.search-cache.ttl=0",
+        "banking.outbox.enabled=false",
+        "banking.daily-limit.enabled=false",
+        "banking.velocity.enabled=false",
+        "banking.statements.rollup.inline=false"})
+class FetchPlanTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ScheduledTransferService scheduledTransferService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @WithMockUser
+    void transferLoadsOnlyTheLockedAccounts() {
+        Client from = createClient("Fetch Plan Sender", BigDecimal.valueOf(100));
+        Client to = createClient("Fetch Plan Recipient", BigDecimal.ONE);
+
+        reset();
+        transactionService.transfer(transfer(from, to, "10"));
+
+        // Две блокировки счетов, вставка транзакции, две проводки и два обновления остатков
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(7);
+        assertThat(statistics.getEntityStatistics(Client.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    @WithMockUser
+    void historyIsOneQueryRegardlessOfCounterparties() {
+        Client from = createClient("Fetch Plan Sender", BigDecimal.valueOf(100));
+        for (int i = 0; i < 3; i++) {
+            transactionService.transfer(transfer(from, createClient("Fetch Plan Recipient", BigDecimal.ONE), "1"));
+        }
+
+        reset();
+        Page<TransactionResponseDTO> history = transactionService.getHistory(from.getId(), LocalDate.now(), LocalDate.now(), 0, 10);
+
+        assertThat(history.getContent()).hasSize(3)
+                .allSatisfy(transaction -> assertThat(transaction.getFromAccountId()).isEqualTo(from.getId()));
+        // Счет клиента и страница истории; подсчет не нужен, так как страница неполная
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityStatistics(Client.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    void searchReadsOnlyProjectedColumns() {
+        String fullName = "Fetch Plan " + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            createClient(fullName, BigDecimal.ONE);
+        }
+
+        reset();
+        Page<ClientResponseDTO> clients = clientService.searchClients(fullName, null, null, null, 0, 10, "id");
+
+        assertThat(clients.getContent()).hasSize(3)
+                .allSatisfy(client -> assertThat(client.getFullName()).isEqualTo(fullName));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void scheduledTransferLoadsOwnerWithAccount() {
+        Client from = createClient("Fetch Plan Sender", BigDecimal.TEN);
+        Client to = createClient("Fetch Plan Recipient", BigDecimal.ONE);
+        ScheduledTransferDTO scheduledTransferDTO = new ScheduledTransferDTO();
+        scheduledTransferDTO.setFromAccountId(from.getId());
+        scheduledTransferDTO.setToAccountId(to.getId());
+        scheduledTransferDTO.setAmount(BigDecimal.ONE);
+        scheduledTransferDTO.setRunAt(LocalDateTime.now().plusDays(1));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(from.getUsername(), null, List.of()));
+
+        reset();
+        scheduledTransferService.create(scheduledTransferDTO);
+
+        // Счет с клиентом одним соединением, проверка счета получателя и вставка перевода
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+    }
+
+    // Пустые кэши второго уровня и запросов, чтобы каждая загрузка была видна как SQL-запрос
+    private void reset() {
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+    }
+
+    private static TransactionDTO transfer(Client from, Client to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionDTO;
+    }
+
+    private Client createClient(String fullName, BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("fetch-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName(fullName);
+        clientService.createClient(clientDTO);
+        return clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.model.ReconciliationDiscrepancy;
+import com.example.banking.model.ReconciliationRun;
+import com.example.banking.model.ReconciliationStatus;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.repository.ReconciliationDiscrepancyRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сверка остатков с журналом: расхождение находится в своем диапазоне, согласованные счета не попадают в отчет,
+ * одновременно выполняется одна сверка.
+ */
+@SpringBootTest(properties = "banking.reconciliation.partition-size=50")
+class LedgerReconciliationTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private LedgerReconciliationService ledgerReconciliationService;
+    @Autowired
+    private ReconciliationDiscrepancyRepository reconciliationDiscrepancyRepository;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @WithMockUser
+    void discrepanciesAreReportedPerAccount() {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        BankAccount corrupted = createAccount(BigDecimal.valueOf(50));
+        transfer(from, to, "30");
+        transfer(corrupted, to, "5");
+        jdbcTemplate.update("UPDATE bank_account SET balance = balance + 1 WHERE id = ?", corrupted.getId());
+
+        ReconciliationRun run = ledgerReconciliationService.reconcile();
+
+        assertThat(run.getStatus()).isEqualTo(ReconciliationStatus.COMPLETED);
+        assertThat(run.getAccounts()).isEqualTo(jdbcTemplate.queryForObject("SELECT count(*) FROM bank_account", Long.class));
+        List<ReconciliationDiscrepancy> found = reconciliationDiscrepancyRepository.findByRunIdOrderByAccountId(run.getId());
+        assertThat(found).extracting(ReconciliationDiscrepancy::getAccountId)
+                .contains(corrupted.getId())
+                .doesNotContain(from.getId(), to.getId());
+        ReconciliationDiscrepancy discrepancy = found.stream()
+                .filter(candidate -> candidate.getAccountId().equals(corrupted.getId()))
+                .findFirst().orElseThrow();
+        assertThat(discrepancy.getBalance()).isEqualByComparingTo("46");
+        assertThat(discrepancy.getExpected()).isEqualByComparingTo("45");
+        assertThat(discrepancy.getOpening()).isEqualByComparingTo("50");
+        assertThat(discrepancy.getDebits()).isEqualByComparingTo("5");
+        assertThat(run.getDiscrepancies()).isEqualTo(found.size());
+    }
+
+    @Test
+    void onlyOneReconciliationRunsAtATime() {
+        Long running = jdbcTemplate.queryForObject("INSERT INTO reconciliation_run (status, started_at) VALUES ('RUNNING', ?) RETURNING id",
+                Long.class, LocalDateTime.now());
+
+        assertThat(ledgerReconciliationService.reconcile()).isNull();
+
+        jdbcTemplate.update("UPDATE reconciliation_run SET started_at = ? WHERE id = ?", LocalDateTime.now().minusDays(1), running);
+        assertThat(ledgerReconciliationService.reconcile().getStatus()).isEqualTo(ReconciliationStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM reconciliation_run WHERE id = ?", String.class, running))
+                .as("stale run is marked as failed").isEqualTo("FAILED");
+    }
+
+    private void transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        transactionService.transfer(transactionDTO);
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("reconcile-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Reconcile Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.model.LedgerEntryType;
+import com.example.banking.model.LedgerPosting;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.repository.LedgerPostingRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Журнал двойной записи: проводки переводов и процентов, остаток по снимку и проводкам после него, сверка.
+ * Проценты начисляются пачками по два счета.
+ */
+@SpringBootTest(properties = "banking.interest.batch-size=2")
+class LedgerServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private LedgerService ledgerService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private BankAccountService bankAccountService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private LedgerPostingRepository ledgerPostingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @WithMockUser
+    void transferPostsBalancedDebitAndCredit() {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.valueOf(50));
+
+        transfer(from, to, "30.25");
+
+        List<LedgerPosting> postings = ledgerPostingRepository.findAll().stream()
+                .filter(posting -> posting.getTransactionId() != null)
+                .filter(posting -> List.of(from.getId(), to.getId()).contains(posting.getAccount().getId()))
+                .toList();
+        assertThat(postings).extracting(LedgerPosting::getType).containsExactlyInAnyOrder(LedgerEntryType.DEBIT, LedgerEntryType.CREDIT);
+        assertThat(postings.stream().map(LedgerPosting::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("0");
+        assertThat(postings).extracting(LedgerPosting::getTransactionId).containsOnly(postings.get(0).getTransactionId());
+
+        assertThat(ledgerService.getBalance(from.getId())).isEqualByComparingTo("69.75");
+        assertThat(ledgerService.getBalance(to.getId())).isEqualByComparingTo("80.25");
+    }
+
+    @Test
+    @WithMockUser
+    void balanceIsSnapshotPlusLaterPostings() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        for (int i = 0; i < 5; i++) {
+            transfer(from, to, "10");
+        }
+        assertThat(ledgerService.snapshot(from.getId(), 100)).as("below min postings").isFalse();
+        assertThat(ledgerService.snapshot(from.getId(), 1)).isTrue();
+        Long snapshotPostingId = jdbcTemplate.queryForObject("SELECT last_posting_id FROM ledger_snapshot WHERE account_id = ?", Long.class, from.getId());
+
+        transfer(from, to, "1.50");
+        transfer(to, from, "0.25");
+
+        assertThat(ledgerService.getBalance(from.getId())).isEqualByComparingTo("948.75")
+                .isEqualByComparingTo(ledgerService.rebuildBalance(from.getId()))
+                .isEqualByComparingTo(bankAccountRepository.findById(from.getId()).orElseThrow().getBalance());
+        assertThat(ledgerPostingRepository.findDelta(from.getId(), snapshotPostingId).getPostings()).isEqualTo(2);
+    }
+
+    @Test
+    void interestAccrualIsPostedAndSnapshotsMatchAccounts() {
+        jdbcTemplate.execute("TRUNCATE ledger_snapshot, ledger_posting, transaction, bank_account, client CASCADE");
+        BankAccount account = createAccount(new BigDecimal("33.33"));
+
+        bankAccountService.updateBalance();
+
+        BigDecimal balance = bankAccountRepository.findById(account.getId()).orElseThrow().getBalance();
+        assertThat(balance).isEqualByComparingTo("35.00");
+        assertThat(ledgerService.getBalance(account.getId())).isEqualByComparingTo(balance);
+
+        double mismatches = meterRegistry.get("banking.ledger.mismatches").counter().count();
+        assertThat(ledgerService.snapshotAccounts(1)).isEqualTo(1);
+        assertThat(meterRegistry.get("banking.ledger.mismatches").counter().count()).isEqualTo(mismatches);
+    }
+
+    @Test
+    void interestIsAccruedInBatches() {
+        jdbcTemplate.execute("TRUNCATE ledger_snapshot, ledger_posting, transaction, bank_account, client CASCADE");
+        for (int i = 0; i < 5; i++) {
+            createAccount(BigDecimal.valueOf(100));
+        }
+        long events = interestEvents();
+
+        bankAccountService.updateBalance();
+
+        assertThat(bankAccountRepository.findAll()).extracting(BankAccount::getBalance)
+                .allSatisfy(balance -> assertThat(balance).isEqualByComparingTo("105.00"));
+        assertThat(interestEvents() - events).as("one event per batch of two accounts").isEqualTo(3);
+    }
+
+    @Test
+    void snapshotDetectsBalanceChangedOutsideLedger() {
+        BankAccount account = createAccount(BigDecimal.TEN);
+        jdbcTemplate.update("UPDATE bank_account SET balance = 11 WHERE id = ?", account.getId());
+        double mismatches = meterRegistry.get("banking.ledger.mismatches").counter().count();
+
+        ledgerService.snapshot(account.getId(), 1);
+
+        assertThat(meterRegistry.get("banking.ledger.mismatches").counter().count()).isEqualTo(mismatches + 1);
+    }
+
+    @Test
+    void postingsAreAppendOnly() {
+        BankAccount account = createAccount(BigDecimal.TEN);
+
+        assertThatThrownBy(() -> jdbcTemplate.update("UPDATE ledger_posting SET amount = 0 WHERE account_id = ?", account.getId()))
+                .hasMessageContaining("append-only");
+        assertThatThrownBy(() -> jdbcTemplate.update("DELETE FROM ledger_posting WHERE account_id = ?", account.getId()))
+                .hasMessageContaining("append-only");
+    }
+
+    private void transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        transactionService.transfer(transactionDTO);
+    }
+
+    private long interestEvents() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_event WHERE type = 'INTEREST_ACCRUED'", Long.class);
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("ledger-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Ledger Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.ScheduledTransferDTO;
+import com.example.banking.dto.ScheduledTransferResponseDTO;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.model.ScheduledTransfer;
+import com.example.banking.model.ScheduledTransferRecurrence;
+import com.example.banking.model.ScheduledTransferStatus;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.repository.ScheduledTransferRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Отложенные переводы: захват окна, выполнение по колесу таймеров, отсутствие повторов после перезапуска и отказы.
+ */
+class ScheduledTransferTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private ScheduledTransferService scheduledTransferService;
+    @Autowired
+    private ScheduledTransferRunner scheduledTransferRunner;
+    @Autowired
+    private ScheduledTransferRepository scheduledTransferRepository;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void dueTransferIsExecutedByTheWheelOnce() throws Exception {
+        BankAccount from = createAccount(new BigDecimal("100.00"));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        LocalDateTime runAt = LocalDateTime.now().plusSeconds(5).truncatedTo(ChronoUnit.MICROS);
+        ScheduledTransferResponseDTO created = schedule(from, to, "12.50", runAt, ScheduledTransferRecurrence.ONCE);
+
+        assertThat(scheduledTransferRunner.load(runAt.minusSeconds(5))).isPositive();
+        // Захваченный перевод не достается повторной загрузке окна
+        assertThat(scheduledTransferService.claim(runAt.minusSeconds(5), runAt.plusMinutes(1), 100))
+                .extracting(ScheduledTransferService.Due::id).doesNotContain(created.getId());
+        scheduledTransferRunner.tick(runAt.minusSeconds(1));
+        assertThat(reload(created.getId()).getRuns()).isZero();
+
+        scheduledTransferRunner.tick(runAt.plusSeconds(1));
+        ScheduledTransfer executed = awaitTransfer(created.getId(), transfer -> transfer.getStatus() != ScheduledTransferStatus.ACTIVE);
+
+        assertThat(executed.getStatus()).isEqualTo(ScheduledTransferStatus.COMPLETED);
+        assertThat(executed.getRuns()).isEqualTo(1);
+        assertThat(executed.getClaimedBy()).isNull();
+        assertThat(balance(from)).isEqualByComparingTo("87.50");
+        assertThat(balance(to)).isEqualByComparingTo("13.50");
+        // Повторное выполнение того же срока (например, после перезапуска) пропускается
+        assertThat(scheduledTransferService.execute(new ScheduledTransferService.Due(null, created.getId(), runAt)))
+                .isEqualTo(ScheduledTransferService.Outcome.SKIPPED);
+        assertThat(balance(from)).isEqualByComparingTo("87.50");
+    }
+
+    @Test
+    void claimsOfPreviousRunAreReleasedAndOverdueRunsExecuteImmediately() throws Exception {
+        BankAccount from = createAccount(new BigDecimal("50.00"));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        ScheduledTransferResponseDTO created = schedule(from, to, "5", LocalDateTime.now().plusDays(1), ScheduledTransferRecurrence.DAILY);
+        // Срок пропущен во время простоя и захвачен до «перезапуска»: колесо потеряно
+        LocalDateTime runAt = LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.MICROS);
+        jdbcTemplate.update("UPDATE scheduled_transfer SET next_run_at = ? WHERE id = ?", runAt, created.getId());
+        LocalDateTime now = LocalDateTime.now();
+        scheduledTransferService.claim(now, now.plusMinutes(1), 100);
+
+        scheduledTransferService.releaseClaims();
+        scheduledTransferRunner.load(now);
+        ScheduledTransfer executed = awaitTransfer(created.getId(), transfer -> transfer.getRuns() == 1);
+
+        assertThat(executed.getStatus()).isEqualTo(ScheduledTransferStatus.ACTIVE);
+        assertThat(executed.getNextRunAt()).isEqualTo(runAt.plusDays(1));
+        assertThat(balance(from)).isEqualByComparingTo("45.00");
+    }
+
+    @Test
+    void failedRunIsSkippedForRecurringAndFailsOneOff() {
+        BankAccount from = createAccount(new BigDecimal("1.00"));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        LocalDateTime runAt = LocalDateTime.now().plusSeconds(2).truncatedTo(ChronoUnit.MICROS);
+        ScheduledTransferResponseDTO once = schedule(from, to, "10", runAt, ScheduledTransferRecurrence.ONCE);
+        ScheduledTransferResponseDTO monthly = schedule(from, to, "10", runAt, ScheduledTransferRecurrence.MONTHLY);
+        scheduledTransferService.claim(runAt, runAt.plusMinutes(1), 100);
+
+        assertThat(scheduledTransferService.execute(new ScheduledTransferService.Due(null, once.getId(), runAt)))
+                .isEqualTo(ScheduledTransferService.Outcome.FAILED);
+        assertThat(scheduledTransferService.execute(new ScheduledTransferService.Due(null, monthly.getId(), runAt)))
+                .isEqualTo(ScheduledTransferService.Outcome.FAILED);
+
+        assertThat(reload(once.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.FAILED);
+        ScheduledTransfer skipped = reload(monthly.getId());
+        assertThat(skipped.getStatus()).isEqualTo(ScheduledTransferStatus.ACTIVE);
+        assertThat(skipped.getNextRunAt()).isEqualTo(runAt.plusMonths(1));
+        assertThat(skipped.getFailures()).isEqualTo(1);
+        assertThat(skipped.getLastError()).isEqualTo("Insufficient balance");
+        assertThat(balance(from)).isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void onlyAccountOwnerCanScheduleAndCancel() {
+        BankAccount from = createAccount(BigDecimal.TEN);
+        BankAccount to = createAccount(BigDecimal.ONE);
+        ScheduledTransferResponseDTO created = schedule(from, to, "1", LocalDateTime.now().plusDays(1), ScheduledTransferRecurrence.WEEKLY);
+
+        authenticate(to.getClient().getUsername());
+        assertThatThrownBy(() -> scheduledTransferService.create(request(from, to, "1", LocalDateTime.now().plusDays(1), ScheduledTransferRecurrence.ONCE)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> scheduledTransferService.cancel(created.getId())).hasMessage("Scheduled transfer not found");
+
+        authenticate(from.getClient().getUsername());
+        assertThat(scheduledTransferService.cancel(created.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.CANCELLED);
+        assertThat(scheduledTransferService.list()).extracting(ScheduledTransferResponseDTO::getId).containsExactly(created.getId());
+    }
+
+    private ScheduledTransferResponseDTO schedule(BankAccount from, BankAccount to, String amount, LocalDateTime runAt,
+                                                  ScheduledTransferRecurrence recurrence) {
+        authenticate(from.getClient().getUsername());
+        try {
+            return scheduledTransferService.create(request(from, to, amount, runAt, recurrence));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static ScheduledTransferDTO request(BankAccount from, BankAccount to, String amount, LocalDateTime runAt,
+                                                ScheduledTransferRecurrence recurrence) {
+        ScheduledTransferDTO scheduledTransferDTO = new ScheduledTransferDTO();
+        scheduledTransferDTO.setFromAccountId(from.getId());
+        scheduledTransferDTO.setToAccountId(to.getId());
+        scheduledTransferDTO.setAmount(new BigDecimal(amount));
+        scheduledTransferDTO.setRunAt(runAt);
+        scheduledTransferDTO.setRecurrence(recurrence);
+        return scheduledTransferDTO;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private ScheduledTransfer awaitTransfer(Long id, Predicate<ScheduledTransfer> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ScheduledTransfer transfer = reload(id);
+        while (!condition.test(transfer) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            transfer = reload(id);
+        }
+        return transfer;
+    }
+
+    private ScheduledTransfer reload(Long id) {
+        return scheduledTransferRepository.findById(id).orElseThrow();
+    }
+
+    private BigDecimal balance(BankAccount account) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM bank_account WHERE id = ?", BigDecimal.class, account.getId());
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("scheduled-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Scheduled Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        // Клиент нужен тестам для аутентификации владельца, поэтому загружается вместе со счетом
+        return bankAccountRepository.findWithClientById(client.getId()).orElseThrow();
+    }
+}
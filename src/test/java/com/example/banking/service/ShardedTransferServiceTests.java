@@ -0,0 +1,413 @@
+package com.example.banking.service;
+
+import com.example.banking.config.ShardRoutingDataSource;
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.ClientResponseDTO;
+import com.example.banking.dto.ScheduledTransferDTO;
+import com.example.banking.dto.ScheduledTransferResponseDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.dto.TransactionResponseDTO;
+import com.example.banking.exception.ClientInputException;
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.Client;
+import com.example.banking.model.ScheduledTransferRecurrence;
+import com.example.banking.outbox.OutboxRelay;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.sharding.ShardRouter;
+import com.example.banking.support.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Шардирование на двух встроенных базах: клиенты распределяются по слотам, перевод внутри шарда остается локальным,
+ * межшардовый перевод проходит сагой, повтор шага зачисления не зачисляет сумму дважды, отказ получателя компенсируется.
+ * Межшардовый перевод виден в истории и модели чтения профиля обоих клиентов. Вход клиента, поиск клиентов,
+ * пересылка outbox, снимки журнала, восстановление счетчиков скорости и отложенные переводы работают на каждом шарде.
+ */
+@SpringBootTest(properties = {
+        "banking.datasource.sharding.enabled=true",
+        "banking.datasource.sharding.slots=2",
+        "banking.sharding.saga.retry-after=0s",
+        "banking.ledger.snapshot.min-postings=1"})
+class ShardedTransferServiceTests extends PostgresIntegrationTest {
+
+    private static final EmbeddedPostgres FIRST_SHARD = start();
+    private static final EmbeddedPostgres SECOND_SHARD = start();
+
+    @Autowired
+    private ShardedTransferService shardedTransferService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientViewService clientViewService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ScheduledTransferService scheduledTransferService;
+    @Autowired
+    private VelocityCheckService velocityCheckService;
+    @Autowired
+    private LedgerSnapshotter ledgerSnapshotter;
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) {
+        shard(registry, 0, FIRST_SHARD);
+        shard(registry, 1, SECOND_SHARD);
+    }
+
+    @Test
+    void clientsAreSpreadOverShardsBySlot() {
+        Long first = createAccount(BigDecimal.TEN);
+        Long second = createAccount(BigDecimal.TEN);
+
+        assertThat(shardRouter.shardOf(first)).isNotEqualTo(shardRouter.shardOf(second));
+        for (Long id : new Long[]{first, second}) {
+            String shard = shardRouter.shardOf(id);
+            String other = shard.equals("shard-0") ? "shard-1" : "shard-0";
+            assertThat(shard(shard).queryForObject("SELECT count(*) FROM client WHERE id = ?", Long.class, id)).isEqualTo(1);
+            assertThat(shard(shard).queryForObject("SELECT client_id FROM bank_account WHERE id = ?", Long.class, id))
+                    .as("account ID equals client ID").isEqualTo(id);
+            assertThat(shard(other).queryForObject("SELECT count(*) FROM client WHERE id = ?", Long.class, id)).isZero();
+        }
+    }
+
+    @Test
+    void clientsOnEveryShardCanLogIn() {
+        for (String shard : new String[]{"shard-0", "shard-1"}) {
+            Long id = createAccount(shard, BigDecimal.TEN);
+            String username = shard(shard).queryForObject("SELECT username FROM client WHERE id = ?", String.class, id);
+            // Повторный поиск не должен получить результат другого шарда из кэша запросов
+            assertThat(jwtUserDetailsService.loadUserByUsername(username).getUsername()).isEqualTo(username);
+            assertThat(jwtUserDetailsService.loadUserByUsername(username).getUsername()).isEqualTo(username);
+        }
+    }
+
+    @Test
+    void outboxIsRelayedAndPurgedOnEveryShard() {
+        createAccount("shard-0", BigDecimal.TEN);
+        createAccount("shard-1", BigDecimal.TEN);
+
+        // Вторая пересылка пропускает пропуски в номерах, оставленные откатами других тестов
+        outboxRelay.relay(LocalDateTime.now());
+        outboxRelay.relay(LocalDateTime.now());
+
+        for (String shard : new String[]{"shard-0", "shard-1"}) {
+            Long headId = shard(shard).queryForObject("SELECT max(id) FROM outbox_event", Long.class);
+            assertThat(shard(shard).queryForList("SELECT last_event_id FROM outbox_consumer", Long.class))
+                    .as("consumer positions on " + shard).isNotEmpty().containsOnly(headId);
+        }
+    }
+
+    @Test
+    @WithMockUser
+    void sameShardTransferStaysLocal() {
+        Long from = createAccount("shard-0", BigDecimal.valueOf(100));
+        Long to = createAccount("shard-0", BigDecimal.ONE);
+
+        assertThat(shardedTransferService.transfer(transfer(from, to, "30")).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        assertThat(balance(from)).isEqualByComparingTo("70");
+        assertThat(balance(to)).isEqualByComparingTo("31");
+        assertThat(shard("shard-0").queryForObject("SELECT count(*) FROM transaction WHERE from_account_id = ? AND to_account_id = ?",
+                Long.class, from, to)).isEqualTo(1);
+        assertThat(shard("shard-0").queryForObject("SELECT count(*) FROM transfer_saga WHERE from_account_id = ?", Long.class, from)).isZero();
+    }
+
+    @Test
+    @WithMockUser
+    void crossShardTransferDebitsAndCreditsBothShards() {
+        Long from = createAccount("shard-0", BigDecimal.valueOf(100));
+        Long to = createAccount("shard-1", BigDecimal.ONE);
+
+        ResponseEntity<String> response = shardedTransferService.transfer(transfer(from, to, "30"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Long sagaId = shard("shard-0").queryForObject("SELECT id FROM transfer_saga WHERE from_account_id = ?", Long.class, from);
+        assertThat(response.getBody()).endsWith("Transaction ID: " + sagaId);
+        assertThat(shardRouter.shardOf(sagaId)).isEqualTo("shard-0");
+        assertThat(balance(from)).isEqualByComparingTo("70");
+        assertThat(balance(to)).isEqualByComparingTo("31");
+        assertThat(shard("shard-0").queryForObject("SELECT status FROM transfer_saga WHERE id = ?", String.class, sagaId)).isEqualTo("COMPLETED");
+        assertThat(shard("shard-1").queryForObject("SELECT credited FROM transfer_saga_credit WHERE saga_id = ?", Boolean.class, sagaId)).isTrue();
+        assertThat(shard("shard-0").queryForObject("SELECT amount FROM ledger_posting WHERE account_id = ? AND type = 'DEBIT' AND transaction_id = ?",
+                BigDecimal.class, from, sagaId)).isEqualByComparingTo("-30");
+        assertThat(shard("shard-1").queryForObject("SELECT amount FROM ledger_posting WHERE account_id = ? AND type = 'CREDIT' AND transaction_id = ?",
+                BigDecimal.class, to, sagaId)).isEqualByComparingTo("30");
+    }
+
+    @Test
+    @WithMockUser
+    void crossShardTransferReachesHistoryAndViewOfBothClients() throws Exception {
+        Long from = createAccount("shard-0", BigDecimal.valueOf(100));
+        Long to = createAccount("shard-1", BigDecimal.ONE);
+        outboxRelay.relay(LocalDateTime.now());
+
+        shardedTransferService.transfer(transfer(from, to, "30"));
+        Long sagaId = shard("shard-0").queryForObject("SELECT id FROM transfer_saga WHERE from_account_id = ?", Long.class, from);
+        assertThat(shard("shard-1").queryForObject("SELECT count(*) FROM outbox_event WHERE type = 'TRANSFER_CREDITED' AND aggregate_id = ?",
+                Long.class, sagaId)).isEqualTo(1);
+        outboxRelay.relay(LocalDateTime.now());
+
+        for (Long accountId : new Long[]{from, to}) {
+            Page<TransactionResponseDTO> history = shardRouter.onClientShard(accountId,
+                    () -> transactionService.getHistory(accountId, LocalDate.now(), LocalDate.now(), 0, 10));
+            assertThat(history.getTotalElements()).isEqualTo(1);
+            assertThat(history.getContent()).singleElement().satisfies(transaction -> {
+                assertThat(transaction.getId()).isEqualTo(sagaId);
+                assertThat(transaction.getFromAccountId()).isEqualTo(from);
+                assertThat(transaction.getToAccountId()).isEqualTo(to);
+            });
+
+            JsonNode recent = objectMapper.readTree(shardRouter.onClientShard(accountId,
+                    () -> clientViewService.getView(accountId)).getRecentTransactions());
+            assertThat(recent).hasSize(1);
+            assertThat(recent.get(0).get("id").asLong()).isEqualTo(sagaId);
+        }
+        assertThat(shardRouter.onClientShard(to, () -> clientViewService.getView(to)).getBalance()).isEqualByComparingTo("31");
+    }
+
+    @Test
+    void searchMergesClientsOfAllShards() {
+        String fullName = "Search " + UUID.randomUUID();
+        Long first = createAccount("shard-0", BigDecimal.TEN);
+        Long second = createAccount("shard-1", BigDecimal.TEN);
+        Long third = createAccount("shard-0", BigDecimal.TEN);
+        for (Long id : new Long[]{first, second, third}) {
+            shard(shardRouter.shardOf(id)).update("UPDATE client SET full_name = ? WHERE id = ?", fullName, id);
+        }
+
+        List<Long> ids = Stream.of(first, second, third).sorted().toList();
+
+        assertThat(clientService.searchClients(fullName, null, null, null, 0, 10, "id").getContent())
+                .extracting(ClientResponseDTO::getId).containsExactlyElementsOf(ids);
+        // Вторая страница собирается из результатов обоих шардов
+        Page<ClientResponseDTO> secondPage = clientService.searchClients(fullName, null, null, null, 1, 2, "id");
+        assertThat(secondPage.getTotalElements()).isEqualTo(3);
+        assertThat(secondPage.getContent()).extracting(ClientResponseDTO::getId).containsExactly(ids.get(2));
+    }
+
+    @Test
+    void contactInUseOnAnotherShardIsRejected() {
+        Long first = createAccount("shard-0", BigDecimal.TEN);
+        Long second = createAccount("shard-1", BigDecimal.TEN);
+        String phoneNumber = shard("shard-0").queryForObject("SELECT phone_number FROM client WHERE id = ?", String.class, first);
+        String email = shard("shard-0").queryForObject("SELECT email FROM client WHERE id = ?", String.class, first);
+
+        assertThatThrownBy(() -> clientService.updateClientContactInfo(second, phoneNumber, null))
+                .isInstanceOf(ClientInputException.class);
+        assertThatThrownBy(() -> clientService.updateClientContactInfo(second, null, email))
+                .isInstanceOf(ClientInputException.class);
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        String newPhoneNumber = "+7" + suffix;
+        assertThat(clientService.updateClientContactInfo(second, newPhoneNumber, suffix + "@example.com").getPhoneNumber())
+                .isEqualTo(newPhoneNumber);
+        assertThat(shard("shard-1").queryForObject("SELECT phone_number FROM client WHERE id = ?", String.class, second))
+                .isEqualTo(newPhoneNumber);
+    }
+
+    @Test
+    @WithMockUser
+    void velocityCountersAndLedgerSnapshotsCoverEveryShard() {
+        Long from = createAccount("shard-1", BigDecimal.valueOf(100));
+        Long to = createAccount("shard-0", BigDecimal.ONE);
+        shardedTransferService.transfer(transfer(from, to, "30"));
+        assertThat(velocityCheckService.transfers(from, LocalDateTime.now())).isEqualTo(1);
+
+        // Восстановление добавляет переводы повторно, поэтому списание с шарда, отличного от первого, учитывается дважды
+        velocityCheckService.rebuild();
+        assertThat(velocityCheckService.transfers(from, LocalDateTime.now())).isEqualTo(2);
+
+        ledgerSnapshotter.snapshot();
+        assertThat(shard("shard-1").queryForObject("SELECT balance FROM ledger_snapshot WHERE account_id = ?", BigDecimal.class, from))
+                .isEqualByComparingTo("70");
+        assertThat(shard("shard-0").queryForObject("SELECT balance FROM ledger_snapshot WHERE account_id = ?", BigDecimal.class, to))
+                .isEqualByComparingTo("31");
+    }
+
+    @Test
+    void scheduledCrossShardTransferIsExecutedOnTheSenderShard() {
+        Long from = createAccount("shard-1", BigDecimal.valueOf(100));
+        Long to = createAccount("shard-0", BigDecimal.ONE);
+        String owner = shard("shard-1").queryForObject("SELECT username FROM client WHERE id = ?", String.class, from);
+        LocalDateTime runAt = LocalDateTime.now().plusSeconds(1).truncatedTo(ChronoUnit.MICROS);
+        ScheduledTransferDTO scheduledTransferDTO = new ScheduledTransferDTO();
+        scheduledTransferDTO.setFromAccountId(from);
+        scheduledTransferDTO.setToAccountId(to);
+        scheduledTransferDTO.setAmount(new BigDecimal("25"));
+        scheduledTransferDTO.setRunAt(runAt);
+        scheduledTransferDTO.setRecurrence(ScheduledTransferRecurrence.ONCE);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(owner, null, List.of()));
+        try {
+            ScheduledTransferResponseDTO created = scheduledTransferService.create(scheduledTransferDTO);
+            assertThat(shard("shard-1").queryForObject("SELECT count(*) FROM scheduled_transfer WHERE id = ? AND owner = ?",
+                    Long.class, created.getId(), owner)).isEqualTo(1);
+            assertThat(scheduledTransferService.list()).extracting(ScheduledTransferResponseDTO::getId).containsExactly(created.getId());
+
+            List<ScheduledTransferService.Due> claimed = scheduledTransferService.claim(runAt, runAt.plusMinutes(1), 100);
+            ScheduledTransferService.Due due = claimed.stream()
+                    .filter(candidate -> candidate.id().equals(created.getId()) && "shard-1".equals(candidate.shard()))
+                    .findFirst().orElseThrow();
+            assertThat(scheduledTransferService.execute(due)).isEqualTo(ScheduledTransferService.Outcome.EXECUTED);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        assertThat(balance(from)).isEqualByComparingTo("75");
+        assertThat(balance(to)).isEqualByComparingTo("26");
+        assertThat(shard("shard-1").queryForObject("SELECT status FROM transfer_saga WHERE from_account_id = ?", String.class, from))
+                .isEqualTo("COMPLETED");
+    }
+
+    @Test
+    @WithMockUser
+    void repeatedCreditStepDoesNotCreditTwice() {
+        Long from = createAccount("shard-0", BigDecimal.valueOf(100));
+        Long to = createAccount("shard-1", BigDecimal.ONE);
+        shardedTransferService.transfer(transfer(from, to, "30"));
+        Long sagaId = shard("shard-0").queryForObject("SELECT id FROM transfer_saga WHERE from_account_id = ?", Long.class, from);
+        // Экземпляр упал после зачисления, но до завершения саги
+        shard("shard-0").update("UPDATE transfer_saga SET status = 'DEBITED', updated_at = ? WHERE id = ?",
+                LocalDateTime.now().minusMinutes(1), sagaId);
+
+        assertThat(shardedTransferService.recoverPendingTransfers()).isGreaterThanOrEqualTo(1);
+
+        assertThat(shard("shard-0").queryForObject("SELECT status FROM transfer_saga WHERE id = ?", String.class, sagaId)).isEqualTo("COMPLETED");
+        assertThat(balance(to)).isEqualByComparingTo("31");
+        assertThat(shard("shard-1").queryForObject("SELECT count(*) FROM ledger_posting WHERE transaction_id = ?", Long.class, sagaId)).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedCreditIsCompensated() {
+        Long from = createAccount("shard-0", BigDecimal.valueOf(100));
+        // Счет со слотом второго шарда, которого там нет
+        Long missing = 1_000_001L;
+        JdbcTemplate source = shard("shard-0");
+        Long sagaId = source.queryForObject("SELECT nextval(pg_get_serial_sequence('transaction', 'id'))", Long.class);
+        LocalDateTime debitedAt = LocalDateTime.now().minusMinutes(1);
+        source.update("UPDATE bank_account SET balance = balance - 10 WHERE id = ?", from);
+        source.update("INSERT INTO ledger_posting (account_id, type, amount, transaction_id, timestamp) VALUES (?, 'DEBIT', -10, ?, ?)",
+                from, sagaId, debitedAt);
+        source.update("INSERT INTO transfer_saga (id, from_account_id, to_account_id, amount, status, created_at, updated_at) "
+                + "VALUES (?, ?, ?, 10, 'DEBITED', ?, ?)", sagaId, from, missing, debitedAt, debitedAt);
+
+        shardedTransferService.recoverPendingTransfers();
+
+        assertThat(source.queryForObject("SELECT status FROM transfer_saga WHERE id = ?", String.class, sagaId)).isEqualTo("COMPENSATED");
+        assertThat(balance(from)).isEqualByComparingTo("100");
+        assertThat(source.queryForObject("SELECT amount FROM ledger_posting WHERE account_id = ? AND type = 'CREDIT' AND transaction_id = ?",
+                BigDecimal.class, from, sagaId)).isEqualByComparingTo("10");
+        assertThat(shard("shard-1").queryForObject("SELECT credited FROM transfer_saga_credit WHERE saga_id = ?", Boolean.class, sagaId)).isFalse();
+    }
+
+    @Test
+    @WithMockUser
+    void unknownRecipientOnAnotherShardIsRejectedBeforeDebit() {
+        Long from = createAccount("shard-0", BigDecimal.valueOf(100));
+
+        assertThatThrownBy(() -> shardedTransferService.transfer(transfer(from, 1_000_003L, "30")))
+                .isInstanceOf(UserNotFoundException.class);
+
+        assertThat(balance(from)).isEqualByComparingTo("100");
+        assertThat(shard("shard-0").queryForObject("SELECT count(*) FROM transfer_saga WHERE from_account_id = ?", Long.class, from)).isZero();
+    }
+
+    private JdbcTemplate shard(String name) {
+        return new JdbcTemplate(shardRoutingDataSource.getShards().get(name));
+    }
+
+    private BigDecimal balance(Long accountId) {
+        return shard(shardRouter.shardOf(accountId)).queryForObject("SELECT balance FROM bank_account WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private static TransactionDTO transfer(Long from, Long to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from);
+        transactionDTO.setToClientId(to);
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionDTO;
+    }
+
+    // Клиенты распределяются по шардам по кругу, поэтому клиент на нужном шарде создается не больше чем со второй попытки
+    private Long createAccount(String shard, BigDecimal initialBalance) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long id = createAccount(initialBalance);
+            if (shardRouter.shardOf(id).equals(shard)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("No client was created on " + shard);
+    }
+
+    private Long createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("shard-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Shard Client");
+        clientService.createClient(clientDTO);
+        return shardRouter.findOnAnyShard(() -> clientRepository.findByUsername(clientDTO.getUsername()))
+                .map(Client::getId)
+                .orElseThrow();
+    }
+
+    private static void shard(DynamicPropertyRegistry registry, int index, EmbeddedPostgres postgres) {
+        String prefix = "banking.datasource.sharding.shards[" + index + "].";
+        registry.add(prefix + "name", () -> "shard-" + index);
+        registry.add(prefix + "url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add(prefix + "username", () -> "postgres");
+        registry.add(prefix + "password", () -> "");
+        registry.add(prefix + "slots", () -> String.valueOf(index));
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.UserNotFoundException;
+import com.example.banking.model.AccountMonthlyRollup;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.repository.AccountMonthlyRollupRepository;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Помесячные итоги, обновляемые переводами, и выписки по итогам и проводкам месяца.
+ */
+class StatementServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private StatementService statementService;
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private AccountMonthlyRollupRepository rollupRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @WithMockUser
+    void transfersUpdateRollupInSameTransaction() {
+        BankAccount from = createAccount(new BigDecimal("100.00"));
+        BankAccount to = createAccount(new BigDecimal("5.00"));
+
+        transfer(from, to, "30.25");
+        transfer(to, from, "0.25");
+
+        AccountMonthlyRollup rollup = rollupRepository.findById(new AccountMonthlyRollup.Key(from.getId(), YearMonth.now().atDay(1))).orElseThrow();
+        assertThat(rollup.getOpeningBalance()).isEqualByComparingTo("0");
+        assertThat(rollup.getTotalIn()).isEqualByComparingTo("100.25");
+        assertThat(rollup.getTotalOut()).isEqualByComparingTo("30.25");
+        assertThat(rollup.getPostings()).isEqualTo(3);
+        assertThat(rollup.getClosingBalance()).isEqualByComparingTo(bankAccountRepository.findById(from.getId()).orElseThrow().getBalance());
+    }
+
+    @Test
+    @WithMockUser
+    void statementListsMonthPostingsWithRunningBalance() throws Exception {
+        BankAccount from = createAccount(new BigDecimal("100.00"));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        transfer(from, to, "40");
+        transfer(to, from, "2.50");
+
+        JsonNode statement = statement(from.getId(), YearMonth.now());
+
+        assertThat(statement.get("openingBalance").decimalValue()).isEqualByComparingTo("0");
+        List<JsonNode> lines = List.copyOf(statement.get("lines").findParents("type"));
+        assertThat(lines).extracting(line -> line.get("type").asText()).containsExactly("OPENING", "DEBIT", "CREDIT");
+        assertThat(lines).extracting(line -> line.get("balance").decimalValue())
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100"), new BigDecimal("60"), new BigDecimal("62.50"));
+        assertThat(statement.get("totalIn").decimalValue()).isEqualByComparingTo("102.50");
+        assertThat(statement.get("totalOut").decimalValue()).isEqualByComparingTo("40");
+        assertThat(statement.get("closingBalance").decimalValue()).isEqualByComparingTo("62.50");
+
+        // Следующий месяц начинается с остатка на конец текущего по итогам, без чтения проводок
+        JsonNode next = statement(from.getId(), YearMonth.now().plusMonths(1));
+        assertThat(next.get("openingBalance").decimalValue()).isEqualByComparingTo("62.50");
+        assertThat(next.get("lines")).isEmpty();
+        assertThat(next.get("closingBalance").decimalValue()).isEqualByComparingTo("62.50");
+    }
+
+    @Test
+    @WithMockUser
+    void catchUpRebuildsMissingRollupsOnce() {
+        BankAccount from = createAccount(new BigDecimal("10.00"));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        transfer(from, to, "3");
+        AccountMonthlyRollup.Key key = new AccountMonthlyRollup.Key(from.getId(), YearMonth.now().atDay(1));
+        AccountMonthlyRollup expected = rollupRepository.findById(key).orElseThrow();
+
+        jdbcTemplate.update("DELETE FROM account_monthly_rollup WHERE account_id = ?", from.getId());
+        assertThat(monthlyRollupService.catchUp(from.getId())).isEqualTo(2);
+        assertThat(monthlyRollupService.catchUp(from.getId())).isZero();
+
+        AccountMonthlyRollup rebuilt = rollupRepository.findById(key).orElseThrow();
+        assertThat(rebuilt.getTotalIn()).isEqualByComparingTo(expected.getTotalIn());
+        assertThat(rebuilt.getTotalOut()).isEqualByComparingTo(expected.getTotalOut());
+        assertThat(rebuilt.getLastPostingId()).isEqualTo(expected.getLastPostingId());
+    }
+
+    @Test
+    void statementOfUnknownAccountIsRejected() {
+        assertThatThrownBy(() -> statementService.getStatement(-1L, YearMonth.now())).isInstanceOf(UserNotFoundException.class);
+    }
+
+    private JsonNode statement(Long accountId, YearMonth month) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementService.getStatement(accountId, month).writeTo(out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private void transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        transactionService.transfer(transactionDTO);
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("statement-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Statement Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.TransactionResponseDTO;
+import com.example.banking.repository.TransactionRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Секционирование транзакций на данных за четыре года: отсечение секций и архивирование.
+ */
+class TransactionPartitioningTests extends PostgresIntegrationTest {
+
+    private static final int MONTHS = 48;
+    private static final int ROWS_PER_MONTH = 50;
+    private static final Pattern PARTITION = Pattern.compile("transaction_p\\d{4}_\\d{2}");
+
+    @Autowired
+    private TransactionPartitionService partitionService;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long fromAccountId;
+    private long toAccountId;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE transaction, transaction_archive, bank_account, client RESTART IDENTITY CASCADE");
+        fromAccountId = createAccount("alice");
+        toAccountId = createAccount("bob");
+
+        YearMonth current = YearMonth.now();
+        for (int i = MONTHS - 1; i >= 0; i--) {
+            YearMonth month = current.minusMonths(i);
+            partitionService.createPartition(month);
+            jdbcTemplate.update("INSERT INTO transaction (from_account_id, to_account_id, amount, timestamp) "
+                            + "SELECT ?, ?, 1.00, ?::timestamp + g * INTERVAL '10 minutes' FROM generate_series(1, ?) g",
+                    fromAccountId, toAccountId, month.atDay(1).atStartOfDay(), ROWS_PER_MONTH);
+        }
+        jdbcTemplate.execute("ANALYZE transaction");
+    }
+
+    @Test
+    void historyQueryReadsOnlyPartitionsInRange() {
+        YearMonth month = YearMonth.now().minusMonths(13);
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN SELECT * FROM transaction "
+                + "WHERE (from_account_id = " + fromAccountId + " OR to_account_id = " + fromAccountId + ") "
+                + "AND timestamp >= '" + month.atDay(1) + "' AND timestamp < '" + month.plusMonths(1).atDay(1) + "'", String.class);
+
+        assertThat(scannedPartitions(plan)).containsExactly("transaction_p" + month.getYear() + "_" + String.format("%02d", month.getMonthValue()));
+    }
+
+    @Test
+    void historyRepositoryReturnsTransactionsOfRequestedMonth() {
+        YearMonth month = YearMonth.now().minusMonths(30);
+        Page<TransactionResponseDTO> history = transactionRepository.findHistory(toAccountId,
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), PageRequest.of(0, 10));
+
+        assertThat(history.getTotalElements()).isEqualTo(ROWS_PER_MONTH);
+    }
+
+    @Test
+    void futurePartitionsAreCreatedAhead() {
+        partitionService.ensureFuturePartitions();
+
+        YearMonth ahead = YearMonth.now().plusMonths(3);
+        assertThat(partitionService.listPartitions())
+                .contains("transaction_p" + ahead.getYear() + "_" + String.format("%02d", ahead.getMonthValue()));
+    }
+
+    @Test
+    void partitionsOlderThanRetentionAreMovedToArchive() {
+        int archived = partitionService.archiveOldPartitions();
+
+        // Срок хранения 24 месяца: архивируются секции, полностью старше месяца now - 24
+        int expected = MONTHS - 25;
+        assertThat(archived).isEqualTo(expected);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaction_archive", Long.class))
+                .isEqualTo((long) expected * ROWS_PER_MONTH);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM transaction", Long.class))
+                .isEqualTo((long) (MONTHS - expected) * ROWS_PER_MONTH);
+        assertThat(partitionService.listPartitions())
+                .doesNotContain("transaction_p" + YearMonth.now().minusMonths(MONTHS - 1).getYear()
+                        + "_" + String.format("%02d", YearMonth.now().minusMonths(MONTHS - 1).getMonthValue()));
+    }
+
+    private long createAccount(String username) {
+        Long clientId = jdbcTemplate.queryForObject("INSERT INTO client (username, password, phone_number, email, birth_date, full_name) "
+                + "VALUES (?, 'secret', ?, ?, '1990-01-01', ?) RETURNING id", Long.class, username, username, username + "@example.com", username);
+        return jdbcTemplate.queryForObject("INSERT INTO bank_account (initial_balance, balance, client_id) VALUES (100, 100, ?) RETURNING id",
+                Long.class, clientId);
+    }
+
+    private static List<String> scannedPartitions(List<String> plan) {
+        return plan.stream()
+                .map(PARTITION::matcher)
+                .filter(Matcher::find)
+                .map(Matcher::group)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+}
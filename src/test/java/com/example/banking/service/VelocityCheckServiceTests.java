@@ -0,0 +1,127 @@
+package com.example.banking.service;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.dto.TransactionDTO;
+import com.example.banking.exception.ClientInputException;
+import com.example.banking.exception.VelocityLimitException;
+import com.example.banking.model.BankAccount;
+import com.example.banking.model.Client;
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Правила скорости: лимит количества и суммы за окно, снятие откаченного перевода, восстановление из истории.
+ */
+class VelocityCheckServiceTests extends PostgresIntegrationTest {
+
+    @Autowired
+    private VelocityCheckService velocityCheckService;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @WithMockUser
+    void transfersOverTheWindowLimitAreRejected() {
+        BankAccount from = createAccount(BigDecimal.valueOf(1000));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        for (int i = 0; i < 20; i++) {
+            transfer(from, to, "1");
+        }
+
+        assertThatThrownBy(() -> transfer(from, to, "1"))
+                .isInstanceOf(VelocityLimitException.class)
+                .satisfies(e -> assertThat(((VelocityLimitException) e).getRetryAfter()).isPositive());
+        assertThat(velocityCheckService.transfers(from.getId(), LocalDateTime.now())).isEqualTo(20);
+        assertThat(jdbcTemplate.queryForObject("SELECT balance FROM bank_account WHERE id = ?", BigDecimal.class, from.getId()))
+                .isEqualByComparingTo("980");
+        assertThat(transfer(to, from, "1")).as("limits are per sending account").contains("Transaction successful");
+    }
+
+    @Test
+    @WithMockUser
+    void amountAboveTheWindowLimitIsRejected() {
+        BankAccount from = createAccount(new BigDecimal("2000000"));
+        BankAccount to = createAccount(BigDecimal.ONE);
+
+        assertThatThrownBy(() -> transfer(from, to, "1000000.01")).isInstanceOf(ClientInputException.class);
+        transfer(from, to, "999999");
+        assertThatThrownBy(() -> transfer(from, to, "2")).isInstanceOf(VelocityLimitException.class);
+    }
+
+    @Test
+    @WithMockUser
+    void rolledBackTransferIsNotCounted() {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.ONE);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            transfer(from, to, "1");
+            status.setRollbackOnly();
+        });
+
+        assertThat(velocityCheckService.transfers(from.getId(), LocalDateTime.now())).isZero();
+    }
+
+    @Test
+    void countersAreRebuiltFromRecentTransfers() {
+        BankAccount from = createAccount(BigDecimal.valueOf(100));
+        BankAccount to = createAccount(BigDecimal.ONE);
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDateTime timestamp : new LocalDateTime[]{now.minusMinutes(30), now.minusMinutes(5), now.minusMinutes(1)}) {
+            jdbcTemplate.update("INSERT INTO transaction (from_account_id, to_account_id, amount, timestamp) VALUES (?, ?, ?, ?)",
+                    from.getId(), to.getId(), BigDecimal.ONE, timestamp);
+        }
+
+        velocityCheckService.rebuild();
+
+        assertThat(velocityCheckService.transfers(from.getId(), LocalDateTime.now())).isEqualTo(2);
+    }
+
+    private String transfer(BankAccount from, BankAccount to, String amount) {
+        TransactionDTO transactionDTO = new TransactionDTO();
+        transactionDTO.setFromClientId(from.getId());
+        transactionDTO.setToClientId(to.getId());
+        transactionDTO.setAmount(new BigDecimal(amount));
+        return transactionService.transfer(transactionDTO).getBody();
+    }
+
+    private BankAccount createAccount(BigDecimal initialBalance) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername("velocity-" + suffix);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(initialBalance);
+        clientDTO.setPhoneNumber("+7" + suffix);
+        clientDTO.setEmail(suffix + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Velocity Client");
+        clientService.createClient(clientDTO);
+        Client client = clientRepository.findByUsername(clientDTO.getUsername()).orElseThrow();
+        return bankAccountRepository.findByClientId(client.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.banking.service;
+
+import com.example.banking.repository.BankAccountRepository;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Прогрев при старте: отчет в {@code /actuator/info}, готовность после прогрева и отсутствие следов в базе и метриках.
+ */
+@SpringBootTest(properties = {
+        "banking.warmup.enabled=true",
+        "banking.warmup.iterations=50",
+        "banking.warmup.transfer-iterations=45"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class WarmUpTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private WarmUpService warmUpService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @WithMockUser
+    void warmUpRunsBeforeReadinessAndReportsIterations() throws Exception {
+        mockMvc.perform(get("/actuator/info"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.warmup.status").value("completed"))
+                .andExpect(jsonPath("$.warmup.iterations").value(50))
+                .andExpect(jsonPath("$.warmup.transfers").value(45))
+                .andExpect(jsonPath("$.warmup.durationMs").isNumber());
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+
+    @Test
+    void warmUpLeavesNoDataAndNoTransferMetrics() {
+        long accounts = bankAccountRepository.count();
+        long transactions = transactionRepository.count();
+
+        assertThat(warmUpService.warmUp()).containsEntry("transfers", 45);
+
+        assertThat(clientRepository.findAll()).noneMatch(client -> client.getUsername().startsWith("warmup-"));
+        assertThat(bankAccountRepository.count()).isEqualTo(accounts);
+        assertThat(transactionRepository.count()).isEqualTo(transactions);
+        assertThat(meterRegistry.find("banking.transfer").timers()).allMatch(timer -> timer.count() == 0);
+        assertThat(meterRegistry.find("banking.transfer.phase").timers()).extracting(Timer::count).containsOnly(0L);
+    }
+}
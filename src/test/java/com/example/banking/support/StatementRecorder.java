@@ -0,0 +1,104 @@
+package com.example.banking.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Запись SQL и параметров подготовленных запросов, которые действительно выполняют Hibernate и JdbcTemplate.
+ * Оборачивает бин {@code dataSource}; запросы записываются только внутри {@link #record(Runnable)} во всех потоках,
+ * поэтому тесты с записью не должны выполняться параллельно с другими обращениями к базе.
+ */
+public class StatementRecorder implements BeanPostProcessor {
+
+    /**
+     * Выполненный запрос: SQL с параметрами {@code ?} и их значения по порядку номеров.
+     */
+    public record Statement(String sql, List<Object> parameters) {
+    }
+
+    private volatile List<Statement> recorded;
+
+    /**
+     * Выполняет действие и возвращает подготовленные запросы, выполненные за время действия.
+     */
+    public List<Statement> record(Runnable action) {
+        List<Statement> statements = Collections.synchronizedList(new ArrayList<>());
+        recorded = statements;
+        try {
+            action.run();
+        } finally {
+            recorded = null;
+        }
+        return List.copyOf(statements);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && "dataSource".equals(beanName)) {
+            return new DelegatingDataSource(dataSource) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return wrap(super.getConnection());
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return wrap(super.getConnection(username, password));
+                }
+            };
+        }
+        return bean;
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, (method, args) -> {
+            Object result = method.invoke(connection, args);
+            return method.getName().equals("prepareStatement") ? wrap((PreparedStatement) result, (String) args[0]) : result;
+        });
+    }
+
+    private PreparedStatement wrap(PreparedStatement statement, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.startsWith("execute")) {
+                List<Statement> statements = recorded;
+                if (statements != null) {
+                    statements.add(new Statement(sql, new ArrayList<>(parameters.values())));
+                }
+            }
+            return method.invoke(statement, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Invocation invocation) {
+        return (T) Proxy.newProxyInstance(StatementRecorder.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            try {
+                return invocation.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object invoke(Method method, Object[] args) throws Exception;
+    }
+}
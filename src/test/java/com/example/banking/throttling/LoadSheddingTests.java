@@ -0,0 +1,139 @@
+package com.example.banking.throttling;
+
+import com.example.banking.dto.ClientDTO;
+import com.example.banking.model.Client;
+import com.example.banking.repository.ClientRepository;
+import com.example.banking.security.JwtTokenService;
+import com.example.banking.service.ClientService;
+import com.example.banking.service.JwtUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Ограничение частоты запросов клиента (429) и сброс нагрузки (503) на уровне HTTP, адаптация лимита.
+ */
+@SpringBootTest(properties = {
+        "banking.rate-limit.capacity=3",
+        "banking.rate-limit.refill-rate=0.001",
+        "banking.load-shedding.initial-limit=4",
+        "banking.load-shedding.min-limit=1",
+        "banking.load-shedding.max-limit=8",
+        "banking.load-shedding.max-pool-wait=50ms",
+        "banking.load-shedding.sample-interval=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class LoadSheddingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ClientService clientService;
+    @Autowired
+    private ClientRepository clientRepository;
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
+    @Test
+    void clientOverItsRateIsRejectedWithRetryAfter() throws Exception {
+        String token = token(createClient());
+        String other = token(createClient());
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/clients").param("fullName", "x").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/api/clients").param("fullName", "x").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        mockMvc.perform(get("/api/clients").param("fullName", "x").header(HttpHeaders.AUTHORIZATION, "Bearer " + other))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void requestsOverConcurrencyLimitAreShed() throws Exception {
+        int limit = limiter.getLimit();
+        int acquired = 0;
+        try {
+            while (acquired < limit && limiter.tryAcquire()) {
+                acquired++;
+            }
+            mockMvc.perform(get("/api/clients").param("fullName", "x"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            mockMvc.perform(get("/actuator/health/readiness"))
+                    .andExpect(status().isOk());
+        } finally {
+            for (int i = 0; i < acquired; i++) {
+                limiter.release();
+            }
+        }
+        assertThat(meterRegistry.get("banking.loadshedding.shed").tag("reason", AdaptiveConcurrencyLimiter.CONCURRENCY)
+                .counter().count()).isPositive();
+    }
+
+    @Test
+    void limitDecreasesOnPoolWaitAndRecoversWhenReached() {
+        limiter.adjust(0);
+        int initial = limiter.getLimit();
+
+        limiter.adjust(500);
+        assertThat(limiter.getLimit()).isLessThan(initial);
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(1);
+        // При перегрузке пула выполняются только min-limit запросов
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        limiter.release();
+
+        limiter.adjust(0);
+        int reduced = limiter.getLimit();
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release();
+        }
+        limiter.adjust(0);
+        assertThat(limiter.getLimit()).isEqualTo(reduced + 1);
+    }
+
+    private String token(Client client) {
+        return jwtTokenService.generateToken(jwtUserDetailsService.loadUserByUsername(client.getUsername()));
+    }
+
+    private Client createClient() {
+        String username = "throttle-" + UUID.randomUUID();
+        ClientDTO clientDTO = new ClientDTO();
+        clientDTO.setUsername(username);
+        clientDTO.setPassword("password");
+        clientDTO.setInitialBalance(BigDecimal.TEN);
+        clientDTO.setPhoneNumber("+7" + username);
+        clientDTO.setEmail(username + "@example.com");
+        clientDTO.setBirthDate(LocalDate.of(1990, 1, 1));
+        clientDTO.setFullName("Throttle " + username);
+        clientService.createClient(clientDTO);
+        return clientRepository.findByUsername(username).orElseThrow();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.banking.throttling;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Маркерная корзина: емкость, пополнение, независимость клиентов и отсутствие лишних маркеров при конкуренции.
+ */
+class TokenBucketRateLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void burstUpToCapacityThenRefillsAtConfiguredRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(meterRegistry, 5, 10, 100, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("alice")).isZero();
+        }
+        long wait = limiter.tryAcquire("alice");
+        assertThat(wait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire("bob")).as("buckets are per client").isZero();
+
+        clock.addAndGet(wait);
+        assertThat(limiter.tryAcquire("alice")).isZero();
+        assertThat(limiter.tryAcquire("alice")).isPositive();
+        assertThat(meterRegistry.get("banking.ratelimit.rejected").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void idleBucketsAreEvictedWhenClientLimitIsReached() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(meterRegistry, 1, 10, 2, clock::get);
+        limiter.tryAcquire("alice");
+        limiter.tryAcquire("bob");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("carol")).isZero();
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCallersNeverExceedCapacity() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(meterRegistry, 100, 1, 100, clock::get);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire("alice") == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(granted).hasValue(100);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.banking.velocity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Счетчики окна: лимиты количества и суммы, выход интервалов из окна, снятие операции, удаление простаивающих ключей
+ * и отсутствие лишних операций при конкуренции.
+ */
+class SlidingWindowCountersTests {
+
+    private static final long BUCKET = 60_000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void countLimitIsEnforcedUntilOldBucketsLeaveTheWindow() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(BUCKET, 10, 100);
+        assertThat(counters.tryAdd(1, START, 100, 3, Long.MAX_VALUE)).isZero();
+        assertThat(counters.tryAdd(1, START + 2 * BUCKET, 100, 3, Long.MAX_VALUE)).isZero();
+        assertThat(counters.tryAdd(1, START + 3 * BUCKET, 100, 3, Long.MAX_VALUE)).isZero();
+
+        long retryAfter = counters.tryAdd(1, START + 5 * BUCKET, 100, 3, Long.MAX_VALUE);
+        assertThat(retryAfter).as("first bucket leaves the window").isEqualTo(5 * BUCKET - Math.floorMod(START, BUCKET));
+        assertThat(counters.tryAdd(2, START + 5 * BUCKET, 100, 3, Long.MAX_VALUE)).as("windows are per key").isZero();
+
+        assertThat(counters.tryAdd(1, START + 5 * BUCKET + retryAfter, 100, 3, Long.MAX_VALUE)).isZero();
+        assertThat(counters.count(1, START + 5 * BUCKET + retryAfter)).isEqualTo(3);
+        assertThat(counters.count(1, START + 20 * BUCKET)).isZero();
+    }
+
+    @Test
+    void amountLimitCountsTheNewOperation() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(BUCKET, 10, 100);
+        assertThat(counters.tryAdd(1, START, 700, 100, 1_000)).isZero();
+
+        assertThat(counters.tryAdd(1, START + BUCKET, 400, 100, 1_000)).isPositive();
+        assertThat(counters.tryAdd(1, START + BUCKET, 300, 100, 1_000)).isZero();
+        assertThat(counters.amount(1, START + BUCKET)).isEqualTo(1_000);
+    }
+
+    @Test
+    void removedOperationFreesItsQuota() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(BUCKET, 10, 100);
+        counters.add(1, START - BUCKET, 2, 500);
+        assertThat(counters.tryAdd(1, START, 500, 3, 1_000)).isZero();
+        assertThat(counters.tryAdd(1, START, 1, 3, 1_000)).isPositive();
+
+        counters.remove(1, START, 500);
+
+        assertThat(counters.count(1, START)).isEqualTo(2);
+        assertThat(counters.tryAdd(1, START, 1, 3, 1_000)).isZero();
+    }
+
+    @Test
+    void idleKeysAreEvictedWhenKeyLimitIsReached() {
+        SlidingWindowCounters counters = new SlidingWindowCounters(BUCKET, 10, 2);
+        counters.tryAdd(1, START, 1, 10, 10);
+        counters.tryAdd(2, START + 5 * BUCKET, 1, 10, 10);
+
+        counters.tryAdd(3, START + 12 * BUCKET, 1, 10, 10);
+
+        assertThat(counters.size()).isEqualTo(2);
+        assertThat(counters.count(2, START + 12 * BUCKET)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCallersNeverExceedCountLimit() throws Exception {
+        SlidingWindowCounters counters = new SlidingWindowCounters(BUCKET, 10, 100);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 1_000; i++) {
+                            if (counters.tryAdd(1, START, 1, 500, Long.MAX_VALUE) == 0) {
+                                granted.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(granted.get()).isEqualTo(500);
+        assertThat(counters.count(1, START)).isEqualTo(500);
+    }
+}